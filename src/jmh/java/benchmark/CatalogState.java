@@ -0,0 +1,86 @@
+package benchmark;
+
+import main.CatalogGenerator;
+import model.Album;
+import model.MusicStore;
+import model.Song;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * A synthetic catalog of each benchmarked size, written by CatalogGenerator
+ * with a fixed seed and loaded once per trial
+ */
+@State(Scope.Benchmark)
+public class CatalogState {
+    static final int KEYS = 1024;	// power of two, so the next key is an index mask away
+    static final int TRACKS_PER_ALBUM = 10;
+    static final long SEED = 42;
+
+    @Param({ "1000", "100000", "1000000" })
+    public int songs;
+
+    Path dir;
+    Path albumsTxt;
+    Path albumsDir;
+    MusicStore store;
+    List<Album> albums;
+    List<Song> allSongs;
+
+    // random lookup keys drawn from the catalog
+    String[] songTitles;
+    String[] artists;
+    String[] albumTitles;
+    Song[] sampleSongs;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("catalog");
+        albumsTxt = dir.resolve("albums.txt");
+        albumsDir = dir.resolve("albums");
+        new CatalogGenerator(SEED, songs / TRACKS_PER_ALBUM, TRACKS_PER_ALBUM).writeCatalog(dir);
+        store = new MusicStore(albumsTxt.toString(), albumsDir.toString());
+
+        albums = new ArrayList<>();
+        allSongs = new ArrayList<>();
+        for (String line : Files.readAllLines(albumsTxt, StandardCharsets.UTF_8)) {
+            Album album = store.getAlbumByTitle(line.substring(0, line.indexOf(',')));
+            albums.add(album);
+            allSongs.addAll(album.getSongs());
+        }
+
+        Random random = new Random(SEED);
+        songTitles = new String[KEYS];
+        artists = new String[KEYS];
+        albumTitles = new String[KEYS];
+        sampleSongs = new Song[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            Song s = allSongs.get(random.nextInt(allSongs.size()));
+            sampleSongs[i] = s;
+            songTitles[i] = s.getTitle();
+            artists[i] = s.getArtist();
+            albumTitles[i] = s.getAlbumTitle();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package benchmark;
+
+import model.Album;
+import model.LibraryModel;
+import model.PlayList;
+import model.Song;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk import into a library, plays, the views the library computes, and
+ * the updates that keep its automatic playlists current
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LibraryModelBenchmark {
+    private LibraryModel library;	// the whole catalog, some songs rated
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(CatalogState c) {
+        library = new LibraryModel();
+        library.setMusicStore(c.store);
+        for (Album a : c.albums) {
+            library.addAlbum(a);
+        }
+        for (int i = 0; i < CatalogState.KEYS; i++) {
+            library.rateSong(c.sampleSongs[i], 1 + i % 5);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public LibraryModel importAlbums(CatalogState c) {
+        LibraryModel imported = new LibraryModel();
+        imported.setMusicStore(c.store);
+        for (Album a : c.albums) {
+            imported.addAlbum(a);
+        }
+        return imported;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public LibraryModel importSongs(CatalogState c) {
+        LibraryModel imported = new LibraryModel();
+        imported.setMusicStore(c.store);
+        for (Song s : c.allSongs) {
+            imported.addSong(s);
+        }
+        return imported;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void playSong(CatalogState c) {
+        int i = next++ & (CatalogState.KEYS - 1);
+        library.playSong(c.songTitles[i], c.artists[i]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Song> songsSortedByTitle() {
+        return library.getSongsSortedByTitle();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Song> songsSortedByArtist() {
+        return library.getSongsSortedByArtist();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Song> songsSortedByRating() {
+        return library.getSongsSortedByRating();
+    }
+
+    /**
+     * Cycles a song's rating through 1 to 5, so it moves in and out of the
+     * favorites and top-rated playlists
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean rateSong(CatalogState c) {
+        int n = next++;
+        return library.rateSong(c.sampleSongs[n & (CatalogState.KEYS - 1)], 1 + (n >>> 10) % 5);
+    }
+
+    /**
+     * Marks a song as a favorite and rates it down again, since marking a
+     * favorite twice does nothing the second time
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean markSongAsFavorite(CatalogState c) {
+        Song s = c.sampleSongs[next++ & (CatalogState.KEYS - 1)];
+        boolean marked = library.markSongAsFavorite(s);
+        library.rateSong(s, 1);
+        return marked;
+    }
+
+    /**
+     * Removes a song and adds it back, which puts it back on its album and
+     * into its genre's existing playlist
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void addSongToGenrePlaylist(CatalogState c) {
+        Song s = c.sampleSongs[next++ & (CatalogState.KEYS - 1)];
+        library.removeSong(s);
+        library.addSong(s);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public List<PlayList> genreAutoPlaylists() {
+        return library.getGenreAutoPlaylists();
+    }
+}
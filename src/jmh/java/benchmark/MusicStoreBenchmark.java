@@ -0,0 +1,76 @@
+package benchmark;
+
+import model.Album;
+import model.MusicStore;
+import model.Song;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Catalog load and store lookups
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MusicStoreBenchmark {
+    private int next;
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public MusicStore load(CatalogState c) throws IOException {
+        return new MusicStore(c.albumsTxt.toString(), c.albumsDir.toString());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public MusicStore loadParallel(CatalogState c) throws IOException {
+        return new MusicStore(c.albumsTxt.toString(), c.albumsDir.toString(),
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public List<Song> getSongsByTitle(CatalogState c) {
+        return c.store.getSongsByTitle(c.songTitles[next++ & (CatalogState.KEYS - 1)]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public List<Song> getSongsByArtist(CatalogState c) {
+        return c.store.getSongsByArtist(c.artists[next++ & (CatalogState.KEYS - 1)]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Album getAlbumByTitle(CatalogState c) {
+        return c.store.getAlbumByTitle(c.albumTitles[next++ & (CatalogState.KEYS - 1)]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public List<Album> getAlbumsByArtist(CatalogState c) {
+        return c.store.getAlbumsByArtist(c.artists[next++ & (CatalogState.KEYS - 1)]);
+    }
+}
@@ -0,0 +1,84 @@
+package benchmark;
+
+import model.LibraryModel;
+import model.PlayList;
+import model.Song;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recently and frequently played bookkeeping, which runs on every play. The
+ * frequently played list ranks by the play counts a library keeps, so it is
+ * driven through LibraryModel.playSong, which also looks the song up
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PlayListBenchmark {
+    @Param({ "10", "1000" })
+    public int capacity;
+
+    private PlayList history;
+    private LibraryModel exact;
+    private LibraryModel approximate;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(CatalogState c) {
+        history = new PlayList("history", capacity);
+        exact = new LibraryModel(capacity);
+        approximate = new LibraryModel(capacity, true);
+        for (Song s : c.sampleSongs) {
+            history.addSongRecent(s);
+            exact.addSong(s);
+            approximate.addSong(s);
+        }
+        for (int i = 0; i < CatalogState.KEYS; i++) {
+            exact.playSong(c.songTitles[i], c.artists[i]);
+            approximate.playSong(c.songTitles[i], c.artists[i]);
+        }
+    }
+
+    @Benchmark
+    public void addSongRecent(CatalogState c) {
+        history.addSongRecent(c.sampleSongs[next++ & (CatalogState.KEYS - 1)]);
+    }
+
+    @Benchmark
+    public void playSong(CatalogState c) {
+        int i = next++ & (CatalogState.KEYS - 1);
+        exact.playSong(c.songTitles[i], c.artists[i]);
+    }
+
+    @Benchmark
+    public void playSongApproximate(CatalogState c) {
+        int i = next++ & (CatalogState.KEYS - 1);
+        approximate.playSong(c.songTitles[i], c.artists[i]);
+    }
+
+    @Benchmark
+    public List<Song> frequentlyPlayedSongs() {
+        return exact.getFrequentlyPlayedSongs();
+    }
+
+    @Benchmark
+    public List<Song> recentlyPlayedSongs() {
+        return history.getRecentlyPlayedSongs();
+    }
+}
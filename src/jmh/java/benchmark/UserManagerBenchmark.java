@@ -0,0 +1,95 @@
+package benchmark;
+
+import model.Album;
+import model.LibraryModel;
+import model.PlayList;
+import model.UserManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Saving and loading a user's library file. The users file and library
+ * files go in a temporary directory, which is removed afterwards
+ */
+@State(Scope.Thread)
+@Fork(1)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class UserManagerBenchmark {
+    private static final String USER = "jmh_benchmark";
+
+    private Path directory;
+    private UserManager users;
+    private LibraryModel library;
+
+    @Setup(Level.Trial)
+    public void setUp(CatalogState c) throws IOException {
+        directory = Files.createTempDirectory("jmh-users");
+        users = new UserManager(directory.resolve("users.json").toString(), c.store, directory.toString());
+        users.createUser(USER, "password");
+        users.authenticate(USER, "password");
+
+        library = new LibraryModel();
+        library.setMusicStore(c.store);
+        for (Album a : c.albums) {
+            library.addAlbum(a);
+        }
+        for (int i = 0; i < CatalogState.KEYS; i++) {
+            library.rateSong(c.sampleSongs[i], 1 + i % 5);
+            library.playSong(c.songTitles[i], c.artists[i]);
+        }
+        for (int p = 0; p < 10; p++) {
+            library.createPlayList("Playlist " + p);
+            PlayList playlist = library.getPlayList("Playlist " + p);
+            for (int i = p; i < CatalogState.KEYS; i += 10) {
+                playlist.addSong(c.sampleSongs[i]);
+            }
+        }
+        users.saveUserLibrary(library);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void save() throws IOException {
+        users.saveUserLibrary(library);
+    }
+
+    @Benchmark
+    public LibraryModel load(CatalogState c) throws IOException {
+        LibraryModel loaded = new LibraryModel();
+        loaded.setMusicStore(c.store);
+        users.loadUserLibrary(loaded);
+        return loaded;
+    }
+
+    @Benchmark
+    public LibraryModel roundTrip(CatalogState c) throws IOException {
+        users.saveUserLibrary(library);
+        return load(c);
+    }
+}
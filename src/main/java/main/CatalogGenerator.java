@@ -0,0 +1,250 @@
+package main;
+
+import model.Album;
+import model.LibraryModel;
+import model.MusicStore;
+import model.Song;
+import model.UserManager;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Writes a synthetic catalog in the albums.txt and album file format MusicStore
+ * reads, plus users.json and library_&lt;user&gt;.json fixtures, for load and
+ * scale testing. Everything except the password salts follows from the seed,
+ * so the same arguments always produce the same catalog and libraries.
+ *
+ * Artists and genres are drawn from Zipf distributions, so a few artists have
+ * many albums and a few genres hold most songs, as in a real catalog. A share
+ * of song titles is drawn from a small pool shared by every artist, so title
+ * lookups return songs by several artists.
+ *
+ * Usage: java main.CatalogGenerator outputDir [albums] [tracksPerAlbum] [users] [seed]
+ */
+public class CatalogGenerator {
+    public static final String PASSWORD = "password";
+
+    private static final String[] WORDS = {
+        "Golden", "River", "Midnight", "Summer", "Heart", "Fire", "Rain", "Highway", "Blue", "Dream",
+        "Stone", "Ocean", "Silver", "Wild", "Light", "Shadow", "Sweet", "City", "Moon", "Echo",
+        "Broken", "Morning", "Lonely", "Electric", "Velvet", "Thunder", "Honey", "Northern", "Paper", "Crystal"
+    };
+    private static final String[] GENRES = {
+        "Pop", "Rock", "Alternative", "Country", "Latin", "Singer/Songwriter", "Traditional Country", "Jazz",
+        "Hip-Hop", "Electronic", "Classical", "Blues", "Folk", "Reggae", "Metal", "Soul"
+    };
+    private static final int SHARED_TITLES = 500;
+
+    private final long seed;
+    private final int albums;
+    private final int tracksPerAlbum;
+    private final int artists;
+    private final double skew;
+    private final double sharedTitleRate;
+
+    /**
+     * @param albums how many albums to write
+     * @param tracksPerAlbum how many songs each album has
+     * @param artists how many distinct artists the albums are spread over
+     * @param skew Zipf exponent for artists and genres; 0 spreads albums evenly
+     * @param sharedTitleRate fraction of songs titled from the pool shared by all artists
+     * @pre albums >= 1 && tracksPerAlbum >= 1 && artists >= 1 && skew >= 0
+     *      && 0 <= sharedTitleRate <= 1
+     */
+    public CatalogGenerator(long seed, int albums, int tracksPerAlbum, int artists, double skew, double sharedTitleRate) {
+        this.seed = seed;
+        this.albums = albums;
+        this.tracksPerAlbum = tracksPerAlbum;
+        this.artists = artists;
+        this.skew = skew;
+        this.sharedTitleRate = sharedTitleRate;
+    }
+
+    /**
+     * A generator with one artist per five albums, a Zipf skew of 1 and 20%
+     * shared titles
+     */
+    public CatalogGenerator(long seed, int albums, int tracksPerAlbum) {
+        this(seed, albums, tracksPerAlbum, Math.max(1, albums / 5), 1.0, 0.2);
+    }
+
+    /**
+     * Writes albums.txt and an albums directory of album files into dir
+     */
+    public void writeCatalog(Path dir) throws IOException {
+        Random random = new Random(seed);
+        double[] artistWeights = zipf(artists);
+        double[] genreWeights = zipf(GENRES.length);
+        String[] sharedTitles = new String[SHARED_TITLES];
+        for (int i = 0; i < SHARED_TITLES; i++) {
+            sharedTitles[i] = phrase(random, 2);
+        }
+
+        Path albumsDir = dir.resolve("albums");
+        Files.createDirectories(albumsDir);
+        try (BufferedWriter list = Files.newBufferedWriter(dir.resolve("albums.txt"), StandardCharsets.UTF_8)) {
+            for (int a = 0; a < albums; a++) {
+                // album titles carry their number so every album file name is unique
+                String title = phrase(random, 2) + " " + (a + 1);
+                String artist = artistName(sample(random, artistWeights));
+                String genre = GENRES[sample(random, genreWeights)];
+                int year = 1950 + random.nextInt(76);
+                list.write(title + "," + artist);
+                list.newLine();
+
+                Path file = albumsDir.resolve(title + "_" + artist + ".txt");
+                try (BufferedWriter album = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                    album.write(title + "," + artist + "," + genre + "," + year);
+                    album.newLine();
+                    Set<String> used = new HashSet<>();
+                    for (int t = 0; t < tracksPerAlbum; t++) {
+                        String song = random.nextDouble() < sharedTitleRate
+                                ? sharedTitles[random.nextInt(SHARED_TITLES)] : null;
+                        if (song == null || !used.add(song.toLowerCase())) {
+                            song = phrase(random, 3) + " " + (a + 1) + "-" + (t + 1);
+                            used.add(song.toLowerCase());
+                        }
+                        album.write(song);
+                        album.newLine();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes users.json and a library file per user into dir, for users named
+     * user1..userN with password PASSWORD. Each library holds about
+     * songsPerUser songs from the catalog, some as whole albums, with ratings,
+     * playlists and plays
+     *
+     * @pre store was loaded from the catalog writeCatalog wrote into catalogDir
+     */
+    public void writeUsers(Path catalogDir, Path dir, MusicStore store, int users, int songsPerUser) throws IOException {
+        Random random = new Random(seed ^ 0x5DEECE66DL);
+        Files.createDirectories(dir);
+        Path usersJson = dir.resolve("users.json");
+        Files.deleteIfExists(usersJson);
+        UserManager manager = new UserManager(usersJson.toString(), store, dir.toString());
+        List<Album> catalog = new ArrayList<>();
+        for (String line : Files.readAllLines(catalogDir.resolve("albums.txt"), StandardCharsets.UTF_8)) {
+            Album album = store.getAlbumByTitle(line.substring(0, line.indexOf(',')));
+            if (album != null) {
+                catalog.add(album);
+            }
+        }
+
+        for (int u = 1; u <= users; u++) {
+            String name = "user" + u;
+            manager.createUser(name, PASSWORD);
+            manager.authenticate(name, PASSWORD);
+
+            LibraryModel library = new LibraryModel();
+            library.setMusicStore(store);
+            List<Song> picked = new ArrayList<>();
+            while (picked.size() < songsPerUser && !catalog.isEmpty()) {
+                Album album = catalog.get(random.nextInt(catalog.size()));
+                if (random.nextInt(4) == 0) {
+                    library.addAlbum(album);
+                    picked.addAll(album.getSongs());
+                } else {
+                    List<Song> tracks = album.getSongs();
+                    Song song = tracks.get(random.nextInt(tracks.size()));
+                    library.addSong(song);
+                    picked.add(song);
+                }
+            }
+            for (Song s : picked) {
+                int roll = random.nextInt(10);
+                if (roll < 3) {
+                    library.rateSong(s, 1 + random.nextInt(5));
+                } else if (roll == 3) {
+                    library.playSong(s.getTitle(), s.getArtist());
+                }
+            }
+            for (int p = 1; p <= 5 && !picked.isEmpty(); p++) {
+                library.createPlayList("Playlist " + p);
+                for (int i = 0; i < 20; i++) {
+                    library.getPlayList("Playlist " + p).addSong(picked.get(random.nextInt(picked.size())));
+                }
+            }
+            manager.saveUserLibrary(library);
+            manager.logout();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java main.CatalogGenerator outputDir [albums] [tracksPerAlbum] [users] [seed]");
+            return;
+        }
+        Path dir = Path.of(args[0]);
+        int albums = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int tracks = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int users = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42;
+
+        CatalogGenerator generator = new CatalogGenerator(seed, albums, tracks);
+        generator.writeCatalog(dir);
+        MusicStore store = new MusicStore(dir.resolve("albums.txt").toString(), dir.resolve("albums").toString(),
+                Runtime.getRuntime().availableProcessors());
+        System.out.println(store.getLoadReport());
+        generator.writeUsers(dir, dir, store, users, Math.min(1000, albums * tracks / 2));
+        System.out.println("Wrote " + users + " users to " + dir.resolve("users.json"));
+    }
+
+    private static String artistName(int rank) {
+        return "Artist " + (rank + 1);
+    }
+
+    private static String phrase(Random random, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Cumulative Zipf weights for n ranks, normalized to end at 1
+     */
+    private double[] zipf(int n) {
+        double[] cumulative = new double[n];
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            total += 1.0 / Math.pow(i + 1, skew);
+            cumulative[i] = total;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= total;
+        }
+        return cumulative;
+    }
+
+    private static int sample(Random random, double[] cumulative) {
+        double r = random.nextDouble();
+        int lo = 0;
+        int hi = cumulative.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cumulative[mid] < r) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
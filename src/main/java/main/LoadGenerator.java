@@ -0,0 +1,248 @@
+package main;
+
+import model.Album;
+import model.MusicStore;
+import model.Song;
+import model.UserManager;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the Server under load from the same machine. Starts a server over
+ * a catalog with a scratch users directory, opens many client sessions to it
+ * over loopback, and has some of them log in and send a mix of commands
+ * (store and keyword searches, adding and playing songs, library searches)
+ * as fast as the server answers, while the rest sit idle at the log-in menu.
+ * Reports commands per second and latency percentiles for the active
+ * sessions. Every session is a virtual thread on both sides.
+ *
+ * Usage: java main.LoadGenerator [albumsTxt albumsDir] [sessions] [activeSessions] [commandsPerSession] [seed]
+ */
+public class LoadGenerator {
+    private static final String LOGIN_PROMPT = "Select an option: ";
+    private static final String COMMAND_PROMPT = "Enter your choice (or 'exit' to quit): ";
+    private static final String PASSWORD = "load";
+
+    private final Server server;
+    private final List<Song> songs;
+    private long elapsedNanos;
+
+    /**
+     * @param songs songs from the server's catalog for commands to name
+     * @pre server != null && !songs.isEmpty()
+     */
+    public LoadGenerator(Server server, List<Song> songs) {
+        this.server = server;
+        this.songs = songs;
+    }
+
+    /**
+     * Opens sessions connections, of which the first activeSessions log in as
+     * users load1..loadN and send commandsPerSession commands each; the others
+     * stay connected and idle until the active ones finish
+     *
+     * @return the latency of every command, in nanoseconds
+     * @pre 0 <= activeSessions <= sessions && commandsPerSession >= 0
+     */
+    public long[] run(int sessions, int activeSessions, int commandsPerSession, long seed) throws InterruptedException {
+        CountDownLatch connected = new CountDownLatch(sessions);
+        CountDownLatch finished = new CountDownLatch(activeSessions);
+        AtomicInteger failures = new AtomicInteger();
+        long[][] latencies = new long[activeSessions][];
+        List<Thread> clients = new ArrayList<>(sessions);
+        for (int i = 0; i < sessions; i++) {
+            int client = i;
+            clients.add(Thread.ofVirtual().name("load-client-" + i).start(() -> {
+                boolean active = client < activeSessions;
+                boolean waiting = true;		// still counted on connected
+                try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+                    Reader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                    Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+                    readUntil(in, LOGIN_PROMPT);
+                    connected.countDown();
+                    waiting = false;
+                    connected.await();
+                    if (active) {
+                        try {
+                            latencies[client] = runCommands(in, out, "load" + (client + 1), commandsPerSession,
+                                    new Random(seed + client));
+                        } finally {
+                            finished.countDown();
+                        }
+                    } else {
+                        finished.await();
+                    }
+                    send(out, "3");
+                    readUntil(in, "Goodbye!");
+                } catch (IOException | UncheckedIOException e) {
+                    failures.incrementAndGet();
+                    if (waiting) {
+                        connected.countDown();
+                        if (active) {
+                            finished.countDown();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        connected.await();
+        long start = System.nanoTime();
+        finished.await();
+        elapsedNanos = System.nanoTime() - start;
+        for (Thread t : clients) {
+            t.join();
+        }
+        if (failures.get() > 0) {
+            System.out.println(failures.get() + " session(s) failed");
+        }
+
+        int total = 0;
+        for (long[] l : latencies) {
+            total += l == null ? 0 : l.length;
+        }
+        long[] all = new long[total];
+        int at = 0;
+        for (long[] l : latencies) {
+            if (l != null) {
+                System.arraycopy(l, 0, all, at, l.length);
+                at += l.length;
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Returns how long the last run took from the moment every session was
+     * connected until the active sessions finished their commands
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    private long[] runCommands(Reader in, Writer out, String user, int commands, Random random) throws IOException {
+        send(out, "2", user, PASSWORD);	// fails harmlessly if the user exists
+        readUntil(in, LOGIN_PROMPT);
+        send(out, "1", user, PASSWORD);
+        readUntil(in, COMMAND_PROMPT);
+
+        long[] latencies = new long[commands];
+        for (int i = 0; i < commands; i++) {
+            Song s = songs.get(random.nextInt(songs.size()));
+            long start = System.nanoTime();
+            switch (random.nextInt(5)) {
+                case 0 -> send(out, "1", s.getTitle());
+                case 1 -> send(out, "t", s.getTitle().split(" ")[0]);
+                case 2 -> send(out, "a", s.getTitle(), s.getArtist());
+                case 3 -> send(out, "i", s.getTitle(), s.getArtist());
+                default -> send(out, "5", s.getTitle());
+            }
+            readUntil(in, COMMAND_PROMPT);
+            latencies[i] = System.nanoTime() - start;
+        }
+        send(out, "exit");
+        readUntil(in, LOGIN_PROMPT);
+        return latencies;
+    }
+
+    private static void send(Writer out, String... lines) throws IOException {
+        for (String line : lines) {
+            out.write(line);
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads the server's output up to and including the next occurrence of
+     * marker. The markers used here do not overlap themselves, so a failed
+     * partial match can simply start over
+     *
+     * @throws IOException if the connection closes first
+     */
+    private static void readUntil(Reader in, String marker) throws IOException {
+        int matched = 0;
+        while (matched < marker.length()) {
+            int c = in.read();
+            if (c < 0) {
+                throw new IOException("Connection closed before \"" + marker + "\"");
+            }
+            if (c == marker.charAt(matched)) {
+                matched++;
+            } else {
+                matched = c == marker.charAt(0) ? 1 : 0;
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int a = 0;
+        String albumsTxt = "./src/main/resources/albums.txt";
+        String albumsDir = "./src/main/resources/albums";
+        if (args.length >= 2 && !args[0].matches("\\d+")) {
+            albumsTxt = args[0];
+            albumsDir = args[1];
+            a = 2;
+        }
+        int sessions = args.length > a ? Integer.parseInt(args[a]) : 1000;
+        int active = args.length > a + 1 ? Integer.parseInt(args[a + 1]) : Math.min(sessions, 50);
+        int commands = args.length > a + 2 ? Integer.parseInt(args[a + 2]) : 200;
+        long seed = args.length > a + 3 ? Long.parseLong(args[a + 3]) : 42;
+
+        MusicStore store = new MusicStore(albumsTxt, albumsDir, Runtime.getRuntime().availableProcessors());
+        store.prepareSearch();
+        System.out.println(store.getLoadReport());
+        List<Song> songs = new ArrayList<>();
+        for (String line : Files.readAllLines(Path.of(albumsTxt), StandardCharsets.UTF_8)) {
+            Album album = store.getAlbumByTitle(line.substring(0, line.indexOf(',')));
+            if (album != null) {
+                songs.addAll(album.getSongs());
+            }
+        }
+
+        Path dir = Files.createTempDirectory("load-users");
+        UserManager users = new UserManager(dir.resolve("users.json").toString(), store, dir.toString());
+        try (Server server = new Server(store, users, 0)) {
+            Thread.ofVirtual().name("server").start(server::serve);
+            LoadGenerator generator = new LoadGenerator(server, songs);
+            long[] latencies = generator.run(sessions, active, commands, seed);
+            double seconds = generator.getElapsedNanos() / 1e9;
+
+            Arrays.sort(latencies);
+            System.out.printf("%d sessions (%d active): %d commands in %.2f s, %.0f commands/s%n",
+                    sessions, active, latencies.length, seconds, latencies.length / seconds);
+            if (latencies.length > 0) {
+                System.out.printf("latency p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                        percentile(latencies, 0.50), percentile(latencies, 0.99),
+                        latencies[latencies.length - 1] / 1e6);
+            }
+        }
+        System.out.println("Scratch users and libraries left in " + dir);
+    }
+
+    /**
+     * Returns the given percentile of sorted nanosecond latencies, in milliseconds
+     */
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))] / 1e6;
+    }
+}
@@ -1,104 +1,187 @@
 package main;
 
-import model.LibraryModel;
 import model.MusicStore;
 import model.UserManager;
-import view.View;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.file.Paths;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Scanner;
 
 /**
- * Main entry point for the music library application.
+ * Main entry point for the music library application. Pass --off-heap to keep
+ * the catalog outside the Java heap instead of mapping the catalog snapshot.
+ * Pass --serve (and optionally --port=N) to serve sessions over a local
+ * socket instead of running one session on the console, or --batch[=script]
+ * to run a script of console input (standard input by default) as fast as
+ * possible and report its operations per second and latencies. Pass --watch
+ * to reload albums as albums.txt and the album files change, or --warm-up to
+ * start at once and load the albums in the background while the user logs in.
+ * Pass --lazy[=albums] to read each album file only when it is first looked
+ * up, keeping that many parsed albums (1024 by default) in memory.
  */
 public class Main {
+    private static final int DEFAULT_ALBUM_CACHE = 1024;
+    private static final String USAGE = "Usage: Main [--off-heap | --lazy[=albums] | --warm-up] [--watch]"
+            + " [--serve [--port=N] | --batch[=script]]";
+
     public static void main(String[] args) {
         String albumsPath = "./src/main/resources/albums.txt";
         String albumsDirectory = "./src/main/resources/albums";
+        String catalogSnapshot = "data/catalog.snapshot";
 
+        int albumCache;
+        int port;
         try {
-            MusicStore store = new MusicStore(albumsPath, albumsDirectory);
-
-            String userJsonPath = "data/users.json";
-            UserManager userManager = new UserManager(userJsonPath, store);
-
-            LibraryModel library;
-
-            Scanner sc = new Scanner(System.in);
-            boolean done = false;
+            albumCache = albumCacheCapacity(args);
+            port = port(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return;
+        }
+        if (albumCache > 0 && Arrays.asList(args).contains("--watch")) {
+            System.err.println("--lazy cannot be combined with --watch");
+            System.err.println(USAGE);
+            return;
+        }
 
-            while (!done) {
-                System.out.println("=======================================");
-                System.out.println("        Welcome to Music Library");
-                System.out.println("=======================================");
-                System.out.println("1) Log in");
-                System.out.println("2) Create New User");
-                System.out.println("3) Quit");
-                System.out.print("Select an option: ");
-                String choice = sc.nextLine().trim();
+        try {
+            int loaderThreads = Runtime.getRuntime().availableProcessors();
+            MusicStore store;
+            if (Arrays.asList(args).contains("--off-heap")) {
+                store = MusicStore.offHeap(albumsPath, albumsDirectory, loaderThreads);
+            } else if (albumCache > 0) {
+                store = MusicStore.lazy(albumsPath, albumsDirectory, albumCache);
+            } else if (Arrays.asList(args).contains("--warm-up")) {
+                store = MusicStore.loadInBackground(albumsPath, albumsDirectory, loaderThreads);
+            } else {
+                store = MusicStore.fromSnapshot(catalogSnapshot, albumsPath, albumsDirectory);
+            }
+            System.out.println(store.getLoadReport());
+            for (String file : store.getQuarantinedFiles()) {
+                System.err.println("Skipped unreadable album file " + file);
+            }
+            // build the search indexes while the user logs in, except for a lazy store,
+            // whose memory should follow the albums in use until someone searches
+            if (!store.isLazy()) {
+                Thread searchIndexer = new Thread(store::prepareSearch, "search-indexer");
+                searchIndexer.setDaemon(true);
+                searchIndexer.start();
+            }
 
-                switch (choice) {
-                    case "1": {
-                        System.out.print("Enter username: ");
-                        String username = sc.nextLine().trim();
-                        System.out.print("Enter password: ");
-                        String password = sc.nextLine().trim();
+            if (Arrays.asList(args).contains("--watch")) {
+                store.startHotReload();		// runs until the program exits
+            }
 
-                        boolean auth = userManager.authenticate(username, password);
-                        if (!auth) {
-                            System.out.println("Login failed. Check your credentials and try again.");
-                        } else {
-                            library = new LibraryModel();
-                            library.setMusicStore(store);
-                            userManager.loadUserLibrary(library);
+            String userJsonPath = "data/users.json";
+            UserManager userManager = new UserManager(userJsonPath, store);
 
-                            View view = new View(library, store, userManager);
-                            view.run();
+            if (Arrays.asList(args).contains("--serve")) {
+                try (Server server = new Server(store, userManager, port)) {
+                    System.out.println("Serving on localhost:" + server.getPort());
+                    server.serve();
+                }
+            } else if (batchScript(args) != null) {
+                runBatch(store, userManager, batchScript(args));
+            } else {
+                new Session(store, userManager, new Scanner(System.in), System.out).run();
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading album files or user data: " + e.getMessage());
+        }
+    }
 
-                            try {
-                                userManager.saveUserLibrary(library);
-                            } catch (IOException e) {
-                                System.out.println("Error saving library data: " + e.getMessage());
-                            }
+    /**
+     * Returns the album cache capacity given by --lazy=albums, the default
+     * for a bare --lazy, or 0 if neither was given
+     *
+     * @throws IllegalArgumentException if the capacity is not a positive number
+     */
+    private static int albumCacheCapacity(String[] args) {
+        for (String arg : args) {
+            if (arg.equals("--lazy")) {
+                return DEFAULT_ALBUM_CACHE;
+            }
+            if (arg.startsWith("--lazy=")) {
+                return number(arg, "--lazy=", Integer.MAX_VALUE);
+            }
+        }
+        return 0;
+    }
 
-                            userManager.logout();
-                        }
-                        break;
-                    }
-                    case "2": {
-                        System.out.print("Enter desired username: ");
-                        String newUser = sc.nextLine().trim();
-                        System.out.print("Enter desired password: ");
-                        String newPass = sc.nextLine().trim();
+    /**
+     * Returns the port given by --port=N, or the default port
+     *
+     * @throws IllegalArgumentException if the port is not a number from 1 to 65535
+     */
+    private static int port(String[] args) {
+        int port = Server.DEFAULT_PORT;
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = number(arg, "--port=", 65535);
+            }
+        }
+        return port;
+    }
 
-                        try {
-                            boolean created = userManager.createUser(newUser, newPass);
-                            if (created) {
-                                System.out.println("User created successfully! You can now log in.");
-                            } else {
-                                System.out.println("That username already exists. Please pick another.");
-                            }
-                        } catch (IOException e) {
-                            System.out.println("Error creating user: " + e.getMessage());
-                        }
-                        break;
-                    }
-                    case "3": {
-                        System.out.println("Goodbye!");
-                        done = true;
-                        break;
-                    }
-                    default:
-                        System.out.println("Unrecognized option.");
-                }
+    /**
+     * Returns the number after an option's prefix
+     *
+     * @throws IllegalArgumentException if it is not a number from 1 to max
+     */
+    private static int number(String arg, String prefix, int max) {
+        try {
+            int value = Integer.parseInt(arg.substring(prefix.length()));
+            if (value >= 1 && value <= max) {
+                return value;
             }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        String range = max == Integer.MAX_VALUE ? "a positive number" : "a number from 1 to " + max;
+        throw new IllegalArgumentException("Expected " + range + " in " + arg);
+    }
 
-        } catch (IOException e) {
-            System.err.println("Error loading album files or user data: " + e.getMessage());
+    /**
+     * Returns the script named by --batch=path, "-" for a bare --batch (standard
+     * input), or null if neither was given
+     */
+    private static String batchScript(String[] args) {
+        for (String arg : args) {
+            if (arg.equals("--batch")) {
+                return "-";
+            }
+            if (arg.startsWith("--batch=")) {
+                return arg.substring("--batch=".length());
+            }
         }
+        return null;
+    }
+
+    /**
+     * Runs a session from a script of console input with the View in batch
+     * mode. Output goes through one large buffer instead of System.out, which
+     * flushes every line, and the timing report goes to standard error so the
+     * output can be compared between builds.
+     */
+    private static void runBatch(MusicStore store, UserManager userManager, String script) throws IOException {
+        Scanner in = script.equals("-")
+                ? new Scanner(new BufferedInputStream(System.in, 1 << 16))
+                : new Scanner(Path.of(script));
+        PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16),
+                false);
+        Session session = new Session(store, userManager, in, out, true);
+        session.run();
+        out.flush();
+        System.err.print(session.getBatchReport());
     }
 }
\ No newline at end of file
@@ -0,0 +1,127 @@
+package main;
+
+import model.MusicStore;
+import model.UserManager;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves the music library to many clients at once over a local socket. Each
+ * connection runs its own Session, with the console's menus, on its own
+ * virtual thread. A session waiting for its client parks its virtual thread
+ * rather than holding an OS thread, so thousands of mostly idle sessions cost
+ * little more than their buffers. Sessions share one MusicStore and one set of
+ * users; each has its own UserManager session for the user it logs in.
+ *
+ * The protocol is the console's text: the client sends lines and reads the
+ * menus and prompts back, e.g. with "nc localhost 5050".
+ */
+public class Server implements Closeable {
+    public static final int DEFAULT_PORT = 5050;
+
+    private final MusicStore store;
+    private final UserManager users;
+    private final ServerSocket socket;
+    private final AtomicInteger sessions;	// open right now
+    private final AtomicInteger served;		// ever accepted
+
+    /**
+     * Binds to port on the loopback interface; port 0 picks a free port
+     *
+     * @pre store != null && users != null && port >= 0
+     * @throws IOException if the port cannot be bound
+     */
+    public Server(MusicStore store, UserManager users, int port) throws IOException {
+        this.store = store;
+        this.users = users;
+        this.socket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        this.sessions = new AtomicInteger();
+        this.served = new AtomicInteger();
+    }
+
+    public int getPort() {
+        return socket.getLocalPort();
+    }
+
+    /**
+     * Returns how many sessions are open right now
+     */
+    public int getOpenSessions() {
+        return sessions.get();
+    }
+
+    /**
+     * Accepts connections until the server is closed, starting a session for
+     * each on a new virtual thread
+     */
+    public void serve() {
+        while (!socket.isClosed()) {
+            Socket client;
+            try {
+                client = socket.accept();
+            } catch (IOException e) {
+                break;	// closed
+            }
+            Thread.ofVirtual().name("session-" + served.incrementAndGet()).start(() -> runSession(client));
+        }
+    }
+
+    private void runSession(Socket client) {
+        sessions.incrementAndGet();
+        try (client) {
+            PrintStream out = new PrintStream(new BufferedOutputStream(client.getOutputStream()), false,
+                    StandardCharsets.UTF_8);
+            Scanner in = new Scanner(new FlushingInput(client.getInputStream(), out), StandardCharsets.UTF_8);
+            new Session(store, users.newSession(), in, out).run();
+        } catch (IOException e) {
+            // the client went away; Session has already saved and logged out
+        } finally {
+            sessions.decrementAndGet();
+        }
+    }
+
+    /**
+     * Stops accepting connections. Open sessions run until their clients leave
+     */
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    /**
+     * Input that flushes the session's buffered output before it waits for
+     * the client, so the client sees each prompt before it is expected to
+     * answer while a burst of output still goes out in one write
+     */
+    private static final class FlushingInput extends FilterInputStream {
+        private final PrintStream out;
+
+        private FlushingInput(InputStream in, PrintStream out) {
+            super(in);
+            this.out = out;
+        }
+
+        @Override
+        public int read() throws IOException {
+            out.flush();
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            out.flush();
+            return super.read(b, off, len);
+        }
+    }
+}
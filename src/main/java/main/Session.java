@@ -0,0 +1,152 @@
+package main;
+
+import model.LibraryModel;
+import model.MusicStore;
+import model.UserManager;
+import view.View;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+
+/**
+ * One client's conversation with the music library: the log-in menu, then a
+ * View of the logged-in user's library until they log out or quit. It reads
+ * and writes only the streams it is given, so the same session runs on the
+ * console or over a network connection. If the input ends mid-session, the
+ * user's library is saved and they are logged out as if they had quit.
+ *
+ * In batch mode the logged-in user's commands run as a script, see
+ * View.runBatch, and each View's timing report is kept for getBatchReport.
+ */
+public class Session implements Runnable {
+    private final MusicStore store;
+    private final UserManager userManager;
+    private final Scanner in;
+    private final PrintStream out;
+    private final boolean batch;
+    private final StringBuilder batchReport;
+
+    /**
+     * @param userManager this session's own UserManager, see UserManager.newSession
+     * @pre store != null && userManager != null && in != null && out != null
+     */
+    public Session(MusicStore store, UserManager userManager, Scanner in, PrintStream out) {
+        this(store, userManager, in, out, false);
+    }
+
+    /**
+     * @param batch whether to run the logged-in user's commands with View.runBatch
+     * @pre store != null && userManager != null && in != null && out != null
+     */
+    public Session(MusicStore store, UserManager userManager, Scanner in, PrintStream out, boolean batch) {
+        this.store = store;
+        this.userManager = userManager;
+        this.in = in;
+        this.out = out;
+        this.batch = batch;
+        this.batchReport = new StringBuilder();
+    }
+
+    /**
+     * Returns the timing reports of the batch runs so far, one per line, or
+     * an empty string if there were none
+     */
+    public String getBatchReport() {
+        return batchReport.toString();
+    }
+
+    @Override
+    public void run() {
+        try {
+            boolean done = false;
+            while (!done) {
+                out.println("=======================================");
+                out.println("        Welcome to Music Library");
+                out.println("=======================================");
+                out.println("1) Log in");
+                out.println("2) Create New User");
+                out.println("3) Quit");
+                out.print("Select an option: ");
+                String choice = in.nextLine().trim();
+
+                switch (choice) {
+                    case "1":
+                        logIn();
+                        break;
+                    case "2":
+                        createUser();
+                        break;
+                    case "3":
+                        out.println("Goodbye!");
+                        done = true;
+                        break;
+                    default:
+                        out.println("Unrecognized option.");
+                }
+            }
+        } catch (NoSuchElementException e) {
+            // the input ended; the session ends with it
+        } finally {
+            out.flush();
+        }
+    }
+
+    private void logIn() {
+        out.print("Enter username: ");
+        String username = in.nextLine().trim();
+        out.print("Enter password: ");
+        String password = in.nextLine().trim();
+
+        if (!userManager.authenticate(username, password)) {
+            out.println("Login failed. Check your credentials and try again.");
+            return;
+        }
+        LibraryModel library = new LibraryModel();
+        library.setMusicStore(store);
+        try {
+            userManager.loadUserLibrary(library);
+            userManager.openJournal(library);
+        } catch (IOException e) {
+            out.println("Error loading library data: " + e.getMessage());
+            userManager.logout();	// without saving over the library file
+            return;
+        }
+        out.println(userManager.getLibraryLoadReport());
+
+        try {
+            View view = new View(library, store, userManager, in, out);
+            if (batch) {
+                batchReport.append(view.runBatch()).append(System.lineSeparator());
+            } else {
+                view.run();
+            }
+        } finally {
+            try {
+                userManager.saveUserLibrary(library);
+            } catch (IOException e) {
+                out.println("Error saving library data: " + e.getMessage());
+            }
+            userManager.logout();
+        }
+    }
+
+    private void createUser() {
+        out.print("Enter desired username: ");
+        String newUser = in.nextLine().trim();
+        out.print("Enter desired password: ");
+        String newPass = in.nextLine().trim();
+
+        try {
+            boolean created = userManager.createUser(newUser, newPass);
+            if (created) {
+                out.println("User created successfully! You can now log in.");
+            } else {
+                out.println("That username already exists. Please pick another.");
+            }
+        } catch (IOException e) {
+            out.println("Error creating user: " + e.getMessage());
+        }
+    }
+}
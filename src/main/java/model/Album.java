@@ -4,13 +4,15 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Represents an Album using its title, artist, genre, year, and list of songs
+ * Represents an Album using its title, artist, genre, year, and list of songs.
+ * Two albums are equal when their title and artist match, ignoring case
  */
 public class Album {
     private final String title;
     private final String artist;
     private final String genre;
     private final int year;
+    private final int hash;
 
     private final List<Song> songs;
 
@@ -22,6 +24,7 @@ public class Album {
         this.artist = artist;
         this.genre = genre;
         this.year = year;
+        this.hash = 31 * Song.foldedHash(title) + Song.foldedHash(artist);
         this.songs = new ArrayList<>(songs);	// copies ArrayList to prevent escaping reference
     }
 
@@ -44,4 +47,19 @@ public class Album {
     public List<Song> getSongs() {
         return new ArrayList<>(songs);	// copies ArrayList to prevent escaping reference
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Album)) return false;
+        Album other = (Album) o;
+        return hash == other.hash
+                && title.equalsIgnoreCase(other.title)
+                && artist.equalsIgnoreCase(other.artist);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
 }
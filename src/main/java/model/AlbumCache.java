@@ -0,0 +1,79 @@
+package model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Albums parsed by a LazyCatalog, keyed by album file, holding at most a
+ * fixed number of them. When it is full, adding an album evicts the one
+ * least recently used, so the albums sessions keep coming back to stay
+ * parsed while the rest of the catalog stays on disk. Counts hits, misses
+ * and evictions for tuning the capacity. Safe to use from several threads
+ */
+final class AlbumCache {
+    private final int capacity;
+    private final LinkedHashMap<String, Album> albums;	// in access order, least recent first
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @pre capacity >= 1
+     */
+    AlbumCache(int capacity) {
+        this.capacity = capacity;
+        this.albums = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Album> eldest) {
+                if (size() > AlbumCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the album parsed from a file and marks it most recently used,
+     * or returns null if it is not cached
+     */
+    synchronized Album get(String file) {
+        Album album = albums.get(file);
+        if (album != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return album;
+    }
+
+    /**
+     * Caches the album parsed from a file unless another thread cached one
+     * first, and returns whichever album the file now has
+     */
+    synchronized Album put(String file, Album album) {
+        Album cached = albums.putIfAbsent(file, album);
+        return cached != null ? cached : album;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    synchronized int size() {
+        return albums.size();
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    synchronized long getEvictions() {
+        return evictions;
+    }
+}
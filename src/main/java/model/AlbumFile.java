@@ -0,0 +1,307 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * An album file read into one byte array and split into its fields in place.
+ *
+ * The file is read through a FileChannel in a single read and scanned as
+ * UTF-8 bytes: the header line "title,artist,genre,year" is cut at its commas
+ * and the remaining lines are track titles. Fields are trimmed the way
+ * String.trim does, which for UTF-8 means dropping bytes up to 0x20 at either
+ * end, and lines end at "\n", "\r" or "\r\n" as for BufferedReader.readLine.
+ * Only the header's title, artist and genre become strings; a track stays a
+ * byte range of the file until the catalog copies it into its own columns.
+ *
+ * Reading touches no shared state, so files can be read on several threads
+ * at once.
+ */
+final class AlbumFile {
+    private final byte[] data;
+    private final String title;
+    private final String artist;
+    private final String genre;
+    private final int year;
+    private final int[] tracks;		// track i is data[tracks[2i] .. tracks[2i + 1])
+    private final int trackCount;
+
+    private AlbumFile(byte[] data, String title, String artist, String genre, int year, int[] tracks, int trackCount) {
+        this.data = data;
+        this.title = title;
+        this.artist = artist;
+        this.genre = genre;
+        this.year = year;
+        this.tracks = tracks;
+        this.trackCount = trackCount;
+    }
+
+    /**
+     * Reads and parses one album file
+     *
+     * @pre filePath != null
+     * @throws IOException if the file is unreadable or has no header line with four fields
+     * @throws NumberFormatException if the year is not an integer, as Integer.parseInt
+     */
+    static AlbumFile read(String filePath) throws IOException {
+        byte[] data = readFully(filePath);
+        Lines lines = new Lines(data);
+        if (!lines.nextLine()) {
+            throw new IOException("Album file " + filePath + " is empty");
+        }
+        int[] fields = new int[8];		// start and end of each of the header's first four fields
+        int found = split(data, lines.start, lines.end, fields);
+        if (found < 4) {
+            throw new IOException("Album file " + filePath + " has no \"title,artist,genre,year\" header");
+        }
+        String title = string(data, fields[0], fields[1]);
+        String artist = string(data, fields[2], fields[3]);
+        String genre = string(data, fields[4], fields[5]);
+        int year = parseInt(data, fields[6], fields[7]);
+
+        int[] tracks = new int[32];
+        int count = 0;
+        while (lines.nextLine()) {
+            int start = trimStart(data, lines.start, lines.end);
+            int end = trimEnd(data, start, lines.end);
+            if (start < end) {
+                if (2 * count == tracks.length) {
+                    tracks = Arrays.copyOf(tracks, tracks.length * 2);
+                }
+                tracks[2 * count] = start;
+                tracks[2 * count + 1] = end;
+                count++;
+            }
+        }
+        return new AlbumFile(data, title, artist, genre, year, tracks, count);
+    }
+
+    /**
+     * Reads "albums.txt" and returns the path of each listed album's file,
+     * albumsDirectoryPath + "/" + title + "_" + artist + ".txt". Lines without
+     * a second field are skipped
+     *
+     * @pre albumsTxtPath != null && albumsDirectoryPath != null
+     */
+    static List<String> readAlbumList(String albumsTxtPath, String albumsDirectoryPath) throws IOException {
+        List<String> albumFiles = new ArrayList<>();
+        readAlbumList(albumsTxtPath, (title, artist) -> albumFiles.add(path(albumsDirectoryPath, title, artist)));
+        return albumFiles;
+    }
+
+    /**
+     * Reads "albums.txt" and passes the title and artist of each listed album
+     * to listed, in order. Lines without a second field are skipped
+     *
+     * @pre albumsTxtPath != null && listed != null
+     */
+    static void readAlbumList(String albumsTxtPath, BiConsumer<String, String> listed) throws IOException {
+        byte[] data = readFully(albumsTxtPath);
+        int[] fields = new int[4];
+        Lines lines = new Lines(data);
+        while (lines.nextLine()) {
+            if (!hasSecondField(data, lines.start, lines.end)) {
+                continue;
+            }
+            split(data, lines.start, lines.end, fields);
+            listed.accept(string(data, fields[0], fields[1]), string(data, fields[2], fields[3]));
+        }
+    }
+
+    /**
+     * Returns the path of the file of the album albums.txt lists with the given title and artist
+     */
+    static String path(String albumsDirectoryPath, String title, String artist) {
+        StringBuilder filename = new StringBuilder(albumsDirectoryPath.length() + title.length() + artist.length() + 6);
+        filename.append(albumsDirectoryPath).append('/').append(title).append('_').append(artist).append(".txt");
+        return filename.toString();
+    }
+
+    String getTitle() {
+        return title;
+    }
+
+    String getArtist() {
+        return artist;
+    }
+
+    String getGenre() {
+        return genre;
+    }
+
+    int getYear() {
+        return year;
+    }
+
+    int getTrackCount() {
+        return trackCount;
+    }
+
+    /**
+     * Returns the array holding the tracks' UTF-8 bytes, see getTrackStart and getTrackEnd
+     */
+    byte[] getData() {
+        return data;
+    }
+
+    int getTrackStart(int track) {
+        return tracks[2 * track];
+    }
+
+    int getTrackEnd(int track) {
+        return tracks[2 * track + 1];
+    }
+
+    /**
+     * Builds the Album this file describes
+     */
+    Album toAlbum() {
+        List<Song> songs = new ArrayList<>(trackCount);
+        for (int i = 0; i < trackCount; i++) {
+            songs.add(new Song(string(data, getTrackStart(i), getTrackEnd(i)), artist, title));
+        }
+        return new Album(title, artist, genre, year, songs);
+    }
+
+    private static byte[] readFully(String filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IOException(filePath + " is too large");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading until the buffer is full or the file ends
+            }
+            return buffer.position() == buffer.capacity()
+                    ? buffer.array()
+                    : Arrays.copyOf(buffer.array(), buffer.position());
+        }
+    }
+
+    /**
+     * Cuts data[start .. end) at its commas and stores the trimmed bounds of
+     * up to bounds.length / 2 fields in bounds; returns how many fields there
+     * are in all, counting an empty last field
+     */
+    private static int split(byte[] data, int start, int end, int[] bounds) {
+        int fields = 0;
+        int fieldStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || data[i] == ',') {
+                if (2 * fields < bounds.length) {
+                    int s = trimStart(data, fieldStart, i);
+                    bounds[2 * fields] = s;
+                    bounds[2 * fields + 1] = trimEnd(data, s, i);
+                }
+                fields++;
+                fieldStart = i + 1;
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Whether String.split(",") would give data[start .. end) a second field:
+     * something other than commas follows its first comma
+     */
+    private static boolean hasSecondField(byte[] data, int start, int end) {
+        int i = start;
+        while (i < end && data[i] != ',') {
+            i++;
+        }
+        for (i++; i < end; i++) {
+            if (data[i] != ',') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int trimStart(byte[] data, int start, int end) {
+        while (start < end && (data[start] & 0xff) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(byte[] data, int start, int end) {
+        while (end > start && (data[end - 1] & 0xff) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static String string(byte[] data, int start, int end) {
+        return new String(data, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses ASCII digits with an optional sign in place, and anything else
+     * through Integer.parseInt so that it is accepted or rejected the same way
+     */
+    private static int parseInt(byte[] data, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (data[i] == '-' || data[i] == '+')) {
+            negative = data[i] == '-';
+            i++;
+        }
+        if (i == end || end - i > 9) {
+            return Integer.parseInt(string(data, start, end));
+        }
+        int value = 0;
+        for (; i < end; i++) {
+            int digit = data[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return Integer.parseInt(string(data, start, end));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Steps through the lines of a byte array the way BufferedReader.readLine
+     * does, without copying them
+     */
+    private static final class Lines {
+        private final byte[] data;
+        private int next;
+        private int start;
+        private int end;
+
+        private Lines(byte[] data) {
+            this.data = data;
+        }
+
+        /**
+         * Moves to the next line, setting start and end to its bounds without
+         * the terminator; returns false at the end of the data
+         */
+        private boolean nextLine() {
+            if (next >= data.length) {
+                return false;
+            }
+            start = next;
+            int i = next;
+            while (i < data.length && data[i] != '\n' && data[i] != '\r') {
+                i++;
+            }
+            end = i;
+            if (i < data.length && data[i] == '\r' && i + 1 < data.length && data[i + 1] == '\n') {
+                i++;
+            }
+            next = i + 1;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package model;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Lookup structure that backs a MusicStore. Every key passed in has already
+ * been lowercased by the store
+ */
+interface Catalog {
+
+    Album getAlbumByTitle(String lowerTitle);
+
+    /**
+     * Returns every album with this title in load order; getAlbumByTitle
+     * returns the last of them
+     */
+    List<Album> getAlbumsByTitle(String lowerTitle);
+
+    List<Album> getAlbumsByArtist(String lowerArtist);
+
+    List<Song> getSongsByTitle(String lowerTitle);
+
+    List<Song> getSongsByArtist(String lowerArtist);
+
+    /**
+     * Returns every album in the order it was loaded
+     */
+    List<Album> getAlbums();
+
+    int getAlbumCount();
+
+    /**
+     * Passes every album to an action in load order, for a single pass over
+     * the whole catalog such as building an index. A catalog that caches
+     * albums reads them without going through its cache
+     */
+    default void forEachAlbum(Consumer<Album> action) {
+        for (int a = 0; a < getAlbumCount(); a++) {
+            action.accept(getAlbum(a));
+        }
+    }
+
+    /**
+     * Returns an album by its position in load order
+     *
+     * @pre 0 <= id < getAlbumCount()
+     */
+    Album getAlbum(int id);
+
+    /**
+     * Returns a song by its position when the songs of every album are
+     * numbered album by album in load order
+     *
+     * @pre 0 <= id < getSongCount()
+     */
+    Song getSong(int id);
+
+    int getSongCount();
+
+    /**
+     * Returns the latest album with this title and artist, or null
+     */
+    Album findAlbum(String lowerTitle, String lowerArtist);
+
+    /**
+     * Returns the first song with this title on an album with this title and
+     * artist, or null
+     */
+    Song findSong(String lowerTitle, String lowerArtist, String lowerAlbumTitle);
+
+    /**
+     * Returns the first song in load order with this title by this artist,
+     * on whichever album, or null
+     */
+    Song findSong(String lowerTitle, String lowerArtist);
+
+    /**
+     * Returns the key that identifies an album: its title and artist, lowercased
+     */
+    static String albumKey(String title, String artist) {
+        return title.toLowerCase() + '\u0000' + artist.toLowerCase();
+    }
+}
@@ -0,0 +1,239 @@
+package model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Turns changes to albums.txt and the album files into new catalogs for a
+ * hot-reloading MusicStore, parsing only the files that changed.
+ *
+ * It keeps the catalog the store was loaded with as a base and builds each
+ * new catalog as a LayeredCatalog: the base with the albums of changed or
+ * removed files hidden, plus an overlay of every album parsed since. So a
+ * reload costs about as much as parsing the changed files and rebuilding the
+ * overlay. Once the overlay and hidden albums together pass an eighth of the
+ * base, the next reload folds them into a new base, which keeps the overlay
+ * small at a cost that is spread over the changes that grew it.
+ *
+ * A file that fails to parse, such as one caught halfway through being
+ * written, keeps its previous albums until a later change parses. Not
+ * thread-safe; the store calls it from one thread at a time.
+ */
+final class CatalogReloader {
+    private static final int MIN_FOLD = 256;		// overlay and hidden albums before a fold is considered
+
+    private final String albumsTxtPath;
+    private final String albumsDirectoryPath;
+    private Catalog base;
+    private List<String> baseFiles;				// album file of each base album, by id
+    private Map<String, Integer> baseIds;		// inverse of baseFiles
+    private BitSet hiddenIds;
+    private Set<String> hiddenKeys;
+    private int hiddenSongs;
+    private final LinkedHashMap<String, AlbumFile> overlay;		// file -> its latest parse, in reload order
+    private Set<String> listed;					// the album files albums.txt lists
+
+    /**
+     * @param sourceFiles albums.txt followed by the file of each of the base's albums
+     * @param unloadedFiles files albums.txt lists that the base has no albums from
+     * @pre base.getAlbumCount() == sourceFiles.size() - 1
+     */
+    CatalogReloader(Catalog base, List<String> sourceFiles, Collection<String> unloadedFiles,
+            String albumsDirectoryPath) {
+        this.albumsTxtPath = sourceFiles.get(0);
+        this.albumsDirectoryPath = albumsDirectoryPath;
+        this.overlay = new LinkedHashMap<>();
+        rebase(base, new ArrayList<>(sourceFiles.subList(1, sourceFiles.size())));
+        this.listed = new LinkedHashSet<>(baseFiles);
+        this.listed.addAll(unloadedFiles);
+    }
+
+    private void rebase(Catalog catalog, List<String> files) {
+        base = catalog;
+        baseFiles = files;
+        baseIds = new HashMap<>();
+        for (int i = 0; i < files.size(); i++) {
+            baseIds.put(files.get(i), i);
+        }
+        hiddenIds = new BitSet();
+        hiddenKeys = new HashSet<>();
+        hiddenSongs = 0;
+        overlay.clear();
+    }
+
+    String getAlbumsTxtPath() {
+        return albumsTxtPath;
+    }
+
+    String getAlbumsDirectoryPath() {
+        return albumsDirectoryPath;
+    }
+
+    /**
+     * Returns the path the store uses for an album file with the given name
+     */
+    String albumFile(String fileName) {
+        return albumsDirectoryPath + "/" + fileName;
+    }
+
+    /**
+     * Applies changes to the given album files, and to albums.txt if
+     * listChanged, and returns the resulting catalog with its source files,
+     * or null if nothing the catalog shows has changed. Changed files that
+     * albums.txt does not list are ignored; listed files that no longer
+     * exist are dropped
+     *
+     * @throws IOException if albums.txt cannot be read
+     */
+    Result reload(Collection<String> changedFiles, boolean listChanged) throws IOException {
+        boolean changed = false;
+        Set<String> toParse = new LinkedHashSet<>(changedFiles);
+        if (listChanged) {
+            Set<String> nowListed = new LinkedHashSet<>(AlbumFile.readAlbumList(albumsTxtPath, albumsDirectoryPath));
+            for (String file : listed) {
+                if (!nowListed.contains(file)) {
+                    changed |= remove(file);
+                }
+            }
+            for (String file : nowListed) {
+                if (!listed.contains(file)) {
+                    toParse.add(file);
+                }
+            }
+            listed = nowListed;
+        }
+
+        for (String file : toParse) {
+            if (!listed.contains(file)) {
+                continue;
+            }
+            if (!Files.exists(Paths.get(file))) {
+                changed |= remove(file);
+                continue;
+            }
+            AlbumFile parsed;
+            try {
+                parsed = AlbumFile.read(file);
+            } catch (IOException | RuntimeException e) {
+                continue;	// keep what the file held before; it is reparsed on its next change
+            }
+            hide(file);
+            overlay.remove(file);
+            overlay.put(file, parsed);
+            changed = true;
+        }
+        if (!changed) {
+            return null;
+        }
+
+        if (overlay.size() + hiddenIds.cardinality() >= Math.max(MIN_FOLD, base.getAlbumCount() / 8)) {
+            fold();
+        }
+        if (overlay.isEmpty() && hiddenIds.isEmpty()) {
+            return new Result(base, albumsTxtPath, baseFiles, new BitSet(), List.of());
+        }
+        ColumnarCatalog overlayCatalog = new ColumnarCatalog();
+        for (AlbumFile file : overlay.values()) {
+            overlayCatalog.addAlbum(file);
+        }
+        overlayCatalog.finishLoading();
+        BitSet hidden = (BitSet) hiddenIds.clone();
+        Catalog catalog = new LayeredCatalog(base, hidden, new HashSet<>(hiddenKeys), hiddenSongs, overlayCatalog);
+        return new Result(catalog, albumsTxtPath, baseFiles, hidden, new ArrayList<>(overlay.keySet()));
+    }
+
+    /**
+     * Drops the albums of a file; returns whether it had any
+     */
+    private boolean remove(String file) {
+        boolean inOverlay = overlay.remove(file) != null;
+        return hide(file) || inOverlay;
+    }
+
+    /**
+     * Hides the base album of a file, if it has one that is still showing;
+     * returns whether it did
+     */
+    private boolean hide(String file) {
+        Integer id = baseIds.get(file);
+        if (id == null || hiddenIds.get(id)) {
+            return false;
+        }
+        Album album = base.getAlbum(id);
+        hiddenIds.set(id);
+        hiddenKeys.add(Catalog.albumKey(album.getTitle(), album.getArtist()));
+        hiddenSongs += album.getSongs().size();
+        return true;
+    }
+
+    /**
+     * Replaces the base with a catalog of every showing album, in the same order
+     */
+    private void fold() {
+        ColumnarCatalog folded = new ColumnarCatalog();
+        for (int i = 0; i < baseFiles.size(); i++) {
+            if (!hiddenIds.get(i)) {
+                folded.addAlbum(base.getAlbum(i));
+            }
+        }
+        for (AlbumFile file : overlay.values()) {
+            folded.addAlbum(file);
+        }
+        folded.finishLoading();
+        List<String> files = new ArrayList<>(folded.getAlbumCount());
+        for (int i = 0; i < baseFiles.size(); i++) {
+            if (!hiddenIds.get(i)) {
+                files.add(baseFiles.get(i));
+            }
+        }
+        files.addAll(overlay.keySet());
+        rebase(folded, files);
+    }
+
+    /**
+     * A reloaded catalog and what its source files are. Listing the files
+     * means walking the whole base, so it is left until someone asks
+     */
+    static final class Result {
+        final Catalog catalog;
+        private final String albumsTxtPath;
+        private final List<String> baseFiles;
+        private final BitSet hidden;
+        private final List<String> overlayFiles;
+
+        private Result(Catalog catalog, String albumsTxtPath, List<String> baseFiles, BitSet hidden,
+                List<String> overlayFiles) {
+            this.catalog = catalog;
+            this.albumsTxtPath = albumsTxtPath;
+            this.baseFiles = baseFiles;
+            this.hidden = hidden;
+            this.overlayFiles = overlayFiles;
+        }
+
+        /**
+         * Returns albums.txt and the file of each of the catalog's albums, in catalog order
+         */
+        List<String> sourceFiles() {
+            List<String> files = new ArrayList<>(baseFiles.size() + overlayFiles.size() + 1);
+            files.add(albumsTxtPath);
+            for (int i = 0; i < baseFiles.size(); i++) {
+                if (!hidden.get(i)) {
+                    files.add(baseFiles.get(i));
+                }
+            }
+            files.addAll(overlayFiles);
+            return files;
+        }
+    }
+}
@@ -0,0 +1,551 @@
+package model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary image of a catalog that is memory-mapped and queried in place.
+ *
+ * Layout (all ints big-endian):
+ *   header   magic, version, file length, album/song/string/source counts, section offsets
+ *   strings  (stringCount + 1) offsets into the UTF-8 string data, then the data itself
+ *   albums   title, artist, genre, year, first song, song count (6 ints each)
+ *   songs    title, album (2 ints each); artist and album title come from the album record
+ *   sources  path string, last-modified millis for albums.txt and every album file
+ *   indexes  open-addressing tables from a lowercased key to a list of album or song ids;
+ *            the last is keyed by Catalog.albumKey, the album's title and artist together
+ *
+ * The image is either a mapped file or, for an off-heap store, a direct
+ * buffer. Album and Song objects are only created when a lookup returns them
+ * and are kept weakly (see ViewCache), so a record maps to the same instance
+ * for as long as anything holds it and the image stays the only long-lived
+ * copy of the catalog.
+ */
+final class CatalogSnapshot implements Catalog {
+    private static final int MAGIC = 0x4D534E50;	// "MSNP"
+    private static final int VERSION = 3;
+
+    private static final int SECTIONS = 10;
+    private static final int HEADER_SIZE = 4 * (7 + SECTIONS);
+    private static final int ALBUM_RECORD = 24;
+    private static final int SONG_RECORD = 8;
+    private static final int SOURCE_RECORD = 12;
+
+    private final ByteBuffer buf;
+    private final int albumCount;
+    private final int songCount;
+    private final int sourceCount;
+    private final int stringOffsets;
+    private final int stringData;
+    private final int albumRecords;
+    private final int songRecords;
+    private final int sourceRecords;
+    private final int albumTitleIndex;
+    private final int albumArtistIndex;
+    private final int songTitleIndex;
+    private final int songArtistIndex;
+    private final int albumKeyIndex;
+
+    private final ViewCache<Album> albumViews;
+    private final ViewCache<Song> songViews;
+
+    private CatalogSnapshot(ByteBuffer buf) {
+        this.buf = buf;
+        this.albumCount = buf.getInt(12);
+        this.songCount = buf.getInt(16);
+        this.sourceCount = buf.getInt(24);
+        this.stringOffsets = buf.getInt(28);
+        this.stringData = buf.getInt(32);
+        this.albumRecords = buf.getInt(36);
+        this.songRecords = buf.getInt(40);
+        this.sourceRecords = buf.getInt(44);
+        this.albumTitleIndex = buf.getInt(48);
+        this.albumArtistIndex = buf.getInt(52);
+        this.songTitleIndex = buf.getInt(56);
+        this.songArtistIndex = buf.getInt(60);
+        this.albumKeyIndex = buf.getInt(64);
+        this.albumViews = new ViewCache<>(albumCount);
+        this.songViews = new ViewCache<>(songCount);
+    }
+
+    /**
+     * Maps a snapshot file and checks its header and source files
+     *
+     * @return the snapshot, or null if it is missing, corrupt, was built from a
+     *         different albums.txt, or any source file has changed since it was written
+     */
+    static CatalogSnapshot open(Path snapshotPath, String albumsTxtPath) throws IOException {
+        ByteBuffer mapped;
+        try (FileChannel ch = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            mapped = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION || mapped.getInt(8) != mapped.capacity()) {
+            return null;
+        }
+
+        CatalogSnapshot snapshot = new CatalogSnapshot(mapped);
+        List<String> sources = snapshot.getSourceFiles();
+        if (sources.isEmpty() || !sources.get(0).equals(albumsTxtPath) || !snapshot.sourcesUnchanged()) {
+            return null;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Builds the image of the given albums in a direct buffer, outside the
+     * Java heap, instead of in a file
+     */
+    static CatalogSnapshot offHeap(List<Album> albums, List<String> sourceFiles) throws IOException {
+        byte[] image = encode(albums, sourceFiles, new long[sourceFiles.size()]);
+        ByteBuffer direct = ByteBuffer.allocateDirect(image.length);
+        direct.put(image);
+        return new CatalogSnapshot(direct);
+    }
+
+    /**
+     * Writes a snapshot of the given albums. The first source file must be
+     * albums.txt; the modification time of every source is recorded so a
+     * later open can tell whether the snapshot is stale
+     */
+    static void write(List<Album> albums, List<String> sourceFiles, Path snapshotPath) throws IOException {
+        long[] modified = new long[sourceFiles.size()];
+        for (int i = 0; i < modified.length; i++) {
+            modified[i] = Files.getLastModifiedTime(Paths.get(sourceFiles.get(i))).toMillis();
+        }
+        byte[] image = encode(albums, sourceFiles, modified);
+
+        Path tmp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        Files.write(tmp, image);
+        Files.move(tmp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Builds the binary image for a list of albums
+     */
+    static byte[] encode(List<Album> albums, List<String> sourceFiles, long[] modified) throws IOException {
+        StringTable strings = new StringTable();
+        ByteArrayOutputStream albumBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream songBytes = new ByteArrayOutputStream();
+        DataOutputStream albumOut = new DataOutputStream(albumBytes);
+        DataOutputStream songOut = new DataOutputStream(songBytes);
+
+        Map<String, List<Integer>> albumsByTitle = new LinkedHashMap<>();
+        Map<String, List<Integer>> albumsByArtist = new LinkedHashMap<>();
+        Map<String, List<Integer>> songsByTitle = new LinkedHashMap<>();
+        Map<String, List<Integer>> songsByArtist = new LinkedHashMap<>();
+        Map<String, List<Integer>> albumsByKey = new LinkedHashMap<>();
+
+        int songId = 0;
+        for (int albumId = 0; albumId < albums.size(); albumId++) {
+            Album album = albums.get(albumId);
+            List<Song> tracks = album.getSongs();
+            String lowerArtist = album.getArtist().toLowerCase();
+
+            albumOut.writeInt(strings.id(album.getTitle()));
+            albumOut.writeInt(strings.id(album.getArtist()));
+            albumOut.writeInt(strings.id(album.getGenre()));
+            albumOut.writeInt(album.getYear());
+            albumOut.writeInt(songId);
+            albumOut.writeInt(tracks.size());
+
+            for (Song song : tracks) {
+                songOut.writeInt(strings.id(song.getTitle()));
+                songOut.writeInt(albumId);
+                songsByTitle.computeIfAbsent(song.getTitle().toLowerCase(), _ -> new ArrayList<>()).add(songId);
+                songsByArtist.computeIfAbsent(lowerArtist, _ -> new ArrayList<>()).add(songId);
+                songId++;
+            }
+
+            albumsByTitle.computeIfAbsent(album.getTitle().toLowerCase(), _ -> new ArrayList<>()).add(albumId);
+            albumsByArtist.computeIfAbsent(lowerArtist, _ -> new ArrayList<>()).add(albumId);
+            albumsByKey.computeIfAbsent(Catalog.albumKey(album.getTitle(), album.getArtist()), _ -> new ArrayList<>())
+                    .add(albumId);
+        }
+
+        ByteArrayOutputStream sourceBytes = new ByteArrayOutputStream();
+        DataOutputStream sourceOut = new DataOutputStream(sourceBytes);
+        for (int i = 0; i < sourceFiles.size(); i++) {
+            sourceOut.writeInt(strings.id(sourceFiles.get(i)));
+            sourceOut.writeLong(modified[i]);
+        }
+
+        byte[][] indexes = {
+            encodeIndex(albumsByTitle, strings),
+            encodeIndex(albumsByArtist, strings),
+            encodeIndex(songsByTitle, strings),
+            encodeIndex(songsByArtist, strings),
+            encodeIndex(albumsByKey, strings)
+        };
+        byte[] stringOffsetBytes = strings.offsets();
+        byte[] stringDataBytes = strings.data();
+
+        // lay the sections out one after another behind the header
+        byte[][] sections = {
+            stringOffsetBytes, stringDataBytes, albumBytes.toByteArray(), songBytes.toByteArray(),
+            sourceBytes.toByteArray(), indexes[0], indexes[1], indexes[2], indexes[3], indexes[4]
+        };
+        int[] offsets = new int[SECTIONS];
+        int length = HEADER_SIZE;
+        for (int i = 0; i < SECTIONS; i++) {
+            offsets[i] = length;
+            length += sections[i].length;
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(length);
+        out.putInt(MAGIC).putInt(VERSION).putInt(length);
+        out.putInt(albums.size()).putInt(songId).putInt(strings.size()).putInt(sourceFiles.size());
+        for (int offset : offsets) {
+            out.putInt(offset);
+        }
+        for (byte[] section : sections) {
+            out.put(section);
+        }
+        return out.array();
+    }
+
+    /**
+     * Encodes one index as a power-of-two table of (key string, list offset)
+     * slots followed by the id lists. Empty slots hold key -1
+     */
+    private static byte[] encodeIndex(Map<String, List<Integer>> index, StringTable strings) throws IOException {
+        int slots = 2;
+        while (slots < index.size() * 2) {
+            slots <<= 1;
+        }
+        int mask = slots - 1;
+        int[] slotKeys = new int[slots];
+        int[] slotLists = new int[slots];
+        java.util.Arrays.fill(slotKeys, -1);
+
+        ByteArrayOutputStream listBytes = new ByteArrayOutputStream();
+        DataOutputStream listOut = new DataOutputStream(listBytes);
+        int listBase = 4 + slots * 8;
+        for (Map.Entry<String, List<Integer>> e : index.entrySet()) {
+            int i = mix(e.getKey().hashCode()) & mask;
+            while (slotKeys[i] >= 0) {
+                i = (i + 1) & mask;
+            }
+            slotKeys[i] = strings.id(e.getKey());
+            slotLists[i] = listBase + listOut.size();
+            listOut.writeInt(e.getValue().size());
+            for (int id : e.getValue()) {
+                listOut.writeInt(id);
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(slots);
+        for (int i = 0; i < slots; i++) {
+            out.writeInt(slotKeys[i]);
+            out.writeInt(slotLists[i]);
+        }
+        listBytes.writeTo(out);
+        return bytes.toByteArray();
+    }
+
+    private static int mix(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the absolute position of the id list stored under key, or -1
+     */
+    private int findList(int index, String key) {
+        int slots = buf.getInt(index);
+        int mask = slots - 1;
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int i = mix(key.hashCode()) & mask;
+        while (true) {
+            int slot = index + 4 + i * 8;
+            int keyId = buf.getInt(slot);
+            if (keyId < 0) {
+                return -1;
+            }
+            if (stringEquals(keyId, keyBytes)) {
+                return index + buf.getInt(slot + 4);
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private boolean stringEquals(int id, byte[] bytes) {
+        int start = buf.getInt(stringOffsets + id * 4);
+        int end = buf.getInt(stringOffsets + id * 4 + 4);
+        if (end - start != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (buf.get(stringData + start + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String string(int id) {
+        int start = buf.getInt(stringOffsets + id * 4);
+        int end = buf.getInt(stringOffsets + id * 4 + 4);
+        byte[] bytes = new byte[end - start];
+        buf.get(stringData + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Album album(int id) {
+        Album album = albumViews.get(id);
+        if (album == null) {
+            int rec = albumRecords + id * ALBUM_RECORD;
+            int first = buf.getInt(rec + 16);
+            int count = buf.getInt(rec + 20);
+            List<Song> tracks = new ArrayList<>(count);
+            for (int s = first; s < first + count; s++) {
+                tracks.add(song(s));
+            }
+            album = albumViews.publish(id, new Album(string(buf.getInt(rec)), string(buf.getInt(rec + 4)),
+                    string(buf.getInt(rec + 8)), buf.getInt(rec + 12), tracks));
+        }
+        return album;
+    }
+
+    private Song song(int id) {
+        Song song = songViews.get(id);
+        if (song == null) {
+            int rec = songRecords + id * SONG_RECORD;
+            int albumRec = albumRecords + buf.getInt(rec + 4) * ALBUM_RECORD;
+            song = songViews.publish(id,
+                    new Song(string(buf.getInt(rec)), string(buf.getInt(albumRec + 4)), string(buf.getInt(albumRec))));
+        }
+        return song;
+    }
+
+    private List<Album> albumList(int index, String key) {
+        int list = findList(index, key);
+        if (list < 0) {
+            return Collections.emptyList();
+        }
+        int count = buf.getInt(list);
+        List<Album> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(album(buf.getInt(list + 4 + i * 4)));
+        }
+        return result;
+    }
+
+    private List<Song> songList(int index, String key) {
+        int list = findList(index, key);
+        if (list < 0) {
+            return Collections.emptyList();
+        }
+        int count = buf.getInt(list);
+        List<Song> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(song(buf.getInt(list + 4 + i * 4)));
+        }
+        return result;
+    }
+
+    @Override
+    public Album getAlbumByTitle(String lowerTitle) {
+        // a later album with the same title replaces an earlier one, as in ColumnarCatalog
+        int list = findList(albumTitleIndex, lowerTitle);
+        return list < 0 ? null : album(buf.getInt(list + 4 * buf.getInt(list)));
+    }
+
+    @Override
+    public List<Album> getAlbumsByTitle(String lowerTitle) {
+        return albumList(albumTitleIndex, lowerTitle);
+    }
+
+    @Override
+    public Album findAlbum(String lowerTitle, String lowerArtist) {
+        int list = findList(albumKeyIndex, Catalog.albumKey(lowerTitle, lowerArtist));
+        return list < 0 ? null : album(buf.getInt(list + 4 * buf.getInt(list)));
+    }
+
+    /**
+     * Songs are numbered album by album, so the songs with a title on an album
+     * are the part of the title's list within the album's range of numbers.
+     * Nothing is decoded until a song matches
+     */
+    @Override
+    public Song findSong(String lowerTitle, String lowerArtist, String lowerAlbumTitle) {
+        int albums = findList(albumKeyIndex, Catalog.albumKey(lowerAlbumTitle, lowerArtist));
+        int songs = albums < 0 ? -1 : findList(songTitleIndex, lowerTitle);
+        if (songs < 0) {
+            return null;
+        }
+        for (int i = 0; i < buf.getInt(albums); i++) {
+            int rec = albumRecords + buf.getInt(albums + 4 + i * 4) * ALBUM_RECORD;
+            int first = buf.getInt(rec + 16);
+            int s = ceiling(songs, first);
+            if (s >= 0 && s < first + buf.getInt(rec + 20)) {
+                return song(s);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Walks the shorter of the title's and the artist's song lists, looking
+     * each number up in the other; nothing is decoded until a song matches
+     */
+    @Override
+    public Song findSong(String lowerTitle, String lowerArtist) {
+        int byTitle = findList(songTitleIndex, lowerTitle);
+        int byArtist = byTitle < 0 ? -1 : findList(songArtistIndex, lowerArtist);
+        if (byArtist < 0) {
+            return null;
+        }
+        int shorter = buf.getInt(byTitle) <= buf.getInt(byArtist) ? byTitle : byArtist;
+        int longer = shorter == byTitle ? byArtist : byTitle;
+        for (int i = 0; i < buf.getInt(shorter); i++) {
+            int s = buf.getInt(shorter + 4 + i * 4);
+            if (ceiling(longer, s) == s) {
+                return song(s);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the least id at least min in an ascending id list, or -1
+     */
+    private int ceiling(int list, int min) {
+        int lo = 0;
+        int hi = buf.getInt(list);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (buf.getInt(list + 4 + mid * 4) < min) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo < buf.getInt(list) ? buf.getInt(list + 4 + lo * 4) : -1;
+    }
+
+    @Override
+    public List<Album> getAlbumsByArtist(String lowerArtist) {
+        return albumList(albumArtistIndex, lowerArtist);
+    }
+
+    @Override
+    public List<Song> getSongsByTitle(String lowerTitle) {
+        return songList(songTitleIndex, lowerTitle);
+    }
+
+    @Override
+    public List<Song> getSongsByArtist(String lowerArtist) {
+        return songList(songArtistIndex, lowerArtist);
+    }
+
+    @Override
+    public List<Album> getAlbums() {
+        List<Album> result = new ArrayList<>(albumCount);
+        for (int i = 0; i < albumCount; i++) {
+            result.add(album(i));
+        }
+        return result;
+    }
+
+    @Override
+    public int getAlbumCount() {
+        return albumCount;
+    }
+
+    @Override
+    public Album getAlbum(int id) {
+        return album(id);
+    }
+
+    @Override
+    public Song getSong(int id) {
+        return song(id);
+    }
+
+    @Override
+    public int getSongCount() {
+        return songCount;
+    }
+
+    /**
+     * Returns the paths of albums.txt and every album file the snapshot was built from
+     */
+    List<String> getSourceFiles() {
+        List<String> sources = new ArrayList<>(sourceCount);
+        for (int i = 0; i < sourceCount; i++) {
+            sources.add(string(buf.getInt(sourceRecords + i * SOURCE_RECORD)));
+        }
+        return sources;
+    }
+
+    private boolean sourcesUnchanged() throws IOException {
+        for (int i = 0; i < sourceCount; i++) {
+            int rec = sourceRecords + i * SOURCE_RECORD;
+            Path source = Paths.get(string(buf.getInt(rec)));
+            if (!Files.exists(source) || Files.getLastModifiedTime(source).toMillis() != buf.getLong(rec + 4)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Deduplicating table of the strings stored in a snapshot
+     */
+    private static final class StringTable {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        private final List<Integer> offsets = new ArrayList<>();
+
+        int id(String s) {
+            Integer id = ids.get(s);
+            if (id == null) {
+                id = offsets.size();
+                ids.put(s, id);
+                offsets.add(data.size());
+                data.writeBytes(s.getBytes(StandardCharsets.UTF_8));
+            }
+            return id;
+        }
+
+        int size() {
+            return offsets.size();
+        }
+
+        byte[] offsets() {
+            ByteBuffer out = ByteBuffer.allocate((offsets.size() + 1) * 4);
+            for (int offset : offsets) {
+                out.putInt(offset);
+            }
+            out.putInt(data.size());
+            return out.array();
+        }
+
+        byte[] data() {
+            return data.toByteArray();
+        }
+    }
+}
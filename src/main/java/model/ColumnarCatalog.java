@@ -0,0 +1,665 @@
+package model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Catalog kept in primitive columns instead of one object per song.
+ *
+ * Albums are rows of int columns holding ids of dictionary-encoded strings,
+ * so an artist, album title or genre is stored once however many songs share
+ * it. Songs are numbered album by album in load order; a song is just its
+ * title, kept as UTF-8 bytes in one shared array, and its album number. The
+ * lookup indexes are hash tables over the lowercased keys whose buckets are
+ * runs of an int array, so no key string or list object is kept per entry.
+ * Names that are equal ignoring case share a number, so an album's title and
+ * artist together make an exact int key for findAlbum and findSong.
+ *
+ * Album and Song objects are views created when a lookup returns them and
+ * kept only weakly (see ViewCache), so a record maps to the same instance for
+ * as long as anything holds it.
+ *
+ * Albums are added while the album files are loaded; finishLoading must be
+ * called before the first lookup. After that the catalog is read-only and
+ * safe to use from several threads. While albums are still being added,
+ * loadedSoFar gives a read-only catalog of those added up to that point.
+ */
+final class ColumnarCatalog implements Catalog {
+    private final StringColumn titles;		// song titles, by song id
+    private final StringColumn names;		// album titles, artists and genres, each stored once
+    private Map<String, Integer> nameIds;	// only while loading
+
+    private int[] albumTitle;		// name ids
+    private int[] albumArtist;
+    private int[] albumGenre;
+    private int[] albumYear;
+    private int[] albumFirstSong;	// songs of album a are albumFirstSong[a] .. albumFirstSong[a + 1]
+    private int[] songAlbum;
+    private int albumCount;
+    private int songCount;
+
+    private KeyIndex albumsByTitle;
+    private KeyIndex albumsByArtist;
+    private KeyIndex songsByTitle;
+    private KeyIndex namesByKey;
+    private int[] nameKey;			// name id to its group in namesByKey
+    private int[] albumKeySlots;	// id + 1 of the first album with each (title, artist) name key pair, or 0
+    private int[] nextWithKey;		// the next album with the same title and artist, or -1
+
+    private ViewCache<Album> albumViews;
+    private ViewCache<Song> songViews;
+
+    ColumnarCatalog() {
+        this.titles = new StringColumn();
+        this.names = new StringColumn();
+        this.nameIds = new HashMap<>();
+        this.albumTitle = new int[16];
+        this.albumArtist = new int[16];
+        this.albumGenre = new int[16];
+        this.albumYear = new int[16];
+        this.albumFirstSong = new int[17];
+        this.songAlbum = new int[16];
+    }
+
+    /**
+     * A read-only catalog of the first albums of a loading one, sharing its
+     * columns. Loading only writes past the counts copied here, apart from
+     * rewriting albumFirstSong[albumCount] with the value it already holds,
+     * and grows a column by copying it, so nothing read here changes under it
+     */
+    private ColumnarCatalog(ColumnarCatalog loading) {
+        this.titles = loading.titles.prefix();
+        this.names = loading.names.prefix();
+        this.albumTitle = loading.albumTitle;
+        this.albumArtist = loading.albumArtist;
+        this.albumGenre = loading.albumGenre;
+        this.albumYear = loading.albumYear;
+        this.albumFirstSong = loading.albumFirstSong;
+        this.songAlbum = loading.songAlbum;
+        this.albumCount = loading.albumCount;
+        this.songCount = loading.songCount;
+        buildIndexes();
+    }
+
+    /**
+     * Returns a read-only catalog of the albums added so far, ready for
+     * lookups, while this one goes on loading. It costs about as much as
+     * building the indexes over those albums; the columns are not copied.
+     * It must be handed to other threads through a volatile write or a lock
+     *
+     * @pre finishLoading has not been called
+     */
+    ColumnarCatalog loadedSoFar() {
+        return new ColumnarCatalog(this);
+    }
+
+    /**
+     * Appends a loaded album and its songs
+     *
+     * @pre finishLoading has not been called
+     */
+    void addAlbum(Album album) {
+        int a = startAlbum(album.getTitle(), album.getArtist(), album.getGenre(), album.getYear());
+        for (Song song : album.getSongs()) {
+            addSong(a);
+            titles.add(song.getTitle());
+        }
+        albumFirstSong[albumCount] = songCount;
+    }
+
+    /**
+     * Appends a parsed album file, copying its track titles' bytes straight
+     * into the title column without making a string of them
+     *
+     * @pre finishLoading has not been called
+     */
+    void addAlbum(AlbumFile file) {
+        int a = startAlbum(file.getTitle(), file.getArtist(), file.getGenre(), file.getYear());
+        byte[] data = file.getData();
+        for (int t = 0; t < file.getTrackCount(); t++) {
+            addSong(a);
+            titles.add(data, file.getTrackStart(t), file.getTrackEnd(t));
+        }
+        albumFirstSong[albumCount] = songCount;
+    }
+
+    private int startAlbum(String title, String artist, String genre, int year) {
+        if (albumCount == albumTitle.length) {
+            int capacity = albumCount * 2;
+            albumTitle = Arrays.copyOf(albumTitle, capacity);
+            albumArtist = Arrays.copyOf(albumArtist, capacity);
+            albumGenre = Arrays.copyOf(albumGenre, capacity);
+            albumYear = Arrays.copyOf(albumYear, capacity);
+            albumFirstSong = Arrays.copyOf(albumFirstSong, capacity + 1);
+        }
+        int a = albumCount++;
+        albumTitle[a] = nameId(title);
+        albumArtist[a] = nameId(artist);
+        albumGenre[a] = nameId(genre);
+        albumYear[a] = year;
+        albumFirstSong[a] = songCount;
+        return a;
+    }
+
+    private void addSong(int album) {
+        if (songCount == songAlbum.length) {
+            songAlbum = Arrays.copyOf(songAlbum, songCount * 2);
+        }
+        songAlbum[songCount++] = album;
+    }
+
+    private int nameId(String name) {
+        Integer id = nameIds.get(name);
+        if (id == null) {
+            id = names.add(name);
+            nameIds.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * Trims the columns and builds the lookup indexes once every album has been added
+     */
+    void finishLoading() {
+        nameIds = null;
+        albumTitle = Arrays.copyOf(albumTitle, albumCount);
+        albumArtist = Arrays.copyOf(albumArtist, albumCount);
+        albumGenre = Arrays.copyOf(albumGenre, albumCount);
+        albumYear = Arrays.copyOf(albumYear, albumCount);
+        albumFirstSong = Arrays.copyOf(albumFirstSong, albumCount + 1);
+        songAlbum = Arrays.copyOf(songAlbum, songCount);
+        titles.trim();
+        names.trim();
+        buildIndexes();
+    }
+
+    private void buildIndexes() {
+        albumsByTitle = new KeyIndex(albumCount, names, a -> albumTitle[a]);
+        albumsByArtist = new KeyIndex(albumCount, names, a -> albumArtist[a]);
+        songsByTitle = new KeyIndex(songCount, titles, s -> s);
+        buildAlbumKeys();
+        albumViews = new ViewCache<>(albumCount);
+        songViews = new ViewCache<>(songCount);
+    }
+
+    /**
+     * Numbers the names by lowercased key and hashes every album by the pair
+     * of its title's and artist's numbers, chaining albums with equal pairs
+     * in id order
+     */
+    private void buildAlbumKeys() {
+        namesByKey = new KeyIndex(names.count, names, n -> n);
+        nameKey = new int[names.count];
+        for (int g = 0; g + 1 < namesByKey.groupStart.length; g++) {
+            for (int i = namesByKey.groupStart[g]; i < namesByKey.groupStart[g + 1]; i++) {
+                nameKey[namesByKey.ids[i]] = g;
+            }
+        }
+
+        int size = 2;
+        while (size < albumCount * 2) {
+            size <<= 1;
+        }
+        albumKeySlots = new int[size];
+        nextWithKey = new int[albumCount];
+        for (int a = albumCount - 1; a >= 0; a--) {
+            long key = albumKey(a);
+            int i = slot(key, size - 1);
+            while (albumKeySlots[i] != 0 && albumKey(albumKeySlots[i] - 1) != key) {
+                i = (i + 1) & (size - 1);
+            }
+            nextWithKey[a] = albumKeySlots[i] - 1;
+            albumKeySlots[i] = a + 1;
+        }
+    }
+
+    private long albumKey(int a) {
+        return (long) nameKey[albumTitle[a]] << 32 | nameKey[albumArtist[a]];
+    }
+
+    private static int slot(long key, int mask) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    /**
+     * Returns the first album with this title and artist, or -1
+     */
+    private int firstWithKey(String lowerTitle, String lowerArtist) {
+        int title = namesByKey.find(lowerTitle);
+        int artist = title < 0 ? -1 : namesByKey.find(lowerArtist);
+        if (artist < 0) {
+            return -1;
+        }
+        long key = (long) title << 32 | artist;
+        int mask = albumKeySlots.length - 1;
+        for (int i = slot(key, mask); albumKeySlots[i] != 0; i = (i + 1) & mask) {
+            if (albumKey(albumKeySlots[i] - 1) == key) {
+                return albumKeySlots[i] - 1;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Album findAlbum(String lowerTitle, String lowerArtist) {
+        int a = firstWithKey(lowerTitle, lowerArtist);
+        if (a < 0) {
+            return null;
+        }
+        while (nextWithKey[a] >= 0) {
+            a = nextWithKey[a];
+        }
+        return album(a);
+    }
+
+    @Override
+    public Song findSong(String lowerTitle, String lowerArtist, String lowerAlbumTitle) {
+        for (int a = firstWithKey(lowerAlbumTitle, lowerArtist); a >= 0; a = nextWithKey[a]) {
+            for (int s = albumFirstSong[a]; s < albumFirstSong[a + 1]; s++) {
+                if (titles.foldedEquals(s, lowerTitle, songsByTitle.asciiFolds)) {
+                    return song(s);
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Song findSong(String lowerTitle, String lowerArtist) {
+        int g = songsByTitle.find(lowerTitle);
+        int artist = g < 0 ? -1 : namesByKey.find(lowerArtist);
+        if (artist < 0) {
+            return null;
+        }
+        // compare artists by name key, so no song is made until one matches
+        for (int i = songsByTitle.groupStart[g]; i < songsByTitle.groupStart[g + 1]; i++) {
+            int s = songsByTitle.ids[i];
+            if (nameKey[albumArtist[songAlbum[s]]] == artist) {
+                return song(s);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Album getAlbumByTitle(String lowerTitle) {
+        int g = albumsByTitle.find(lowerTitle);
+        // a later album with the same title replaces an earlier one
+        return g < 0 ? null : album(albumsByTitle.ids[albumsByTitle.groupStart[g + 1] - 1]);
+    }
+
+    @Override
+    public List<Album> getAlbumsByTitle(String lowerTitle) {
+        int g = albumsByTitle.find(lowerTitle);
+        if (g < 0) {
+            return Collections.emptyList();
+        }
+        List<Album> result = new ArrayList<>();
+        for (int i = albumsByTitle.groupStart[g]; i < albumsByTitle.groupStart[g + 1]; i++) {
+            result.add(album(albumsByTitle.ids[i]));
+        }
+        return result;
+    }
+
+    @Override
+    public List<Album> getAlbumsByArtist(String lowerArtist) {
+        int g = albumsByArtist.find(lowerArtist);
+        if (g < 0) {
+            return Collections.emptyList();
+        }
+        List<Album> result = new ArrayList<>();
+        for (int i = albumsByArtist.groupStart[g]; i < albumsByArtist.groupStart[g + 1]; i++) {
+            result.add(album(albumsByArtist.ids[i]));
+        }
+        return result;
+    }
+
+    @Override
+    public List<Song> getSongsByTitle(String lowerTitle) {
+        int g = songsByTitle.find(lowerTitle);
+        if (g < 0) {
+            return Collections.emptyList();
+        }
+        List<Song> result = new ArrayList<>();
+        for (int i = songsByTitle.groupStart[g]; i < songsByTitle.groupStart[g + 1]; i++) {
+            result.add(song(songsByTitle.ids[i]));
+        }
+        return result;
+    }
+
+    @Override
+    public List<Song> getSongsByArtist(String lowerArtist) {
+        int g = albumsByArtist.find(lowerArtist);
+        if (g < 0) {
+            return Collections.emptyList();
+        }
+        // songs are numbered album by album, so the artist's albums in order give their songs in order
+        List<Song> result = new ArrayList<>();
+        for (int i = albumsByArtist.groupStart[g]; i < albumsByArtist.groupStart[g + 1]; i++) {
+            int a = albumsByArtist.ids[i];
+            for (int s = albumFirstSong[a]; s < albumFirstSong[a + 1]; s++) {
+                result.add(song(s));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Album> getAlbums() {
+        List<Album> result = new ArrayList<>(albumCount);
+        for (int a = 0; a < albumCount; a++) {
+            result.add(album(a));
+        }
+        return result;
+    }
+
+    @Override
+    public int getAlbumCount() {
+        return albumCount;
+    }
+
+    @Override
+    public Album getAlbum(int id) {
+        return album(id);
+    }
+
+    @Override
+    public Song getSong(int id) {
+        return song(id);
+    }
+
+    @Override
+    public int getSongCount() {
+        return songCount;
+    }
+
+    private Album album(int a) {
+        Album album = albumViews.get(a);
+        if (album == null) {
+            String title = names.get(albumTitle[a]);
+            String artist = names.get(albumArtist[a]);
+            List<Song> tracks = new ArrayList<>(albumFirstSong[a + 1] - albumFirstSong[a]);
+            for (int s = albumFirstSong[a]; s < albumFirstSong[a + 1]; s++) {
+                Song song = songViews.get(s);
+                tracks.add(song != null ? song : songViews.publish(s, new Song(titles.get(s), artist, title)));
+            }
+            album = albumViews.publish(a, new Album(title, artist, names.get(albumGenre[a]), albumYear[a], tracks));
+        }
+        return album;
+    }
+
+    private Song song(int s) {
+        Song song = songViews.get(s);
+        if (song == null) {
+            int a = songAlbum[s];
+            song = songViews.publish(s, new Song(titles.get(s), names.get(albumArtist[a]), names.get(albumTitle[a])));
+        }
+        return song;
+    }
+
+    /**
+     * Strings stored back to back as UTF-8 in one byte array, numbered in the
+     * order they were added
+     */
+    private static final class StringColumn {
+        private byte[] data;
+        private int length;
+        private int[] offsets;		// string i is data[offsets[i] .. offsets[i + 1])
+        private int count;
+
+        private StringColumn() {
+            this(new byte[256], 0, new int[17], 0);
+        }
+
+        private StringColumn(byte[] data, int length, int[] offsets, int count) {
+            this.data = data;
+            this.length = length;
+            this.offsets = offsets;
+            this.count = count;
+        }
+
+        /**
+         * Returns a column of the strings added so far that shares this one's
+         * arrays; adding to this column does not change it
+         */
+        private StringColumn prefix() {
+            return new StringColumn(data, length, offsets, count);
+        }
+
+        private int add(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            return add(bytes, 0, bytes.length);
+        }
+
+        private int add(byte[] bytes, int start, int end) {
+            int n = end - start;
+            if (length + n > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + n));
+            }
+            System.arraycopy(bytes, start, data, length, n);
+            length += n;
+            if (count + 1 == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[++count] = length;
+            return count - 1;
+        }
+
+        private String get(int id) {
+            return new String(data, offsets[id], offsets[id + 1] - offsets[id], StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Returns get(id).toLowerCase(), or null instead if asciiFolds and the
+         * string is ASCII, when foldedHash and foldedEquals need no string
+         */
+        private String folded(int id, boolean asciiFolds) {
+            if (asciiFolds && isAscii(id)) {
+                return null;
+            }
+            return get(id).toLowerCase();
+        }
+
+        /**
+         * Returns get(id).toLowerCase().hashCode(), computed on the bytes if
+         * asciiFolds and the string is ASCII
+         */
+        private int foldedHash(int id, boolean asciiFolds) {
+            if (!asciiFolds || !isAscii(id)) {
+                return get(id).toLowerCase().hashCode();
+            }
+            int h = 0;
+            for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+                h = 31 * h + lower(data[i]);
+            }
+            return h;
+        }
+
+        /**
+         * Whether get(id).toLowerCase() equals lowerKey, compared on the bytes
+         * if asciiFolds and the string is ASCII
+         */
+        private boolean foldedEquals(int id, String lowerKey, boolean asciiFolds) {
+            if (!asciiFolds || !isAscii(id)) {
+                return get(id).toLowerCase().equals(lowerKey);
+            }
+            int start = offsets[id];
+            int n = offsets[id + 1] - start;
+            if (n != lowerKey.length()) {
+                return false;
+            }
+            for (int i = 0; i < n; i++) {
+                if (lower(data[start + i]) != lowerKey.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Whether strings a and b are equal once lowercased, for an ASCII
+         * string a in a locale where asciiFolds
+         */
+        private boolean foldedEquals(int a, int b) {
+            if (!isAscii(b)) {
+                return get(a).toLowerCase().equals(get(b).toLowerCase());
+            }
+            int n = offsets[a + 1] - offsets[a];
+            if (n != offsets[b + 1] - offsets[b]) {
+                return false;
+            }
+            for (int i = 0; i < n; i++) {
+                if (lower(data[offsets[a] + i]) != lower(data[offsets[b] + i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isAscii(int id) {
+            for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+                if (data[i] < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int lower(byte b) {
+            return b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+        }
+
+        private void trim() {
+            data = Arrays.copyOf(data, length);
+            offsets = Arrays.copyOf(offsets, count + 1);
+        }
+    }
+
+    /**
+     * Hash table from a lowercased key to the ascending ids of the records
+     * that have it. Records are grouped by key in one int array; the table
+     * holds group numbers and the groups' key hashes, and a probe confirms a
+     * match by comparing the key of the group's first record.
+     *
+     * A record's key is a string of a StringColumn, lowercased. ASCII keys are
+     * hashed and compared on their bytes, so building and probing the index
+     * makes no strings for them, except in locales whose lowercase of ASCII
+     * letters is not ASCII
+     */
+    private static final class KeyIndex {
+        private static final Set<String> NON_ASCII_FOLDING = Set.of("tr", "az", "lt");
+
+        private final StringColumn column;
+        private final IntUnaryOperator stringId;	// record id to its key's string id in column
+        private final boolean asciiFolds;
+        private final int[] ids;			// record ids grouped by key
+        private final int[] groupStart;		// group g is ids[groupStart[g] .. groupStart[g + 1])
+        private final int[] groupHash;
+        private final int[] slots;			// group number + 1, or 0 for an empty slot
+
+        private KeyIndex(int records, StringColumn column, IntUnaryOperator stringId) {
+            this.column = column;
+            this.stringId = stringId;
+            this.asciiFolds = !NON_ASCII_FOLDING.contains(Locale.getDefault().getLanguage());
+            // sort (hash, id) pairs so each key's records form a run in id order
+            long[] sorted = new long[records];
+            for (int r = 0; r < records; r++) {
+                sorted[r] = ((long) column.foldedHash(stringId.applyAsInt(r), asciiFolds) << 32) | r;
+            }
+            Arrays.parallelSort(sorted);
+
+            this.ids = new int[records];
+            int[] starts = new int[records + 1];
+            int[] hashes = new int[records];
+            int groups = 0;
+            int filled = 0;
+            for (int i = 0; i < records; ) {
+                int hash = (int) (sorted[i] >> 32);
+                int end = i;
+                while (end < records && (int) (sorted[end] >> 32) == hash) {
+                    end++;
+                }
+                if (end - i == 1) {
+                    starts[groups] = filled;
+                    hashes[groups++] = hash;
+                    ids[filled++] = (int) sorted[i];
+                } else {
+                    // several records share a hash: usually one key, but split any collisions
+                    boolean[] placed = new boolean[end - i];
+                    for (int j = 0; j < placed.length; j++) {
+                        if (placed[j]) {
+                            continue;
+                        }
+                        starts[groups] = filled;
+                        hashes[groups++] = hash;
+                        int first = (int) sorted[i + j];
+                        String firstKey = column.folded(stringId.applyAsInt(first), asciiFolds);
+                        for (int k = j; k < placed.length; k++) {
+                            if (!placed[k] && sameKey((int) sorted[i + k], first, firstKey)) {
+                                placed[k] = true;
+                                ids[filled++] = (int) sorted[i + k];
+                            }
+                        }
+                    }
+                }
+                i = end;
+            }
+            starts[groups] = filled;
+            this.groupStart = Arrays.copyOf(starts, groups + 1);
+            this.groupHash = Arrays.copyOf(hashes, groups);
+
+            int size = 2;
+            while (size < groups * 2) {
+                size <<= 1;
+            }
+            this.slots = new int[size];
+            for (int g = 0; g < groups; g++) {
+                int i = mix(groupHash[g]) & (size - 1);
+                while (slots[i] != 0) {
+                    i = (i + 1) & (size - 1);
+                }
+                slots[i] = g + 1;
+            }
+        }
+
+        /**
+         * Returns the group of records with the given key, or -1
+         */
+        private int find(String lowerKey) {
+            int hash = lowerKey.hashCode();
+            int mask = slots.length - 1;
+            for (int i = mix(hash) & mask; slots[i] != 0; i = (i + 1) & mask) {
+                int g = slots[i] - 1;
+                if (groupHash[g] == hash && column.foldedEquals(stringId.applyAsInt(ids[groupStart[g]]), lowerKey, asciiFolds)) {
+                    return g;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Whether record r has the same key as record first, whose folded
+         * key is firstKey, or null if it is ASCII
+         */
+        private boolean sameKey(int r, int first, String firstKey) {
+            int id = stringId.applyAsInt(r);
+            if (firstKey != null) {
+                return column.foldedEquals(id, firstKey, asciiFolds);
+            }
+            int firstId = stringId.applyAsInt(first);
+            return id == firstId || column.foldedEquals(firstId, id);
+        }
+
+        private static int mix(int h) {
+            return h ^ (h >>> 16);
+        }
+    }
+}
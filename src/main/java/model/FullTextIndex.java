@@ -0,0 +1,423 @@
+package model;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+/**
+ * Inverted index over the words of each song's title, artist, album title and
+ * genre. Words are lowercased with accents and punctuation removed, so
+ * "Beyoncé" is found by "beyonce" and "Don't" by "dont".
+ *
+ * Each song gets an ascending number as it is added, and each word keeps the
+ * numbers of its songs as a posting list of variable-length deltas in a byte
+ * array, a byte or two per song instead of a boxed entry. Every BLOCK entries
+ * the list records the song number and byte offset, so intersecting a short
+ * list with a long one skips whole blocks of the long list instead of decoding
+ * them.
+ *
+ * Removing a song only marks its number; the lists are rewritten without the
+ * removed numbers once they make up half the index.
+ *
+ * Searches may run on any number of threads while one thread at a time adds
+ * and removes songs. Posting lists only grow, and publish their length after
+ * their bytes; a rewrite builds a whole new generation of lists and swaps it
+ * in, so a search that started on the old one finishes on it.
+ */
+final class FullTextIndex {
+    static final String OR = "OR";	// query word separating alternatives
+    private static final int BLOCK = 64;			// postings per skip entry
+    private static final int MIN_PURGE = 256;		// removed songs before lists are rewritten
+    private static final int END = Integer.MAX_VALUE;
+
+    private volatile Generation current;
+    private final Map<Song, Integer> ids;	// null for an index built once, which never removes
+    private final IntFunction<Song> catalog;	// null for an index songs are added to
+    private int size;			// song numbers handed out
+    private int removedCount;
+
+    /**
+     * An empty index that songs can be added to and removed from
+     */
+    FullTextIndex() {
+        this.current = new Generation(new Song[16]);
+        this.ids = new HashMap<>();
+        this.catalog = null;
+    }
+
+    /**
+     * An index over the songs of a catalog, numbered as the catalog numbers
+     * them, which addAlbum fills in. It keeps only the numbers, fetching a
+     * song from the catalog when a search returns it, so it cannot remove
+     * songs
+     */
+    FullTextIndex(IntFunction<Song> catalog) {
+        this.current = new Generation(null);
+        this.ids = null;
+        this.catalog = catalog;
+    }
+
+    /**
+     * Indexes the songs of the catalog's next album
+     *
+     * @pre albums are added in catalog order && this index was created over a catalog
+     */
+    void addAlbum(Album album) {
+        for (Song s : album.getSongs()) {
+            append(s, album.getGenre());
+        }
+    }
+
+    /**
+     * Adds a song unless it is already indexed
+     *
+     * @pre song != null && genre != null && this index was created empty
+     */
+    void add(Song song, String genre) {
+        if (!ids.containsKey(song)) {
+            ids.put(song, size);
+            append(song, genre);
+        }
+    }
+
+    /**
+     * Removes a song if it is indexed
+     *
+     * @pre this index was created empty
+     */
+    void remove(Song song) {
+        Integer id = ids.remove(song);
+        if (id == null) {
+            return;
+        }
+        current.songs[id] = null;
+        if (++removedCount >= MIN_PURGE && removedCount * 2 >= size) {
+            purge();
+        }
+    }
+
+    /**
+     * Returns the number of songs indexed
+     */
+    int size() {
+        return size - removedCount;
+    }
+
+    /**
+     * Returns up to limit songs matching a query, in the order they were
+     * added. Words in a query must all match; the word OR separates
+     * alternatives, so "rock love OR jazz" finds songs with both "rock" and
+     * "love" and songs with "jazz"
+     *
+     * @pre query != null && limit >= 0
+     */
+    List<Song> search(String query, int limit) {
+        Generation g = current;
+        List<Conjunction> groups = new ArrayList<>();
+        List<String> words = new ArrayList<>();
+        for (String raw : query.trim().split("\\s+")) {
+            if (raw.equals(OR)) {
+                addGroup(g, groups, words);
+                words.clear();
+            } else {
+                words.addAll(tokenize(raw));
+            }
+        }
+        addGroup(g, groups, words);
+
+        // merge the alternatives' ascending song numbers, dropping repeats
+        List<Song> result = new ArrayList<>();
+        int[] heads = new int[groups.size()];
+        for (int i = 0; i < heads.length; i++) {
+            heads[i] = groups.get(i).next();
+        }
+        while (result.size() < limit) {
+            int min = END;
+            for (int head : heads) {
+                min = Math.min(min, head);
+            }
+            if (min == END) {
+                break;
+            }
+            Song found = g.song(min, catalog);
+            if (found != null) {	// null if removed since the lists were read
+                result.add(found);
+            }
+            for (int i = 0; i < heads.length; i++) {
+                if (heads[i] == min) {
+                    heads[i] = groups.get(i).next();
+                }
+            }
+        }
+        return result;
+    }
+
+    private void addGroup(Generation g, List<Conjunction> groups, List<String> words) {
+        if (words.isEmpty()) {
+            return;
+        }
+        Postings[] lists = new Postings[words.size()];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = g.postings.get(words.get(i));
+            if (lists[i] == null) {
+                return;		// a word no song has
+            }
+        }
+        groups.add(new Conjunction(g, lists));
+    }
+
+    private void append(Song song, String genre) {
+        Generation g = current;
+        int id = size++;
+        if (g.songs != null) {
+            if (id == g.songs.length) {
+                g.songs = Arrays.copyOf(g.songs, id * 2);
+            }
+            g.songs[id] = song;		// before the posting lists publish id
+        }
+        List<String> words = tokenize(song.getTitle());
+        addNew(words, tokenize(song.getArtist()));
+        addNew(words, tokenize(song.getAlbumTitle()));
+        addNew(words, tokenize(genre));
+        for (String w : words) {
+            g.postings.computeIfAbsent(w, k -> new Postings()).append(id);
+        }
+    }
+
+    private static void addNew(List<String> words, List<String> more) {
+        for (String w : more) {
+            if (!words.contains(w)) {
+                words.add(w);
+            }
+        }
+    }
+
+    /**
+     * Renumbers the remaining songs from 0 and rewrites every posting list
+     * without the removed ones, keeping the songs in the same order, as a new
+     * generation that replaces the current one
+     */
+    private void purge() {
+        Generation old = current;
+        Generation next = new Generation(new Song[old.songs.length]);
+        int[] renumbered = new int[size];
+        int live = 0;
+        for (int id = 0; id < size; id++) {
+            if (old.songs[id] != null) {
+                renumbered[id] = live;
+                next.songs[live] = old.songs[id];
+                ids.put(next.songs[live], live);
+                live++;
+            }
+        }
+
+        for (Map.Entry<String, Postings> e : old.postings.entrySet()) {
+            Postings list = new Postings();
+            Cursor c = new Cursor(e.getValue());
+            for (int id = c.next(); id != END; id = c.next()) {
+                if (old.songs[id] != null) {
+                    list.append(renumbered[id]);
+                }
+            }
+            if (list.count > 0) {
+                next.postings.put(e.getKey(), list);
+            }
+        }
+        current = next;
+        removedCount = 0;
+        size = live;
+    }
+
+    /**
+     * Splits text into index words: lowercased, accents removed, and split
+     * at anything but a letter or digit. Apostrophes are dropped rather than
+     * split at, so contractions stay one word
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFD).toLowerCase(Locale.ROOT);
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+            } else if (c == '\'' || c == '\u2019' || Character.getType(c) == Character.NON_SPACING_MARK) {
+                // part of the word, but not indexed
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        if (word.length() > 0) {
+            words.add(word.toString());
+        }
+        return words;
+    }
+
+    /**
+     * The posting lists, and for an index songs are added to the songs by
+     * number. A song's slot is cleared when it is removed
+     */
+    private static final class Generation {
+        private final Map<String, Postings> postings;
+        private volatile Song[] songs;		// null for an index built once
+
+        private Generation(Song[] songs) {
+            this.postings = new ConcurrentHashMap<>();
+            this.songs = songs;
+        }
+
+        private Song song(int id, IntFunction<Song> catalog) {
+            return songs == null ? catalog.apply(id) : songs[id];
+        }
+
+        private boolean isLive(int id) {
+            return songs == null || songs[id] != null;
+        }
+    }
+
+    /**
+     * Ascending song numbers, each stored as its gap from the previous one
+     * minus one in 7-bit groups, low group first
+     */
+    private static final class Postings {
+        private byte[] data = new byte[4];
+        private int length;				// bytes used
+        private volatile int count;		// written last, so a reader that sees it sees the bytes
+        private int last = -1;
+        private int[] blockFirst = new int[1];	// first song number of each block
+        private int[] blockOffset = new int[1];	// offset just past that number's bytes
+
+        /**
+         * @pre id > every number already appended
+         */
+        private void append(int id) {
+            if (length + 5 > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+            }
+            int gap = id - last - 1;
+            while ((gap & ~0x7F) != 0) {
+                data[length++] = (byte) ((gap & 0x7F) | 0x80);
+                gap >>>= 7;
+            }
+            data[length++] = (byte) gap;
+            if (count % BLOCK == 0) {
+                int block = count / BLOCK;
+                if (block == blockFirst.length) {
+                    blockFirst = Arrays.copyOf(blockFirst, block * 2);
+                    blockOffset = Arrays.copyOf(blockOffset, block * 2);
+                }
+                blockFirst[block] = id;
+                blockOffset[block] = length;
+            }
+            count++;
+            last = id;
+        }
+    }
+
+    /**
+     * Reads a posting list forward, either one number at a time or jumping
+     * ahead to the first number at or after a target
+     */
+    private static final class Cursor {
+        private final Postings list;
+        private int index = -1;		// position of doc in the list
+        private int offset;
+        private int doc = -1;
+
+        private Cursor(Postings list) {
+            this.list = list;
+        }
+
+        private int next() {
+            if (++index >= list.count) {
+                index = list.count;
+                return doc = END;
+            }
+            int gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = list.data[offset++];
+                gap |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return doc += gap + 1;
+        }
+
+        private int advance(int target) {
+            if (doc >= target) {
+                return doc;
+            }
+            // jump to the last block starting at or before target, if it is ahead
+            int blocks = (list.count + BLOCK - 1) / BLOCK;
+            int current = index < 0 ? -1 : index / BLOCK;
+            int block = current;
+            while (block + 1 < blocks && list.blockFirst[block + 1] <= target) {
+                block++;
+            }
+            if (block > current) {
+                index = block * BLOCK;
+                offset = list.blockOffset[block];
+                doc = list.blockFirst[block];
+            }
+            while (doc < target) {
+                next();
+            }
+            return doc;
+        }
+    }
+
+    /**
+     * The song numbers on every one of several posting lists, found by
+     * walking the shortest list and advancing the others to each of its numbers
+     */
+    private static final class Conjunction {
+        private final Cursor[] cursors;
+
+        private final Generation generation;
+
+        private Conjunction(Generation generation, Postings[] lists) {
+            this.generation = generation;
+            Postings[] sorted = lists.clone();
+            Arrays.sort(sorted, (a, b) -> Integer.compare(a.count, b.count));
+            cursors = new Cursor[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                cursors[i] = new Cursor(sorted[i]);
+            }
+        }
+
+        /**
+         * Returns the next song number on every list that has not been removed, or END
+         */
+        private int next() {
+            int candidate = cursors[0].next();
+            while (candidate != END) {
+                int i = 1;
+                while (i < cursors.length) {
+                    int at = cursors[i].advance(candidate);
+                    if (at != candidate) {
+                        break;
+                    }
+                    i++;
+                }
+                if (i == cursors.length) {
+                    if (generation.isLive(candidate)) {
+                        return candidate;
+                    }
+                    candidate = cursors[0].next();
+                } else {
+                    // a longer list skipped past candidate; catch the shortest up to it
+                    candidate = cursors[0].advance(cursors[i].doc);
+                }
+            }
+            return END;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Catalog made of a base catalog, some of whose albums are hidden, and a
+ * small overlay catalog of albums added or changed since the base was
+ * loaded. This is how a hot reload publishes a change without rebuilding the
+ * whole catalog: the new generation shares the base with the old one and
+ * only its overlay, which holds the changed albums, is built afresh.
+ *
+ * The overlay's albums come after the base's in load order, so an overlay
+ * album replaces a base album with the same title in getAlbumByTitle. A base
+ * album is hidden by its title and artist, ignoring case, so its songs
+ * disappear from every lookup along with it.
+ *
+ * Numbering albums and songs for getAlbum and getSong means walking the
+ * whole base, so it is done on the first such call rather than when the
+ * catalog is built; lookups by key never need it. Immutable once built.
+ */
+final class LayeredCatalog implements Catalog {
+    private final Catalog base;
+    private final BitSet hiddenIds;			// base album ids
+    private final Set<String> hiddenKeys;	// Catalog.albumKey of each hidden base album
+    private final int hiddenSongs;
+    private final Catalog overlay;
+    private volatile Numbering numbering;	// built on the first getAlbum or getSong
+
+    /**
+     * @param hiddenSongs how many songs the hidden base albums have
+     * @pre none of the arguments are changed after this call
+     */
+    LayeredCatalog(Catalog base, BitSet hiddenIds, Set<String> hiddenKeys, int hiddenSongs, Catalog overlay) {
+        this.base = base;
+        this.hiddenIds = hiddenIds;
+        this.hiddenKeys = hiddenKeys;
+        this.hiddenSongs = hiddenSongs;
+        this.overlay = overlay;
+    }
+
+    private boolean hidden(Album album) {
+        return !hiddenKeys.isEmpty() && hiddenKeys.contains(Catalog.albumKey(album.getTitle(), album.getArtist()));
+    }
+
+    private boolean hidden(Song song) {
+        return !hiddenKeys.isEmpty() && hiddenKeys.contains(Catalog.albumKey(song.getAlbumTitle(), song.getArtist()));
+    }
+
+    @Override
+    public Album getAlbumByTitle(String lowerTitle) {
+        Album album = overlay.getAlbumByTitle(lowerTitle);
+        if (album != null) {
+            return album;
+        }
+        album = base.getAlbumByTitle(lowerTitle);
+        if (album == null || !hidden(album)) {
+            return album;
+        }
+        // the latest base album with this title is hidden; an earlier one may not be
+        List<Album> visible = visibleBaseAlbums(lowerTitle);
+        return visible.isEmpty() ? null : visible.get(visible.size() - 1);
+    }
+
+    @Override
+    public List<Album> getAlbumsByTitle(String lowerTitle) {
+        List<Album> result = visibleBaseAlbums(lowerTitle);
+        result.addAll(overlay.getAlbumsByTitle(lowerTitle));
+        return result;
+    }
+
+    private List<Album> visibleBaseAlbums(String lowerTitle) {
+        List<Album> result = new ArrayList<>(base.getAlbumsByTitle(lowerTitle));
+        result.removeIf(this::hidden);
+        return result;
+    }
+
+    @Override
+    public Album findAlbum(String lowerTitle, String lowerArtist) {
+        Album album = overlay.findAlbum(lowerTitle, lowerArtist);
+        if (album != null) {
+            return album;
+        }
+        // hiding goes by title and artist, so a hidden key hides every base album with it
+        album = base.findAlbum(lowerTitle, lowerArtist);
+        return album == null || hidden(album) ? null : album;
+    }
+
+    @Override
+    public Song findSong(String lowerTitle, String lowerArtist, String lowerAlbumTitle) {
+        Song song = base.findSong(lowerTitle, lowerArtist, lowerAlbumTitle);
+        if (song != null && !hidden(song)) {
+            return song;
+        }
+        return overlay.findSong(lowerTitle, lowerArtist, lowerAlbumTitle);
+    }
+
+    @Override
+    public Song findSong(String lowerTitle, String lowerArtist) {
+        Song song = base.findSong(lowerTitle, lowerArtist);
+        if (song != null && hidden(song)) {
+            // a later base song may be on an album that is not hidden; only a reload gets here
+            song = null;
+            for (Song candidate : base.getSongsByTitle(lowerTitle)) {
+                if (candidate.getArtist().toLowerCase().equals(lowerArtist) && !hidden(candidate)) {
+                    song = candidate;
+                    break;
+                }
+            }
+        }
+        return song != null ? song : overlay.findSong(lowerTitle, lowerArtist);
+    }
+
+    @Override
+    public List<Album> getAlbumsByArtist(String lowerArtist) {
+        List<Album> result = new ArrayList<>(base.getAlbumsByArtist(lowerArtist));
+        result.removeIf(this::hidden);
+        result.addAll(overlay.getAlbumsByArtist(lowerArtist));
+        return result;
+    }
+
+    @Override
+    public List<Song> getSongsByTitle(String lowerTitle) {
+        List<Song> result = new ArrayList<>(base.getSongsByTitle(lowerTitle));
+        result.removeIf(this::hidden);
+        result.addAll(overlay.getSongsByTitle(lowerTitle));
+        return result;
+    }
+
+    @Override
+    public List<Song> getSongsByArtist(String lowerArtist) {
+        List<Song> result = new ArrayList<>(base.getSongsByArtist(lowerArtist));
+        result.removeIf(this::hidden);
+        result.addAll(overlay.getSongsByArtist(lowerArtist));
+        return result;
+    }
+
+    @Override
+    public List<Album> getAlbums() {
+        List<Album> result = new ArrayList<>(getAlbumCount());
+        for (int a = 0; a < base.getAlbumCount(); a++) {
+            if (!hiddenIds.get(a)) {
+                result.add(base.getAlbum(a));
+            }
+        }
+        result.addAll(overlay.getAlbums());
+        return result;
+    }
+
+    @Override
+    public int getAlbumCount() {
+        return base.getAlbumCount() - hiddenIds.cardinality() + overlay.getAlbumCount();
+    }
+
+    @Override
+    public Album getAlbum(int id) {
+        Numbering n = numbering();
+        int a = n.albums[id];
+        return a >= 0 ? base.getAlbum(a) : overlay.getAlbum(-1 - a);
+    }
+
+    @Override
+    public Song getSong(int id) {
+        Numbering n = numbering();
+        int album = Arrays.binarySearch(n.firstSong, 0, n.albums.length, id);
+        if (album < 0) {
+            album = -album - 2;		// the last album starting before id
+        } else {
+            while (n.firstSong[album + 1] == id) {
+                album++;			// skip albums without songs
+            }
+        }
+        return getAlbum(album).getSongs().get(id - n.firstSong[album]);
+    }
+
+    @Override
+    public int getSongCount() {
+        return base.getSongCount() - hiddenSongs + overlay.getSongCount();
+    }
+
+    private Numbering numbering() {
+        Numbering n = numbering;
+        if (n == null) {
+            n = new Numbering(this);
+            numbering = n;		// racing threads build equal numberings
+        }
+        return n;
+    }
+
+    /**
+     * The visible albums in load order, as base ids or -1 - overlay id, and
+     * the number of the first song of each
+     */
+    private static final class Numbering {
+        private final int[] albums;
+        private final int[] firstSong;		// firstSong[albums.length] is the song count
+
+        private Numbering(LayeredCatalog catalog) {
+            int count = catalog.getAlbumCount();
+            albums = new int[count];
+            firstSong = new int[count + 1];
+            int i = 0;
+            int songs = 0;
+            for (int a = 0; a < catalog.base.getAlbumCount(); a++) {
+                if (!catalog.hiddenIds.get(a)) {
+                    albums[i] = a;
+                    firstSong[i++] = songs;
+                    songs += catalog.base.getAlbum(a).getSongs().size();
+                }
+            }
+            for (int a = 0; a < catalog.overlay.getAlbumCount(); a++) {
+                albums[i] = -1 - a;
+                firstSong[i++] = songs;
+                songs += catalog.overlay.getAlbum(a).getSongs().size();
+            }
+            firstSong[i] = songs;
+        }
+    }
+}
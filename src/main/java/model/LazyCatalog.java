@@ -0,0 +1,360 @@
+package model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Catalog that keeps only a directory of albums.txt in memory and parses an
+ * album file when one of its albums is first asked for.
+ *
+ * The directory is a ColumnarCatalog of the listed titles and artists with
+ * no songs, which answers album lookups by title or artist and names the
+ * file to parse. Parsed albums are kept in a bounded AlbumCache, so memory
+ * follows the albums in use rather than the size of the catalog. Albums are
+ * found by the title and artist albums.txt gives them, which the album
+ * files' headers repeat.
+ *
+ * Looking songs up by title, and numbering albums and songs, needs to know
+ * what every file holds. The first such call reads every album file once
+ * and keeps only a census: the hash of each song title's lowercase with its
+ * album, and where each album's songs start. Song lookups then parse just
+ * the albums whose songs have the hash.
+ *
+ * An album file that cannot be read or parsed is left out of every lookup
+ * and reported by getUnreadableFiles. The album files must not change while
+ * the catalog is in use, since an album evicted from the cache is parsed
+ * again. Safe to use from several threads.
+ */
+final class LazyCatalog implements Catalog {
+    private final String albumsDirectoryPath;
+    private final ColumnarCatalog directory;	// one album per albums.txt line, without songs
+    private final AlbumCache cache;
+    private final Set<String> unreadable = ConcurrentHashMap.newKeySet();
+    private final List<String> unreadableInOrder = new CopyOnWriteArrayList<>();
+    private volatile Census census;				// built on the first call that needs it
+
+    /**
+     * Reads albums.txt into the directory; no album file is read
+     *
+     * @pre albumsTxtPath != null && albumsDirectoryPath != null && cacheCapacity >= 1
+     * @throws IOException if albums.txt is missing or unreadable
+     */
+    LazyCatalog(String albumsTxtPath, String albumsDirectoryPath, int cacheCapacity) throws IOException {
+        this.albumsDirectoryPath = albumsDirectoryPath;
+        this.cache = new AlbumCache(cacheCapacity);
+        this.directory = new ColumnarCatalog();
+        AlbumFile.readAlbumList(albumsTxtPath,
+                (title, artist) -> directory.addAlbum(new Album(title, artist, "", 0, List.of())));
+        directory.finishLoading();
+    }
+
+    AlbumCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Returns how many albums albums.txt lists
+     */
+    int getListedCount() {
+        return directory.getAlbumCount();
+    }
+
+    /**
+     * Returns the album files found to be unreadable so far, in the order
+     * they were found. Once the census is built this is all of them
+     */
+    List<String> getUnreadableFiles() {
+        return List.copyOf(unreadableInOrder);
+    }
+
+    /**
+     * Returns the album files of the readable albums in albums.txt order
+     */
+    List<String> getAlbumFiles() {
+        Census c = census();
+        List<String> files = new ArrayList<>(c.albums.length);
+        for (int listed : c.albums) {
+            files.add(file(directory.getAlbum(listed)));
+        }
+        return files;
+    }
+
+    /**
+     * Builds the census now rather than on the first call that needs it
+     */
+    void prepareCensus() {
+        census();
+    }
+
+    private String file(Album listed) {
+        return AlbumFile.path(albumsDirectoryPath, listed.getTitle(), listed.getArtist());
+    }
+
+    /**
+     * Returns the album of a directory entry from the cache, parsing its file
+     * on a miss, or null if the file is unreadable
+     */
+    private Album album(Album listed) {
+        String file = file(listed);
+        Album album = cache.get(file);
+        if (album != null) {
+            return album;
+        }
+        AlbumFile parsed = read(file);
+        return parsed == null ? null : cache.put(file, parsed.toAlbum());
+    }
+
+    private AlbumFile read(String file) {
+        if (unreadable.contains(file)) {
+            return null;
+        }
+        try {
+            return AlbumFile.read(file);
+        } catch (IOException | RuntimeException e) {
+            if (unreadable.add(file)) {
+                unreadableInOrder.add(file);
+            }
+            return null;
+        }
+    }
+
+    @Override
+    public Album getAlbumByTitle(String lowerTitle) {
+        Album listed = directory.getAlbumByTitle(lowerTitle);
+        return listed == null ? null : album(listed);
+    }
+
+    @Override
+    public List<Album> getAlbumsByTitle(String lowerTitle) {
+        return parsed(directory.getAlbumsByTitle(lowerTitle));
+    }
+
+    @Override
+    public Album findAlbum(String lowerTitle, String lowerArtist) {
+        Album listed = directory.findAlbum(lowerTitle, lowerArtist);
+        return listed == null ? null : album(listed);
+    }
+
+    @Override
+    public Song findSong(String lowerTitle, String lowerArtist, String lowerAlbumTitle) {
+        Album album = findAlbum(lowerAlbumTitle, lowerArtist);
+        if (album != null) {
+            for (Song song : album.getSongs()) {
+                if (song.getTitle().toLowerCase().equals(lowerTitle)) {
+                    return song;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Song findSong(String lowerTitle, String lowerArtist) {
+        Census c = census();
+        long hash = lowerTitle.hashCode();
+        int i = Arrays.binarySearch(c.songKeys, hash << 32);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        int lastAlbum = -1;
+        // albums with a song of this title hash, in order; only those by the artist are parsed
+        for (; i < c.songKeys.length && (int) (c.songKeys[i] >> 32) == (int) hash; i++) {
+            int a = (int) c.songKeys[i];
+            if (a == lastAlbum) {
+                continue;
+            }
+            lastAlbum = a;
+            Album listed = directory.getAlbum(c.albums[a]);
+            Album album = listed.getArtist().toLowerCase().equals(lowerArtist) ? album(listed) : null;
+            if (album != null) {
+                for (Song song : album.getSongs()) {
+                    if (song.getTitle().toLowerCase().equals(lowerTitle)) {
+                        return song;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<Album> getAlbumsByArtist(String lowerArtist) {
+        return parsed(directory.getAlbumsByArtist(lowerArtist));
+    }
+
+    /**
+     * Returns the readable albums of some directory entries
+     */
+    private List<Album> parsed(List<Album> listed) {
+        if (listed.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Album> result = new ArrayList<>(listed.size());
+        for (Album l : listed) {
+            Album album = album(l);
+            if (album != null) {
+                result.add(album);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Song> getSongsByTitle(String lowerTitle) {
+        Census c = census();
+        long hash = lowerTitle.hashCode();
+        int i = Arrays.binarySearch(c.songKeys, hash << 32);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        List<Song> result = new ArrayList<>();
+        int lastAlbum = -1;
+        // keys with this hash are sorted by album number, so each album is parsed once and in order
+        for (; i < c.songKeys.length && (int) (c.songKeys[i] >> 32) == (int) hash; i++) {
+            int a = (int) c.songKeys[i];
+            if (a == lastAlbum) {
+                continue;
+            }
+            lastAlbum = a;
+            Album album = album(directory.getAlbum(c.albums[a]));
+            if (album != null) {
+                for (Song song : album.getSongs()) {
+                    if (song.getTitle().toLowerCase().equals(lowerTitle)) {
+                        result.add(song);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Song> getSongsByArtist(String lowerArtist) {
+        List<Song> result = new ArrayList<>();
+        for (Album album : getAlbumsByArtist(lowerArtist)) {
+            result.addAll(album.getSongs());
+        }
+        return result;
+    }
+
+    @Override
+    public List<Album> getAlbums() {
+        int count = getAlbumCount();
+        List<Album> result = new ArrayList<>(count);
+        for (int a = 0; a < count; a++) {
+            result.add(getAlbum(a));
+        }
+        return result;
+    }
+
+    @Override
+    public int getAlbumCount() {
+        return census().albums.length;
+    }
+
+    /**
+     * Returns a readable album by its position in load order. If its file has
+     * become unreadable since the census, it comes back without songs
+     */
+    @Override
+    public Album getAlbum(int id) {
+        Album listed = directory.getAlbum(census().albums[id]);
+        Album album = album(listed);
+        return album != null ? album : listed;
+    }
+
+    /**
+     * Reads every readable album file again, past the cache, so that a pass
+     * over the catalog neither counts as lookups nor evicts the albums in use
+     */
+    @Override
+    public void forEachAlbum(Consumer<Album> action) {
+        for (int listed : census().albums) {
+            Album entry = directory.getAlbum(listed);
+            AlbumFile parsed = read(file(entry));
+            action.accept(parsed != null ? parsed.toAlbum() : entry);
+        }
+    }
+
+    @Override
+    public Song getSong(int id) {
+        Census c = census();
+        int a = Arrays.binarySearch(c.firstSong, 0, c.albums.length, id);
+        if (a < 0) {
+            a = -a - 2;		// the last album starting before id
+        } else {
+            while (c.firstSong[a + 1] == id) {
+                a++;		// skip albums without songs
+            }
+        }
+        return getAlbum(a).getSongs().get(id - c.firstSong[a]);
+    }
+
+    @Override
+    public int getSongCount() {
+        Census c = census();
+        return c.firstSong[c.albums.length];
+    }
+
+    private Census census() {
+        Census c = census;
+        if (c == null) {
+            synchronized (this) {
+                c = census;
+                if (c == null) {
+                    c = new Census(this);
+                    census = c;
+                }
+            }
+        }
+        return c;
+    }
+
+    /**
+     * What every album file holds, in as little memory as that takes: the
+     * readable albums as directory ids, where each one's songs start, and a
+     * (title hash, album number) pair per song sorted for binary search
+     */
+    private static final class Census {
+        private final int[] albums;
+        private final int[] firstSong;		// firstSong[albums.length] is the song count
+        private final long[] songKeys;
+
+        private Census(LazyCatalog catalog) {
+            int listed = catalog.directory.getAlbumCount();
+            int[] ids = new int[listed];
+            int[] first = new int[listed + 1];
+            long[] keys = new long[1024];
+            int count = 0;
+            int songs = 0;
+            for (int l = 0; l < listed; l++) {
+                // read past the cache, so that the census does not evict the albums in use
+                AlbumFile parsed = catalog.read(catalog.file(catalog.directory.getAlbum(l)));
+                if (parsed == null) {
+                    continue;
+                }
+                ids[count] = l;
+                first[count] = songs;
+                for (Song song : parsed.toAlbum().getSongs()) {
+                    if (songs == keys.length) {
+                        keys = Arrays.copyOf(keys, songs * 2);
+                    }
+                    keys[songs++] = ((long) song.getTitle().toLowerCase().hashCode() << 32) | count;
+                }
+                count++;
+            }
+            first[count] = songs;
+            this.albums = Arrays.copyOf(ids, count);
+            this.firstSong = Arrays.copyOf(first, count + 1);
+            this.songKeys = Arrays.copyOf(keys, songs);
+            Arrays.parallelSort(songKeys);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package model;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONWriter;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only log of library changes. Each change is written as one line,
+ * a JSON array of a sequence number, an operation and its fields, and is
+ * flushed before the change returns, so a session survives a crash and
+ * recording a change costs the same however large the library is.
+ *
+ * The library file stores the sequence number of the last change folded
+ * into it, so replaying a journal skips every line it already contains.
+ */
+final class LibraryJournal implements LibraryListener, Closeable {
+
+    /**
+     * Receives the changes read back from a journal, oldest first
+     */
+    interface Handler {
+        void songAdded(String title, String artist, String albumTitle);
+
+        void albumAdded(String title, String artist);
+
+        void songRemoved(String title, String artist, String albumTitle);
+
+        void albumRemoved(String title, String artist);
+
+        void songRated(String title, String artist, String albumTitle, int rating);
+
+        void songFavorited(String title, String artist, String albumTitle);
+
+        void songPlayed(String title, String artist, String albumTitle);
+
+        void playListCreated(String name);
+
+        void playListSongAdded(String playlist, String title, String artist, String albumTitle);
+
+        void playListSongRemoved(String playlist, String title, String artist, String albumTitle);
+    }
+
+    private final Path path;
+    private final int compactEvery;
+    private final Runnable compact;
+    private Writer out;
+    private long sequence;
+    private int appended;
+
+    /**
+     * Opens a journal for appending
+     *
+     * @param sequence the sequence number of the last change already recorded
+     * @param compactEvery how many changes to append before compact is run
+     * @param compact called on the appending thread once compactEvery changes have been appended
+     * @pre compactEvery >= 1
+     */
+    LibraryJournal(Path path, long sequence, int compactEvery, Runnable compact) throws IOException {
+        this.path = path;
+        this.sequence = sequence;
+        this.compactEvery = compactEvery;
+        this.compact = compact;
+        this.out = open(path);
+    }
+
+    /**
+     * Returns the sequence number of the last change written
+     */
+    long sequence() {
+        return sequence;
+    }
+
+    /**
+     * Moves everything written so far to a separate file and carries on in a
+     * fresh one, so the old changes can be folded into the library file while
+     * new changes keep being appended
+     */
+    void rotate(Path rotated) throws IOException {
+        out.close();
+        Files.move(path, rotated);
+        out = open(path);
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    @Override
+    public void songAdded(Song song) {
+        append("addSong", song.getTitle(), song.getArtist(), song.getAlbumTitle());
+    }
+
+    @Override
+    public void albumAdded(Album album) {
+        append("addAlbum", album.getTitle(), album.getArtist());
+    }
+
+    @Override
+    public void songRemoved(Song song) {
+        append("removeSong", song.getTitle(), song.getArtist(), song.getAlbumTitle());
+    }
+
+    @Override
+    public void albumRemoved(Album album) {
+        append("removeAlbum", album.getTitle(), album.getArtist());
+    }
+
+    @Override
+    public void songRated(Song song, int rating) {
+        append("rate", song.getTitle(), song.getArtist(), song.getAlbumTitle(), rating);
+    }
+
+    @Override
+    public void songFavorited(Song song) {
+        append("favorite", song.getTitle(), song.getArtist(), song.getAlbumTitle());
+    }
+
+    @Override
+    public void songPlayed(Song song) {
+        append("play", song.getTitle(), song.getArtist(), song.getAlbumTitle());
+    }
+
+    @Override
+    public void playListCreated(String name) {
+        append("createPlayList", name);
+    }
+
+    @Override
+    public void playListSongAdded(String playlist, Song song) {
+        append("addToPlayList", playlist, song.getTitle(), song.getArtist(), song.getAlbumTitle());
+    }
+
+    @Override
+    public void playListSongRemoved(String playlist, Song song) {
+        append("removeFromPlayList", playlist, song.getTitle(), song.getArtist(), song.getAlbumTitle());
+    }
+
+    private void append(String op, Object... fields) {
+        try {
+            JSONWriter w = new JSONWriter(out);
+            w.array().value(++sequence).value(op);
+            for (Object f : fields) {
+                w.value(f);
+            }
+            w.endArray();
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error writing library journal", e);
+        }
+        if (++appended >= compactEvery) {
+            appended = 0;
+            compact.run();
+        }
+    }
+
+    private static Writer open(Path path) throws IOException {
+        return Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Replays the changes in a journal with a sequence number above after.
+     * A line cut short by a crash ends the replay, since nothing after it was
+     * written completely
+     *
+     * @return the sequence number of the last change replayed, or after if none was
+     */
+    static long replay(Path path, long after, Handler handler) throws IOException {
+        long last = after;
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                JSONArray change;
+                try {
+                    change = new JSONArray(line);
+                } catch (JSONException e) {
+                    break;	// torn last line
+                }
+                long seq = change.getLong(0);
+                if (seq <= after) {
+                    continue;
+                }
+                apply(change, handler);
+                last = Math.max(last, seq);
+            }
+        } catch (NoSuchFileException e) {
+            // nothing journaled
+        }
+        return last;
+    }
+
+    private static void apply(JSONArray c, Handler h) {
+        switch (c.getString(1)) {
+            case "addSong":
+                h.songAdded(c.getString(2), c.getString(3), c.getString(4));
+                break;
+            case "addAlbum":
+                h.albumAdded(c.getString(2), c.getString(3));
+                break;
+            case "removeSong":
+                h.songRemoved(c.getString(2), c.getString(3), c.getString(4));
+                break;
+            case "removeAlbum":
+                h.albumRemoved(c.getString(2), c.getString(3));
+                break;
+            case "rate":
+                h.songRated(c.getString(2), c.getString(3), c.getString(4), c.getInt(5));
+                break;
+            case "favorite":
+                h.songFavorited(c.getString(2), c.getString(3), c.getString(4));
+                break;
+            case "play":
+                h.songPlayed(c.getString(2), c.getString(3), c.getString(4));
+                break;
+            case "createPlayList":
+                h.playListCreated(c.getString(2));
+                break;
+            case "addToPlayList":
+                h.playListSongAdded(c.getString(2), c.getString(3), c.getString(4), c.getString(5));
+                break;
+            case "removeFromPlayList":
+                h.playListSongRemoved(c.getString(2), c.getString(3), c.getString(4), c.getString(5));
+                break;
+            default:
+                // written by a newer version; skip it
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package model;
+
+import org.json.JSONException;
+import org.json.JSONTokener;
+import org.json.JSONWriter;
+
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams the library_&lt;user&gt;.json format token by token, so saving and
+ * loading never hold more than one entry of the file in memory at a time.
+ *
+ * Files written with JSONObject.toString can list their sections in any order.
+ * Entries that refer to library songs (ratings, playlists, recently and
+ * frequently played) are therefore held back until the "songs" and "albums"
+ * sections have been read; files written here put those two sections first,
+ * so nothing is held back for them.
+ */
+final class LibraryJson {
+
+    /**
+     * Receives the entries of a library file. Song and album entries always
+     * arrive before the entries that refer to them
+     */
+    interface Visitor {
+        void journalSequence(long sequence);
+
+        void song(String title, String artist, String albumTitle);
+
+        void album(String title, String artist);
+
+        void rating(String title, String artist, int rating);
+
+        void playlist(String name);
+
+        void playlistSong(String playlist, String title, String artist);
+
+        void recentlyPlayed(String title, String artist, String albumTitle);
+
+        void frequentlyPlayed(String title, String artist, String albumTitle);
+    }
+
+    private final JSONTokener x;
+    private final Visitor visitor;
+    private final List<Runnable> deferred;
+    private boolean songsRead;
+    private boolean albumsRead;
+
+    private LibraryJson(JSONTokener x, Visitor visitor) {
+        this.x = x;
+        this.visitor = visitor;
+        this.deferred = new ArrayList<>();
+    }
+
+    /**
+     * Writes a library in the library_&lt;user&gt;.json format
+     *
+     * @param journalSequence sequence number of the last journaled change the library includes
+     */
+    static void write(LibraryModel library, long journalSequence, Writer out) {
+        JSONWriter w = new JSONWriter(out);
+        w.object();
+
+        w.key("journalSequence").value(journalSequence);
+
+        w.key("songs").array();
+        for (Song s : library.getSongs()) {
+            writeSong(w, s);
+        }
+        w.endArray();
+
+        w.key("albums").array();
+        for (Album a : library.getAlbums()) {
+            w.object();
+            w.key("title").value(a.getTitle());
+            w.key("artist").value(a.getArtist());
+            w.key("genre").value(a.getGenre());
+            w.key("year").value(a.getYear());
+            w.key("songs").array();
+            for (Song s : a.getSongs()) {
+                writeSong(w, s);
+            }
+            w.endArray();
+            w.endObject();
+        }
+        w.endArray();
+
+        w.key("ratedSongs").array();
+        for (Map.Entry<Song, Integer> e : library.getAllRatedSongs().entrySet()) {
+            w.object();
+            w.key("title").value(e.getKey().getTitle());
+            w.key("artist").value(e.getKey().getArtist());
+            w.key("rating").value(e.getValue().intValue());
+            w.endObject();
+        }
+        w.endArray();
+
+        w.key("playlists").array();
+        for (PlayList pl : library.getPlayLists()) {
+            w.object();
+            w.key("name").value(pl.getName());
+            w.key("songs").array();
+            for (Song s : pl.getSongs()) {
+                w.object();
+                w.key("title").value(s.getTitle());
+                w.key("artist").value(s.getArtist());
+                w.endObject();
+            }
+            w.endArray();
+            w.endObject();
+        }
+        w.endArray();
+
+        w.key("recentlyPlayedSongs").array();
+        for (Song s : library.getRecentlyPlayedSongs()) {
+            writeSong(w, s);
+        }
+        w.endArray();
+
+        w.key("frequentlyPlayedSongs").array();
+        for (Song s : library.getFrequentlyPlayedSongs()) {
+            writeSong(w, s);
+        }
+        w.endArray();
+
+        w.endObject();
+    }
+
+    private static void writeSong(JSONWriter w, Song s) {
+        w.object();
+        w.key("title").value(s.getTitle());
+        w.key("artist").value(s.getArtist());
+        w.key("albumTitle").value(s.getAlbumTitle());
+        w.endObject();
+    }
+
+    /**
+     * Reads a library file, passing each entry to the visitor as it is parsed
+     *
+     * @throws JSONException if the file is not valid JSON or an entry is missing a field
+     */
+    static void read(Reader in, Visitor visitor) {
+        new LibraryJson(new JSONTokener(in), visitor).readLibrary();
+    }
+
+    private void readLibrary() {
+        expect('{');
+        if (!closes('}')) {
+            do {
+                String key = readKey();
+                switch (key) {
+                    case "journalSequence":
+                        visitor.journalSequence(Long.parseLong(x.nextValue().toString()));
+                        break;
+                    case "songs":
+                        readArray(() -> {
+                            String[] f = readFields("title", "artist", "albumTitle");
+                            visitor.song(f[0], f[1], f[2]);
+                        });
+                        songsRead = true;
+                        break;
+                    case "albums":
+                        readArray(this::readAlbum);
+                        albumsRead = true;
+                        break;
+                    case "ratedSongs":
+                        readArray(() -> {
+                            String[] f = readFields("title", "artist", "rating");
+                            int rating = Integer.parseInt(f[2]);
+                            whenSongsRead(() -> visitor.rating(f[0], f[1], rating));
+                        });
+                        break;
+                    case "playlists":
+                        readArray(this::readPlaylist);
+                        break;
+                    case "recentlyPlayedSongs":
+                        readArray(() -> {
+                            String[] f = readFields("title", "artist", "albumTitle");
+                            whenSongsRead(() -> visitor.recentlyPlayed(f[0], f[1], f[2]));
+                        });
+                        break;
+                    case "frequentlyPlayedSongs":
+                        readArray(() -> {
+                            String[] f = readFields("title", "artist", "albumTitle");
+                            whenSongsRead(() -> visitor.frequentlyPlayed(f[0], f[1], f[2]));
+                        });
+                        break;
+                    default:
+                        x.nextValue();	// unknown section
+                }
+            } while (nextMember('}'));
+        }
+
+        songsRead = true;
+        albumsRead = true;
+        for (Runnable r : deferred) {
+            r.run();
+        }
+        deferred.clear();
+    }
+
+    /**
+     * Reads an album entry; only the title and artist are needed, so the
+     * album's own song list is skipped one element at a time
+     */
+    private void readAlbum() {
+        String title = null;
+        String artist = null;
+        expect('{');
+        if (!closes('}')) {
+            do {
+                String key = readKey();
+                if (key.equals("title")) {
+                    title = x.nextValue().toString();
+                } else if (key.equals("artist")) {
+                    artist = x.nextValue().toString();
+                } else if (key.equals("songs")) {
+                    readArray(x::nextValue);
+                } else {
+                    x.nextValue();
+                }
+            } while (nextMember('}'));
+        }
+        visitor.album(require(title, "title"), require(artist, "artist"));
+    }
+
+    /**
+     * Reads a playlist entry. If its songs come before its name, the
+     * (title, artist) pairs are kept until the name has been read
+     */
+    private void readPlaylist() {
+        String[] name = new String[1];
+        List<String[]> early = new ArrayList<>();
+        expect('{');
+        if (!closes('}')) {
+            do {
+                String key = readKey();
+                if (key.equals("name")) {
+                    name[0] = x.nextValue().toString();
+                    String playlist = name[0];
+                    whenSongsRead(() -> visitor.playlist(playlist));
+                    for (String[] f : early) {
+                        whenSongsRead(() -> visitor.playlistSong(playlist, f[0], f[1]));
+                    }
+                    early.clear();
+                } else if (key.equals("songs")) {
+                    readArray(() -> {
+                        String[] f = readFields("title", "artist");
+                        String playlist = name[0];
+                        if (playlist == null) {
+                            early.add(f);
+                        } else {
+                            whenSongsRead(() -> visitor.playlistSong(playlist, f[0], f[1]));
+                        }
+                    });
+                } else {
+                    x.nextValue();
+                }
+            } while (nextMember('}'));
+        }
+        require(name[0], "name");
+    }
+
+    /**
+     * Runs an entry that refers to library songs now if the songs and albums
+     * have been read, otherwise once they have
+     */
+    private void whenSongsRead(Runnable entry) {
+        if (songsRead && albumsRead) {
+            entry.run();
+        } else {
+            deferred.add(entry);
+        }
+    }
+
+    /**
+     * Reads an object of plain values and returns the requested fields as strings
+     */
+    private String[] readFields(String... keys) {
+        String[] values = new String[keys.length];
+        expect('{');
+        if (!closes('}')) {
+            do {
+                String key = readKey();
+                Object value = x.nextValue();
+                for (int i = 0; i < keys.length; i++) {
+                    if (keys[i].equals(key)) {
+                        values[i] = value.toString();
+                    }
+                }
+            } while (nextMember('}'));
+        }
+        for (int i = 0; i < keys.length; i++) {
+            require(values[i], keys[i]);
+        }
+        return values;
+    }
+
+    private void readArray(Runnable element) {
+        expect('[');
+        if (!closes(']')) {
+            do {
+                element.run();
+            } while (nextMember(']'));
+        }
+    }
+
+    private String readKey() {
+        expect('"');
+        String key = x.nextString('"');
+        expect(':');
+        return key;
+    }
+
+    /**
+     * Consumes the separator after a member; returns false at the closing bracket
+     */
+    private boolean nextMember(char close) {
+        char c = x.nextClean();
+        if (c == ',') {
+            return true;
+        }
+        if (c == close) {
+            return false;
+        }
+        throw x.syntaxError("Expected ',' or '" + close + "'");
+    }
+
+    /**
+     * Consumes close if it is the next token, for empty objects and arrays
+     */
+    private boolean closes(char close) {
+        if (x.nextClean() == close) {
+            return true;
+        }
+        x.back();
+        return false;
+    }
+
+    private void expect(char c) {
+        if (x.nextClean() != c) {
+            throw x.syntaxError("Expected '" + c + "'");
+        }
+    }
+
+    private String require(String value, String key) {
+        if (value == null) {
+            throw x.syntaxError("Missing \"" + key + "\"");
+        }
+        return value;
+    }
+}
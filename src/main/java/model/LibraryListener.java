@@ -0,0 +1,27 @@
+package model;
+
+/**
+ * Notified of each change made to a LibraryModel through its public methods,
+ * after the change has been applied
+ */
+public interface LibraryListener {
+    void songAdded(Song song);
+
+    void albumAdded(Album album);
+
+    void songRemoved(Song song);
+
+    void albumRemoved(Album album);
+
+    void songRated(Song song, int rating);
+
+    void songFavorited(Song song);
+
+    void songPlayed(Song song);
+
+    void playListCreated(String name);
+
+    void playListSongAdded(String playlist, Song song);
+
+    void playListSongRemoved(String playlist, Song song);
+}
@@ -1,38 +1,104 @@
 package model;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * One user's library: their songs and albums, ratings, favorites, playlists
+ * and play history, with the auto-playlists and lookup indexes kept in step.
+ *
+ * Thread safety: any number of threads may use a library at once. Changes are
+ * made one at a time under a single lock per library, which the library's
+ * playlists share, so the listener sees them in the order they were made.
+ * Reads never take that lock and never wait for a change: every collection a
+ * read uses is a concurrent map, a copy-on-write list or an OrderedSet, which
+ * readers iterate without locking. A read sees each collection as it was at
+ * some moment during the read, so a read spanning two collections may see a
+ * change in one and not yet in the other.
+ */
 public class LibraryModel {
+	private static final int TOP_RATED = 4;
+	private static final int GENRE_PLAYLIST_SIZE = 10;
 
-	private final List<Song> songs;
+	private final ReentrantLock lock;		// held for every change
+	private final Collection<Song> songs;
 	private final Set<String> artists;
-	private final List<Album> albums;
-	private final List<Song> favoriteSongs;
+	private final Map<String, Integer> artistSongCounts;	// only used while changing
+	private final Collection<Album> albums;
+	private final Map<String, Album> albumsByKey;	// keyed by albumKey(title, artist)
+	private final Collection<Song> favoriteSongs;
 	private final List<PlayList> playlists;
 	private final Map<Song, Integer> ratedSongs;
+	private final Map<Song, LongAdder> playCounts;	// this library's plays; the songs are shared with other libraries
 	private final PlayList recentlyPlayedSongs;
 	private final PlayList frequentlyPlayedSongs;
-	private MusicStore store;
-    private PlayList favoritesAutoPlaylist;
-    private PlayList topRatedAutoPlaylist;
-    private final Map<String, PlayList> genrePlaylists;
+	private volatile MusicStore store;
+	private LibraryListener listener;
+    private final PlayList favoritesAutoPlaylist;
+    private final PlayList topRatedAutoPlaylist;
+    private final Map<String, PlayList> genrePlaylists;	// only genres with at least GENRE_PLAYLIST_SIZE songs
+    private final Map<String, Integer> genreSongCounts;	// only used while changing
+
+    // case-folded secondary indexes, kept in step with songs and albums
+    private final Map<String, Collection<Song>> songsByTitle;
+    private final Map<String, Collection<Song>> songsByArtist;
+    private final Map<String, Collection<Album>> albumsByTitle;
+    private final Map<String, Collection<Album>> albumsByArtist;
+    private final Map<String, Collection<Album>> albumsByGenre;
+    private final FullTextIndex textIndex;		// words of each song's title, artist, album and genre
 
     public LibraryModel() {
-        songs = new ArrayList<>();
-        artists = new HashSet<>();
-        albums = new ArrayList<>();
-        favoriteSongs = new ArrayList<>();
-        playlists = new ArrayList<>();
-        ratedSongs = new HashMap<>();
-        recentlyPlayedSongs = new PlayList("Most Recently Played Songs");
-        frequentlyPlayedSongs = new PlayList("Most Frequently Played Songs");
-        genrePlaylists = new HashMap<>();
+        this(PlayList.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param playHistorySize how many songs the recently and frequently played lists keep
+     * @pre playHistorySize >= 1
+     */
+    public LibraryModel(int playHistorySize) {
+        this(playHistorySize, false);
+    }
+
+    /**
+     * @param playHistorySize how many songs the recently and frequently played lists keep
+     * @param approximatePlayCounts if true, the frequently played list counts plays in
+     *        fixed memory (Space-Saving) instead of tracking every song's exact count
+     * @pre playHistorySize >= 1
+     */
+    public LibraryModel(int playHistorySize, boolean approximatePlayCounts) {
+        lock = new ReentrantLock();
+        songs = new OrderedSet<>();
+        artists = ConcurrentHashMap.newKeySet();
+        artistSongCounts = new HashMap<>();
+        albums = new OrderedSet<>();
+        albumsByKey = new ConcurrentHashMap<>();
+        favoriteSongs = new OrderedSet<>();
+        playlists = new CopyOnWriteArrayList<>();
+        ratedSongs = new ConcurrentHashMap<>();
+        playCounts = new ConcurrentHashMap<>();
+        recentlyPlayedSongs = PlayList.sharingLock("Most Recently Played Songs", playHistorySize, false, lock);
+        frequentlyPlayedSongs = PlayList.sharingLock("Most Frequently Played Songs", playHistorySize,
+                approximatePlayCounts, lock);
+        favoritesAutoPlaylist = PlayList.withUniqueSongs("Favorite Songs (Auto)", lock);
+        topRatedAutoPlaylist = PlayList.withUniqueSongs("Top Rated (Auto)", lock);
+        genrePlaylists = new ConcurrentHashMap<>();
+        genreSongCounts = new HashMap<>();
+        songsByTitle = new ConcurrentHashMap<>();
+        songsByArtist = new ConcurrentHashMap<>();
+        albumsByTitle = new ConcurrentHashMap<>();
+        albumsByArtist = new ConcurrentHashMap<>();
+        albumsByGenre = new ConcurrentHashMap<>();
+        textIndex = new FullTextIndex();
     }
     
     /**
@@ -45,46 +111,75 @@ public class LibraryModel {
     public MusicStore getMusicStore() {
         return this.store;
     }
+
+    /**
+     * Sets the listener told about every later change to the library and its
+     * playlists, or clears it if listener is null
+     */
+    public void setListener(LibraryListener listener) {
+        lock.lock();
+        try {
+            this.listener = listener;
+            for (PlayList p : playlists) {
+                p.setListener(listener);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
 	
 	/**
      * Adds a song to library if not already present
      */
     public void addSong(Song song) {
-        if (!songs.contains(song)) {
-            songs.add(song);
-            artists.add(song.getArtist());
-        }
-        Album libraryAlbum = findAlbumInLibrary(song.getAlbumTitle(), song.getArtist());
-        if (libraryAlbum == null) {
-            String genre = "Unknown";
-            int year = 0;
+        lock.lock();
+        try {
             if (store != null) {
-                Album storeAlbum = store.getAlbumByTitle(song.getAlbumTitle());
-                if (storeAlbum != null && 
-                    storeAlbum.getArtist().equalsIgnoreCase(song.getArtist())) {
-                    genre = storeAlbum.getGenre();
-                    year = storeAlbum.getYear();
+                song = store.internSong(song);
+            }
+            boolean added = songs.add(song);
+            if (added) {
+                indexSong(song);
+            }
+            Album libraryAlbum = findAlbumInLibrary(song.getAlbumTitle(), song.getArtist());
+            if (libraryAlbum == null) {
+                String genre = "Unknown";
+                int year = 0;
+                if (store != null) {
+                    Album storeAlbum = store.findAlbum(song.getAlbumTitle(), song.getArtist());
+                    if (storeAlbum != null) {
+                        genre = storeAlbum.getGenre();
+                        year = storeAlbum.getYear();
+                    }
+                }
+                List<Song> partialSongs = new ArrayList<>();
+                partialSongs.add(song);
+                Album partialAlbum = new Album(song.getAlbumTitle(), song.getArtist(), genre, year, partialSongs);
+                putAlbum(partialAlbum);
+            } else {
+                List<Song> currentTracks = libraryAlbum.getSongs();
+                if (!currentTracks.contains(song)) {
+                    dropAlbum(libraryAlbum);
+                    List<Song> updatedSongs = new ArrayList<>(currentTracks);
+                    updatedSongs.add(song);
+                    Album updatedAlbum = new Album(
+                        libraryAlbum.getTitle(),
+                        libraryAlbum.getArtist(),
+                        libraryAlbum.getGenre(),
+                        libraryAlbum.getYear(),
+                        updatedSongs
+                    );
+                    putAlbum(updatedAlbum);
                 }
             }
-            List<Song> partialSongs = new ArrayList<>();
-            partialSongs.add(song);
-            Album partialAlbum = new Album(song.getAlbumTitle(), song.getArtist(), genre, year, partialSongs);
-            albums.add(partialAlbum);
-        } else {
-            List<Song> currentTracks = libraryAlbum.getSongs();
-            if (!currentTracks.contains(song)) {
-                albums.remove(libraryAlbum);
-                List<Song> updatedSongs = new ArrayList<>(currentTracks);
-                updatedSongs.add(song);
-                Album updatedAlbum = new Album(
-                    libraryAlbum.getTitle(),
-                    libraryAlbum.getArtist(),
-                    libraryAlbum.getGenre(),
-                    libraryAlbum.getYear(),
-                    updatedSongs
-                );
-                albums.add(updatedAlbum);
+            if (added) {
+                indexText(song);
+            }
+            if (listener != null) {
+                listener.songAdded(song);
             }
+        } finally {
+            lock.unlock();
         }
     }
     
@@ -92,43 +187,49 @@ public class LibraryModel {
      * Adds an album and all its songs to library if not already present
      */
     public void addAlbum(Album album) {
-        Album existingAlbum = findAlbumInLibrary(album.getTitle(), album.getArtist());
-        if (existingAlbum != null) {
-            albums.remove(existingAlbum);
-
-            List<Song> mergedSongs = new ArrayList<>(existingAlbum.getSongs());
-            for (Song s : album.getSongs()) {
-                if (!mergedSongs.contains(s)) {
-                    mergedSongs.add(s);
-                }
-            }
+        lock.lock();
+        try {
+            Album existingAlbum = findAlbumInLibrary(album.getTitle(), album.getArtist());
+            if (existingAlbum != null) {
+                dropAlbum(existingAlbum);
 
-            Album mergedAlbum = new Album(
-                existingAlbum.getTitle(),
-                existingAlbum.getArtist(),
-                existingAlbum.getGenre(),
-                existingAlbum.getYear(),
-                mergedSongs
-            );
+                Set<Song> mergedSongs = new LinkedHashSet<>(existingAlbum.getSongs());
+                mergedSongs.addAll(album.getSongs());
 
-            albums.add(mergedAlbum);
+                Album mergedAlbum = new Album(
+                    existingAlbum.getTitle(),
+                    existingAlbum.getArtist(),
+                    existingAlbum.getGenre(),
+                    existingAlbum.getYear(),
+                    new ArrayList<>(mergedSongs)
+                );
 
-            for (Song s : mergedSongs) {
-                if (!songs.contains(s)) {
-                    songs.add(s);
-                    artists.add(s.getArtist());
-                }
+                putAlbum(mergedAlbum);
+                addAlbumSongs(mergedSongs);
+            }
+            else {
+                putAlbum(album);
+                addAlbumSongs(album.getSongs());
+            }
+            if (listener != null) {
+                listener.albumAdded(album);
             }
+        } finally {
+            lock.unlock();
         }
-        else {
-            if (!albums.contains(album)) {
-                albums.add(album);
+    }
+    
+    /**
+     * Helper method for adding the tracks of an album that was just added
+     */
+    private void addAlbumSongs(Iterable<Song> tracks) {
+        for (Song s : tracks) {
+            if (store != null) {
+                s = store.internSong(s);
             }
-            for (Song s : album.getSongs()) {
-                if (!songs.contains(s)) {
-                    songs.add(s);
-                    artists.add(s.getArtist());
-                }
+            if (songs.add(s)) {
+                indexSong(s);
+                indexText(s);
             }
         }
     }
@@ -137,14 +238,8 @@ public class LibraryModel {
      * Given title, artist returns album info
      */
     public Album getAlbumInfoForSong(String title, String artist) {
-        List<Song> storeSongs = store.getSongsByTitle(title);
-        for (Song s : storeSongs) {
-            if (s.getArtist().equalsIgnoreCase(artist)) {
-                Album storeAlb = store.getAlbumByTitle(s.getAlbumTitle());
-                return storeAlb; 
-            }
-        }
-        return null;
+        Song s = store.findSong(title, artist);
+        return s == null ? null : store.findAlbum(s.getAlbumTitle(), s.getArtist());
     }
     
     /**
@@ -159,50 +254,17 @@ public class LibraryModel {
      */
     public List<Song> getSongsByGenre(String genre) {
         List<Song> result = new ArrayList<>();
-        for (Album alb : albums) {
-            if (alb.getGenre().equalsIgnoreCase(genre)) {
-                result.addAll(alb.getSongs());
-            }
+        for (Album alb : albumsByGenre.getOrDefault(genre.toLowerCase(), Collections.emptySet())) {
+            result.addAll(alb.getSongs());
         }
         return result;
     }
     
     /**
-     * Rebuilds auto-playlists
+     * Auto-playlists are kept up to date as the library changes, so there is
+     * nothing left to rebuild. Kept so existing callers still work
      */
     public void updateAutoPlaylists() {
-        favoritesAutoPlaylist = new PlayList("Favorite Songs (Auto)");
-        for (Song s : favoriteSongs) {
-            favoritesAutoPlaylist.addSong(s);
-        }
-
-        topRatedAutoPlaylist = new PlayList("Top Rated (Auto)");
-        for (Map.Entry<Song, Integer> e : ratedSongs.entrySet()) {
-            if (e.getValue() >= 4) {
-                topRatedAutoPlaylist.addSong(e.getKey());
-            }
-        }
-
-        genrePlaylists.clear();
-        Map<String, List<Song>> genreToSongs = new HashMap<>();
-
-        for (Album alb : albums) {
-            String g = alb.getGenre();
-            List<Song> albumTracks = alb.getSongs();
-            genreToSongs.computeIfAbsent(g, k -> new ArrayList<>()).addAll(albumTracks);
-        }
-
-        for (Map.Entry<String, List<Song>> ent : genreToSongs.entrySet()) {
-            String genre = ent.getKey();
-            List<Song> allSongs = ent.getValue();
-            if (allSongs.size() >= 10) {
-                PlayList gp = new PlayList(genre + " (Auto)");
-                for (Song s : allSongs) {
-                    gp.addSong(s);
-                }
-                genrePlaylists.put(genre.toLowerCase(), gp);
-            }
-        }
     }
 
     public PlayList getFavoritesAutoPlaylist() {
@@ -217,69 +279,162 @@ public class LibraryModel {
         return genrePlaylists.get(genre.toLowerCase());
     }
 
+    /**
+     * Returns the auto-playlist of every genre that has enough songs for one
+     */
+    public List<PlayList> getGenreAutoPlaylists() {
+        return new ArrayList<>(genrePlaylists.values());
+    }
+
     private Album findAlbumInLibrary(String title, String artist) {
-        for (Album a : albums) {
-            if (a.getTitle().equalsIgnoreCase(title) && a.getArtist().equalsIgnoreCase(artist)) {
-                return a;
+        return albumsByKey.get(albumKey(title, artist));
+    }
+
+    /**
+     * Key for the albums map; an album is identified by its title and artist, ignoring case
+     */
+    private static String albumKey(String title, String artist) {
+        return title.toLowerCase() + "\u0000" + artist.toLowerCase();
+    }
+
+    /**
+     * Adds a song that was just added to songs to the secondary indexes
+     */
+    private void indexSong(Song song) {
+        songsByTitle.computeIfAbsent(song.getTitle().toLowerCase(), k -> new OrderedSet<>()).add(song);
+        songsByArtist.computeIfAbsent(song.getArtist().toLowerCase(), k -> new OrderedSet<>()).add(song);
+        artistSongCounts.merge(song.getArtist(), 1, Integer::sum);
+        artists.add(song.getArtist());
+    }
+
+    /**
+     * Adds a song to the word index once its album is in the library, so the
+     * album's genre is indexed with it
+     */
+    private void indexText(Song song) {
+        Album album = findAlbumInLibrary(song.getAlbumTitle(), song.getArtist());
+        textIndex.add(song, album == null ? "Unknown" : album.getGenre());
+    }
+
+    /**
+     * Removes a song that was just removed from songs from the secondary indexes
+     */
+    private void unindexSong(Song song) {
+        removeFromIndex(songsByTitle, song.getTitle().toLowerCase(), song);
+        removeFromIndex(songsByArtist, song.getArtist().toLowerCase(), song);
+        textIndex.remove(song);
+        // drop the artist once their last song is gone
+        if (artistSongCounts.merge(song.getArtist(), -1, Integer::sum) <= 0) {
+            artistSongCounts.remove(song.getArtist());
+            artists.remove(song.getArtist());
+        }
+    }
+
+    /**
+     * Adds an album to the library, after any album with the same key
+     */
+    private void putAlbum(Album album) {
+        String genre = album.getGenre().toLowerCase();
+        albumsByKey.put(albumKey(album.getTitle(), album.getArtist()), album);
+        albums.add(album);
+        albumsByTitle.computeIfAbsent(album.getTitle().toLowerCase(), k -> new OrderedSet<>()).add(album);
+        albumsByArtist.computeIfAbsent(album.getArtist().toLowerCase(), k -> new OrderedSet<>()).add(album);
+        albumsByGenre.computeIfAbsent(genre, k -> new OrderedSet<>()).add(album);
+
+        // genre auto-playlist: extend it, or create it once the genre reaches the threshold
+        List<Song> tracks = album.getSongs();
+        int count = genreSongCounts.merge(genre, tracks.size(), Integer::sum);
+        PlayList genrePlaylist = genrePlaylists.get(genre);
+        if (genrePlaylist != null) {
+            for (Song s : tracks) {
+                genrePlaylist.addSong(s);
+            }
+        } else if (count >= GENRE_PLAYLIST_SIZE) {
+            genrePlaylist = PlayList.withUniqueSongs(album.getGenre() + " (Auto)", lock);
+            for (Album a : albumsByGenre.get(genre)) {
+                for (Song s : a.getSongs()) {
+                    genrePlaylist.addSong(s);
+                }
+            }
+            genrePlaylists.put(genre, genrePlaylist);
+        }
+    }
+
+    /**
+     * Removes an album that is currently in the library
+     */
+    private void dropAlbum(Album album) {
+        String genre = album.getGenre().toLowerCase();
+        albumsByKey.remove(albumKey(album.getTitle(), album.getArtist()));
+        albums.remove(album);
+        removeFromIndex(albumsByTitle, album.getTitle().toLowerCase(), album);
+        removeFromIndex(albumsByArtist, album.getArtist().toLowerCase(), album);
+        removeFromIndex(albumsByGenre, genre, album);
+
+        // genre auto-playlist: shrink it, or drop it once the genre falls below the threshold
+        List<Song> tracks = album.getSongs();
+        int count = genreSongCounts.merge(genre, -tracks.size(), Integer::sum);
+        if (count <= 0) {
+            genreSongCounts.remove(genre);
+        }
+        PlayList genrePlaylist = genrePlaylists.get(genre);
+        if (genrePlaylist != null) {
+            if (count < GENRE_PLAYLIST_SIZE) {
+                genrePlaylists.remove(genre);
+            } else {
+                for (Song s : tracks) {
+                    genrePlaylist.removeSong(s);
+                }
             }
         }
-        return null;
+    }
+
+    private static <T> void removeFromIndex(Map<String, Collection<T>> index, String key, T value) {
+        Collection<T> bucket = index.get(key);
+        if (bucket != null && bucket.remove(value) && bucket.isEmpty()) {
+            index.remove(key);
+        }
     }
 
 	/**
      * Returns all Songs that match a given title
      */
     public List<Song> getSongsByTitle(String title) {
-        List<Song> results = new ArrayList<>();
-        for (Song song : songs) {
-            if (song.getTitle().equalsIgnoreCase(title)) {
-                results.add(song);
-            }
-        }
-        return results;
+        return new ArrayList<>(songsByTitle.getOrDefault(title.toLowerCase(), Collections.emptySet()));
+    }
+
+    /**
+     * Returns the songs whose title, artist, album title or genre contain
+     * every word of the query, in the order they were added. Case, accents
+     * and punctuation are ignored, and the word OR separates alternatives
+     */
+    public List<Song> searchText(String query) {
+        return textIndex.search(query, Integer.MAX_VALUE);
     }
 
     /**
      * Returns all Songs by a given artist
      */
     public List<Song> getSongsByArtist(String artist) {
-        List<Song> results = new ArrayList<>();
-        for (Song song : songs) {
-            if (song.getArtist().equalsIgnoreCase(artist)) {
-                results.add(song);
-            }
-        }
-        return results;
+        return new ArrayList<>(songsByArtist.getOrDefault(artist.toLowerCase(), Collections.emptySet()));
     }
 
     /**
      * Returns all Albums that match a given title
      */
     public List<Album> getAlbumsByTitle(String title) {
-        List<Album> results = new ArrayList<>();
-        for (Album album : albums) {
-            if (album.getTitle().equalsIgnoreCase(title)) {
-                results.add(album);
-            }
-        }
-        return results;
+        return new ArrayList<>(albumsByTitle.getOrDefault(title.toLowerCase(), Collections.emptySet()));
     }
 
     /**
      * Returns all Albums by a given artist
      */
     public List<Album> getAlbumsByArtist(String artist) {
-        List<Album> results = new ArrayList<>();
-        for (Album album : albums) {
-            if (album.getArtist().equalsIgnoreCase(artist)) {
-                results.add(album);
-            }
-        }
-        return results;
+        return new ArrayList<>(albumsByArtist.getOrDefault(artist.toLowerCase(), Collections.emptySet()));
     }
     
     public List<Song> getSongs() {
-        return Collections.unmodifiableList(songs);
+        return Collections.unmodifiableList(new ArrayList<>(songs));
     }
 	
 	public List<String> getSongTitles() {
@@ -295,7 +450,7 @@ public class LibraryModel {
     }
 	
 	public List<Album> getAlbums() {
-        return Collections.unmodifiableList(albums);
+        return Collections.unmodifiableList(new ArrayList<>(albums));
     }
 	
 	public List<PlayList> getPlayLists() {
@@ -303,7 +458,7 @@ public class LibraryModel {
     }
 	
 	public List<Song> getFavoriteSongs() {
-        return Collections.unmodifiableList(favoriteSongs);
+        return Collections.unmodifiableList(new ArrayList<>(favoriteSongs));
     }
 	
 	public Map<Song, Integer> getAllRatedSongs() {
@@ -314,39 +469,81 @@ public class LibraryModel {
      * Rates the song 1-5. If 5, adds to favorites
      */
     public boolean rateSong(Song song, int rate) {
-        if (rate < 1 || rate > 5) {
-            return false;
-        }
-        if (!songs.contains(song)) {
-            return false;
-        }
-        ratedSongs.put(song, rate);
+        lock.lock();
+        try {
+            if (rate < 1 || rate > 5) {
+                return false;
+            }
+            if (!songs.contains(song)) {
+                return false;
+            }
+            Integer oldRate = ratedSongs.put(song, rate);
 
-        if (rate == 5 && !favoriteSongs.contains(song)) {
-            favoriteSongs.add(song);
-        } else if (favoriteSongs.contains(song)) {
-            favoriteSongs.remove(song);	// remove song from favorites if rating < 5
-        }
+            if (rate == 5) {
+                addFavorite(song);
+            } else {
+                removeFavorite(song);	// remove song from favorites if rating < 5
+            }
+
+            boolean wasTopRated = oldRate != null && oldRate >= TOP_RATED;
+            if (rate >= TOP_RATED && !wasTopRated) {
+                topRatedAutoPlaylist.addSong(song);
+            } else if (rate < TOP_RATED && wasTopRated) {
+                topRatedAutoPlaylist.removeSong(song);
+            }
 
-        return true;
+            if (listener != null) {
+                listener.songRated(song, rate);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
     }
     
     /**
      * Marks a given song as favorite
      */
     public boolean markSongAsFavorite(Song song) {
-        if (!songs.contains(song)) {
-            return false;
+        lock.lock();
+        try {
+            if (!songs.contains(song)) {
+                return false;
+            }
+            addFavorite(song);
+            if (listener != null) {
+                listener.songFavorited(song);
+            }
+            return true;
+        } finally {
+            lock.unlock();
         }
-        if (!favoriteSongs.contains(song)) {
-            favoriteSongs.add(song);
+    }
+    
+    private void addFavorite(Song song) {
+        if (favoriteSongs.add(song)) {
+            favoritesAutoPlaylist.addSong(song);
+        }
+    }
+    
+    private void removeFavorite(Song song) {
+        if (favoriteSongs.remove(song)) {
+            favoritesAutoPlaylist.removeSong(song);
         }
-        return true;
     }
 	
     public void createPlayList(String name) {
-        PlayList playlist = new PlayList(name);
-        playlists.add(playlist);
+        lock.lock();
+        try {
+            PlayList playlist = PlayList.sharingLock(name, PlayList.DEFAULT_CAPACITY, false, lock);
+            playlist.setListener(listener);
+            playlists.add(playlist);
+            if (listener != null) {
+                listener.playListCreated(name);
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 	
 	public PlayList getPlayList(String name) {
@@ -372,16 +569,56 @@ public class LibraryModel {
 	    return frequentlyPlayedSongs.getFrequentlyPlayedSongs();
 	}
 	
+	/**
+	 * Returns how many times a song has been played in this library. Counts
+	 * are kept per library, not on the song, since every library shares the
+	 * store's Song instances
+	 */
+	public int getPlayCount(Song song) {
+	    LongAdder count = playCounts.get(song);
+	    return count == null ? 0 : count.intValue();
+	}
+	
+	/**
+	 * Puts a song back on the recently played list, as when a saved library
+	 * is loaded; its play count is left alone
+	 */
+	void restoreRecentlyPlayed(Song song) {
+	    recentlyPlayedSongs.addSongRecent(song);
+	}
+	
+	/**
+	 * Puts a song back on the frequently played list with its current play
+	 * count, as when a saved library is loaded
+	 */
+	void restoreFrequentlyPlayed(Song song) {
+	    lock.lock();
+	    try {
+	        frequentlyPlayedSongs.addSongFrequent(song, getPlayCount(song));
+	    } finally {
+	        lock.unlock();
+	    }
+	}
+	
     /**
      * Implement functionality to simulate the user playing a song
      */
 	public void playSong(String title, String artist) {
-		for (Song s : songs) {
-			if ((s.getTitle()).equals(title) && (s.getArtist()).equals(artist)) {
-				s.play();
-				recentlyPlayedSongs.addSongRecent(s);
-				frequentlyPlayedSongs.addSongFrequent(s);
+		lock.lock();
+		try {
+			for (Song s : songsByTitle.getOrDefault(title.toLowerCase(), Collections.emptySet())) {
+				if ((s.getTitle()).equals(title) && (s.getArtist()).equals(artist)) {
+					LongAdder count = playCounts.computeIfAbsent(s, k -> new LongAdder());
+					count.increment();
+					recentlyPlayedSongs.addSongRecent(s);
+					frequentlyPlayedSongs.addSongFrequent(s, count.intValue());
+					if (listener != null) {
+						listener.songPlayed(s);
+					}
+				}
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 	
@@ -428,40 +665,57 @@ public class LibraryModel {
 	}
 	
 	/*
-	 * helper method for identifying if there are multiple name of the given artist
+	 * removes a song from the library
 	 * */
-	private boolean ifDuplicate(String artist) {
-		int temp = 0;
-		for (Song s: songs) {
-			if (s.getArtist().equals(artist)) temp++;
+	public void removeSong(Song song) {
+		lock.lock();
+		try {
+			dropSong(song);
+			if (listener != null) {
+				listener.songRemoved(song);
+			}
+		} finally {
+			lock.unlock();
 		}
-		if (temp == 1) return false;
-		return true;
 	}
 	
 	/*
-	 * removes a song from the library
+	 * removes a song and everything that refers to it, without notifying the listener
 	 * */
-	public void removeSong(Song song) {
-			songs.remove(song);
-			favoriteSongs.remove(song);
+	private void dropSong(Song song) {
+			if (songs.remove(song)) {
+				unindexSong(song);
+			}
+			removeFavorite(song);
+			playCounts.remove(song);
+			Integer rating = ratedSongs.remove(song);
+			if (rating != null && rating >= TOP_RATED) {
+				topRatedAutoPlaylist.removeSong(song);
+			}
 			for (PlayList p: playlists) {
-				p.removeSong(song);
+				p.drop(song);
 			}
-			recentlyPlayedSongs.removeSong(song);
-			frequentlyPlayedSongs.removeSong(song);
-			// if there is only one instance of an artist name of the given song, remove the name from 
-			// the artists list
-			if (!ifDuplicate(song.getArtist())) artists.remove(song.getArtist());
+			recentlyPlayedSongs.drop(song);
+			frequentlyPlayedSongs.drop(song);
 	}
 	
 	/*
 	 * removes an album from the library
 	 * */
 	public void removeAlbum(Album album) {
-		albums.remove(album);
-		for (Song s : album.getSongs()) {
-			removeSong(s);
+		lock.lock();
+		try {
+			if (album.equals(findAlbumInLibrary(album.getTitle(), album.getArtist()))) {
+				dropAlbum(album);
+			}
+			for (Song s : album.getSongs()) {
+				dropSong(s);
+			}
+			if (listener != null) {
+				listener.albumRemoved(album);
+			}
+		} finally {
+			lock.unlock();
 		}
 	}
 	
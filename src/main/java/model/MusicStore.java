@@ -1,100 +1,565 @@
 package model;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
 
 /**
  * Loads and provides access to a "database" of albums and songs
+ *
+ * Thread safety: a store may be shared by any number of threads, and handed
+ * to them without synchronization. The catalog is complete before the
+ * constructor returns and is reached through a volatile field; lookups only
+ * read it, so they never lock. The search indexes are built once per
+ * catalog, on first use, and the canonical Song and Album instances are
+ * handed out through concurrent maps and compare-and-set caches, so every
+ * thread gets the same instance.
+ *
+ * Hot reload: a store is immutable unless startHotReload is called. After
+ * that, changes to albums.txt and the album files are parsed as they happen
+ * and published as a new generation of the catalog and its search indexes in
+ * one volatile write. Each lookup reads the generation once, so it sees the
+ * catalog entirely before or entirely after a reload, never a mix.
+ *
+ * Background loading: a store from loadInBackground is returned before any
+ * album file is read, with an empty catalog. A loader thread publishes the
+ * albums loaded so far as a new generation each time their number doubles,
+ * so lookups see a growing prefix of albums.txt until isFullyLoaded. The
+ * doubling keeps the total work of the partial catalogs within that of one
+ * full load.
+ *
+ * Lazy loading: a store from lazy keeps only albums.txt in memory and
+ * parses album files as their albums are looked up, keeping a bounded number
+ * of them (see LazyCatalog), so memory follows the albums in use.
+ *
+ * In every mode, an album file that cannot be read or parsed is skipped rather
+ * than failing the load, and listed by getQuarantinedFiles.
  */
 public class MusicStore {
-	private final Map<String, Album> albumsByTitle;
-    private final Map<String, List<Album>> albumsByArtist;
-    private final Map<String, List<Song>> songsByTitle;
-    private final Map<String, List<Song>> songsByArtist;
+	private volatile Generation current;
+    private final String albumsTxtPath;
+    private final String albumsDirectoryPath;
+    private final int loaderThreads;		// 0 when the catalog came from a snapshot
+    private final boolean offHeap;
+    private volatile long loadTimeNanos;	// set when a background load finishes
+    private final CountDownLatch loading;	// open until the catalog is complete
+    private volatile int albumsListed = -1;		// albums albums.txt lists, once a background load has read it
+    private volatile IOException loadFailure;	// why a background load could not read albums.txt
+    private final List<String> quarantined = new CopyOnWriteArrayList<>();	// album files that failed to load
+    private static final int FIRST_PUBLISH = 64;	// albums a background load has before it first publishes
+    private final Map<Song, Song> songPool = new ConcurrentHashMap<>();		// songs not in the catalog
+    private final Map<Album, Album> albumPool = new ConcurrentHashMap<>();	// albums not in the catalog
+    private static final long RELOAD_QUIET_MILLIS = 100;	// no new events for this long ends a burst
+    private final Object reloadLock = new Object();
+    private CatalogReloader reloader;		// created by the first reload, guarded by reloadLock
 
     /**
      * Constructs a MusicStore object and loads the album data from files
      *
      * @pre albumsTxtPath != null && albumsDirectoryPath != null
-     * @throws IOException if files are missing or unreadable
+     * @throws IOException if albums.txt is missing or unreadable
      */
     public MusicStore(String albumsTxtPath, String albumsDirectoryPath) throws IOException {
-        this.albumsByTitle = new HashMap<>();
-        this.albumsByArtist = new HashMap<>();
-        this.songsByTitle = new HashMap<>();
-        this.songsByArtist = new HashMap<>();
+        this(albumsTxtPath, albumsDirectoryPath, 1);
+    }
+
+    /**
+     * Constructs a MusicStore object and loads the album files on a pool of
+     * loaderThreads workers. The parsed albums are merged into the indexes in
+     * "albums.txt" order, so the result is identical to the sequential load
+     *
+     * @pre albumsTxtPath != null && albumsDirectoryPath != null && loaderThreads >= 1
+     * @throws IOException if albums.txt is missing or unreadable
+     */
+    public MusicStore(String albumsTxtPath, String albumsDirectoryPath, int loaderThreads) throws IOException {
+        ColumnarCatalog columns = new ColumnarCatalog();
+        List<String> sourceFiles = new ArrayList<>();
+        this.albumsTxtPath = albumsTxtPath;
+        this.albumsDirectoryPath = albumsDirectoryPath;
+        this.loaderThreads = Math.max(1, loaderThreads);
+        this.offHeap = false;
+        this.loading = new CountDownLatch(0);
 
-        loadAllAlbums(albumsTxtPath, albumsDirectoryPath);
+        long start = System.nanoTime();
+        loadAllAlbums(columns, sourceFiles, AlbumFile.readAlbumList(albumsTxtPath, albumsDirectoryPath), false);
+        columns.finishLoading();
+        this.loadTimeNanos = System.nanoTime() - start;
+        this.current = new Generation(columns, () -> sourceFiles, 0);
     }
 
     /**
-     * Reads "albums.txt" line-by-line, builds each album's filename,
-     * and loads that album into the store
+     * Constructs a MusicStore object over an already-built catalog
      */
-    private void loadAllAlbums(String albumsTxtPath, String albumsDirectoryPath) throws IOException {
-        try (BufferedReader br = new BufferedReader(new FileReader(albumsTxtPath))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length < 2) {
-                    continue;
-                }
-                String albumTitle = parts[0].trim();
-                String artist = parts[1].trim();
+    private MusicStore(Catalog catalog, String albumsTxtPath, Supplier<List<String>> sourceFiles,
+            String albumsDirectoryPath, int loaderThreads, boolean offHeap, long loadTimeNanos) {
+        this.current = new Generation(catalog, sourceFiles, 0);
+        this.albumsTxtPath = albumsTxtPath;
+        this.albumsDirectoryPath = albumsDirectoryPath;
+        this.loaderThreads = loaderThreads;
+        this.offHeap = offHeap;
+        this.loadTimeNanos = loadTimeNanos;
+        this.loading = new CountDownLatch(0);
+    }
 
-                // Build the album file name
-                String filename = albumTitle + "_" + artist + ".txt";
-                String fullPath = albumsDirectoryPath + "/" + filename;
+    /**
+     * Constructs a MusicStore object with an empty catalog for loadInBackground to fill
+     */
+    private MusicStore(String albumsTxtPath, String albumsDirectoryPath, int loaderThreads, CountDownLatch loading) {
+        ColumnarCatalog empty = new ColumnarCatalog();
+        empty.finishLoading();
+        this.current = new Generation(empty, () -> List.of(albumsTxtPath), 0);
+        this.albumsTxtPath = albumsTxtPath;
+        this.albumsDirectoryPath = albumsDirectoryPath;
+        this.loaderThreads = Math.max(1, loaderThreads);
+        this.offHeap = false;
+        this.loading = loading;
+    }
 
-                readAlbumFile(fullPath);
+    /**
+     * Returns a store that is usable at once and loads the album files on a
+     * daemon thread, with loaderThreads workers parsing them. Lookups see the
+     * albums loaded so far, in "albums.txt" order, until isFullyLoaded; after
+     * that the store behaves like one built by the constructor. If albums.txt
+     * cannot be read the catalog stays empty and getLoadReport says why
+     *
+     * @pre albumsTxtPath != null && albumsDirectoryPath != null && loaderThreads >= 1
+     */
+    public static MusicStore loadInBackground(String albumsTxtPath, String albumsDirectoryPath, int loaderThreads) {
+        MusicStore store = new MusicStore(albumsTxtPath, albumsDirectoryPath, loaderThreads, new CountDownLatch(1));
+        Thread loader = new Thread(store::loadInBackground, "catalog-loader");
+        loader.setDaemon(true);
+        loader.start();
+        return store;
+    }
+
+    private void loadInBackground() {
+        long start = System.nanoTime();
+        ColumnarCatalog columns = new ColumnarCatalog();
+        List<String> sourceFiles = new ArrayList<>();
+        try {
+            List<String> albumFiles = AlbumFile.readAlbumList(albumsTxtPath, albumsDirectoryPath);
+            albumsListed = albumFiles.size();
+            loadAllAlbums(columns, sourceFiles, albumFiles, true);
+        } catch (IOException e) {
+            loadFailure = e;
+        } finally {
+            // publish whatever was loaded, so that waiting threads always wake up to a complete generation
+            columns.finishLoading();
+            if (sourceFiles.isEmpty()) {
+                sourceFiles.add(albumsTxtPath);
             }
+            loadTimeNanos = System.nanoTime() - start;
+            current = new Generation(columns, () -> sourceFiles, 0);
+            loading.countDown();
         }
     }
 
     /**
-     * Reads a single album file
+     * Loads the album files like the constructor, then moves the catalog out
+     * of the Java heap into a direct buffer in the snapshot layout. Lookups
+     * read the buffer and only create the Song and Album objects they
+     * return, so a large catalog adds little to the heap the garbage
+     * collector has to trace. Lookups return the same results as a store
+     * built by the constructor
+     *
+     * @pre albumsTxtPath != null && albumsDirectoryPath != null && loaderThreads >= 1
+     * @throws IOException if files are missing or unreadable
      */
-    private void readAlbumFile(String filePath) throws IOException {
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            // First line
-            String heading = br.readLine();
-            String[] parts = heading.split(",");
+    public static MusicStore offHeap(String albumsTxtPath, String albumsDirectoryPath, int loaderThreads)
+            throws IOException {
+        long start = System.nanoTime();
+        MusicStore parsed = new MusicStore(albumsTxtPath, albumsDirectoryPath, loaderThreads);
+        List<String> sourceFiles = parsed.current.sourceFiles();
+        CatalogSnapshot image = CatalogSnapshot.offHeap(albumsInOrder(parsed.current.catalog), sourceFiles);
+        return new MusicStore(image, albumsTxtPath, () -> sourceFiles, albumsDirectoryPath, parsed.loaderThreads,
+                true, System.nanoTime() - start);
+    }
 
-            String albumTitle = parts[0].trim();
-            String artist = parts[1].trim();
-            String genre = parts[2].trim();
-            int year = Integer.parseInt(parts[3].trim());
+    /**
+     * Returns a store that reads only albums.txt up front and parses an album
+     * file when one of its albums is first looked up, keeping at most
+     * cacheCapacity parsed albums (see LazyCatalog). Looking songs up by title
+     * needs one pass over every album file, which starts at once on a daemon
+     * thread and keeps only a few bytes per song. The album files must not
+     * change while the store is in use, so it cannot hot-reload
+     *
+     * @pre albumsTxtPath != null && albumsDirectoryPath != null && cacheCapacity >= 1
+     * @throws IOException if albums.txt is missing or unreadable
+     */
+    public static MusicStore lazy(String albumsTxtPath, String albumsDirectoryPath, int cacheCapacity)
+            throws IOException {
+        long start = System.nanoTime();
+        LazyCatalog catalog = new LazyCatalog(albumsTxtPath, albumsDirectoryPath, cacheCapacity);
+        Supplier<List<String>> sourceFiles = () -> {
+            List<String> files = new ArrayList<>();
+            files.add(albumsTxtPath);
+            files.addAll(catalog.getAlbumFiles());
+            return files;
+        };
+        MusicStore store = new MusicStore(catalog, albumsTxtPath, sourceFiles, albumsDirectoryPath, 1, false,
+                System.nanoTime() - start);
+        Thread census = new Thread(catalog::prepareCensus, "catalog-census");
+        census.setDaemon(true);
+        census.start();
+        return store;
+    }
 
-            // Read remaining lines
-            ArrayList<Song> songs = new ArrayList<>();
-            String songLine;
-            while ((songLine = br.readLine()) != null) {
-                String songTitle = songLine.trim();
-                if (!songTitle.isEmpty()) {
-                    Song song = new Song(songTitle, artist, albumTitle);
-                    songs.add(song);
+    /**
+     * Opens the catalog from a binary snapshot if one exists and none of its
+     * source files have changed; otherwise loads the album files and writes a
+     * fresh snapshot for the next start
+     *
+     * @pre snapshotPath != null && albumsTxtPath != null && albumsDirectoryPath != null
+     * @throws IOException if files are missing or unreadable
+     */
+    public static MusicStore fromSnapshot(String snapshotPath, String albumsTxtPath, String albumsDirectoryPath)
+            throws IOException {
+        long start = System.nanoTime();
+        CatalogSnapshot snapshot = CatalogSnapshot.open(Paths.get(snapshotPath), albumsTxtPath);
+        if (snapshot != null) {
+            List<String> sourceFiles = snapshot.getSourceFiles();
+            return new MusicStore(snapshot, albumsTxtPath, () -> sourceFiles, albumsDirectoryPath, 0, false,
+                    System.nanoTime() - start);
+        }
+
+        MusicStore store = new MusicStore(albumsTxtPath, albumsDirectoryPath, Runtime.getRuntime().availableProcessors());
+        // a snapshot does not record skipped files, so it would not notice them being fixed
+        if (store.quarantined.isEmpty()) {
+            store.writeSnapshot(snapshotPath);
+        }
+        return store;
+    }
+
+    /**
+     * Compiles this store into a binary snapshot that fromSnapshot can map on
+     * a later start, waiting for a background load to finish first
+     *
+     * @pre snapshotPath != null
+     */
+    public void writeSnapshot(String snapshotPath) throws IOException {
+        awaitLoad();
+        Generation g = current;
+        CatalogSnapshot.write(albumsInOrder(g.catalog), g.sourceFiles(), Paths.get(snapshotPath));
+    }
+
+    /**
+     * The catalog's albums in load order, fetched one at a time as the list
+     * is read so that no more than one is held at once
+     */
+    private static List<Album> albumsInOrder(Catalog catalog) {
+        return new AbstractList<Album>() {
+            @Override
+            public Album get(int index) {
+                return catalog.getAlbum(index);
+            }
 
-                    // Store in songsByTitle
-                    String lowerSongTitle = songTitle.toLowerCase();
-                    songsByTitle.computeIfAbsent(lowerSongTitle, _ -> new ArrayList<>()).add(song);
+            @Override
+            public int size() {
+                return catalog.getAlbumCount();
+            }
+        };
+    }
 
-                    // Store in songsByArtist
-                    String lowerArtist = artist.toLowerCase();
-                    songsByArtist.computeIfAbsent(lowerArtist, _ -> new ArrayList<>()).add(song);
+    /**
+     * Loads the given album files into columns on loaderThreads workers and
+     * adds albums.txt and each loaded file to sourceFiles. A file that cannot
+     * be read or parsed is quarantined and skipped. If publish, the albums
+     * loaded so far become the current generation each time their number
+     * doubles
+     */
+    private void loadAllAlbums(ColumnarCatalog columns, List<String> sourceFiles, List<String> albumFiles,
+            boolean publish) throws IOException {
+        sourceFiles.add(albumsTxtPath);
+        ExecutorService pool = loaderThreads == 1 || albumFiles.size() < 2 ? null
+                : Executors.newFixedThreadPool(Math.min(loaderThreads, albumFiles.size()));
+        try {
+            List<Future<AlbumFile>> parsed = new ArrayList<>();
+            if (pool != null) {
+                for (String fullPath : albumFiles) {
+                    parsed.add(pool.submit(() -> AlbumFile.read(fullPath)));
                 }
             }
+            int nextPublish = FIRST_PUBLISH;
+            // merge on this thread, in file order, so later titles overwrite earlier ones as before
+            for (int i = 0; i < albumFiles.size(); i++) {
+                AlbumFile album;
+                try {
+                    album = pool == null ? AlbumFile.read(albumFiles.get(i)) : parsed.get(i).get();
+                } catch (IOException | RuntimeException e) {
+                    quarantined.add(albumFiles.get(i));
+                    continue;
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Error error) {
+                        throw error;
+                    }
+                    quarantined.add(albumFiles.get(i));
+                    continue;
+                }
+                columns.addAlbum(album);
+                sourceFiles.add(albumFiles.get(i));
+                if (publish && columns.getAlbumCount() == nextPublish) {
+                    List<String> files = List.copyOf(sourceFiles);
+                    current = new Generation(columns.loadedSoFar(), () -> files, 0);
+                    nextPublish *= 2;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading albums");
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Returns whether every album file has been loaded (or quarantined).
+     * Only a store from loadInBackground is ever not fully loaded
+     */
+    public boolean isFullyLoaded() {
+        return loading.getCount() == 0;
+    }
+
+    /**
+     * Waits until isFullyLoaded
+     */
+    public void awaitFullyLoaded() throws InterruptedException {
+        loading.await();
+    }
 
-            // Create the album object
-            Album album = new Album(albumTitle, artist, genre, year, songs);
+    private void awaitLoad() throws InterruptedIOException {
+        try {
+            loading.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the catalog to load");
+        }
+    }
+
+    /**
+     * Returns the album files that were skipped because they could not be
+     * read or parsed, in the order they were found: "albums.txt" order, except
+     * for a lazy store, which finds them as it reads them
+     */
+    public List<String> getQuarantinedFiles() {
+        if (current.catalog instanceof LazyCatalog lazy) {
+            return lazy.getUnreadableFiles();
+        }
+        return List.copyOf(quarantined);
+    }
+
+    /**
+     * Waits until a lazy store has read every album file for its census, so
+     * that every unreadable file has been found; returns at once otherwise
+     */
+    void awaitCensus() {
+        if (current.catalog instanceof LazyCatalog lazy) {
+            lazy.prepareCensus();
+        }
+    }
+
+    /**
+     * Returns whether this store was opened with lazy, parsing album files as
+     * their albums are looked up
+     */
+    public boolean isLazy() {
+        return current.catalog instanceof LazyCatalog;
+    }
+
+    /**
+     * Returns how many album lookups a lazy store answered from its album
+     * cache, or 0 for any other store
+     */
+    public long getAlbumCacheHits() {
+        return current.catalog instanceof LazyCatalog lazy ? lazy.getCache().getHits() : 0;
+    }
+
+    /**
+     * Returns how many album lookups a lazy store had to parse an album file
+     * for, or 0 for any other store
+     */
+    public long getAlbumCacheMisses() {
+        return current.catalog instanceof LazyCatalog lazy ? lazy.getCache().getMisses() : 0;
+    }
+
+    /**
+     * Returns how long loading the catalog took, in milliseconds, or 0 while
+     * a background load is still running
+     */
+    public long getLoadTimeMillis() {
+        return loadTimeNanos / 1_000_000;
+    }
+
+    /**
+     * Returns a one-line summary of the catalog load for startup logging, or
+     * of its progress while it loads in the background
+     */
+    public String getLoadReport() {
+        Catalog catalog = current.catalog;
+        if (catalog instanceof LazyCatalog lazy) {
+            AlbumCache cache = lazy.getCache();
+            return String.format("Listed %d albums in %.1f ms, parsing album files on first use; "
+                    + "album cache holds %d of %d (%d hits, %d misses, %d evictions)",
+                    lazy.getListedCount(), loadTimeNanos / 1_000_000.0, cache.size(), cache.getCapacity(),
+                    cache.getHits(), cache.getMisses(), cache.getEvictions());
+        }
+        if (!isFullyLoaded()) {
+            int listed = albumsListed;
+            return String.format("Loading albums in the background using %d loader thread(s): "
+                    + "%d of %s so far (%d songs)", loaderThreads, catalog.getAlbumCount(),
+                    listed < 0 ? "?" : String.valueOf(listed), catalog.getSongCount());
+        }
+        IOException failure = loadFailure;
+        if (failure != null) {
+            return "Could not load albums: " + failure.getMessage();
+        }
+        String source = loaderThreads == 0 ? "catalog snapshot"
+                : loaderThreads + " loader thread(s)" + (offHeap ? ", off-heap" : "");
+        String report = String.format("Loaded %d albums (%d songs) in %.1f ms using %s",
+                catalog.getAlbumCount(), catalog.getSongCount(), loadTimeNanos / 1_000_000.0, source);
+        return quarantined.isEmpty() ? report
+                : report + String.format("; skipped %d unreadable album file(s)", quarantined.size());
+    }
+
+    /**
+     * Returns how many times the catalog has been reloaded
+     */
+    public long getGeneration() {
+        return current.number;
+    }
+
+    /**
+     * Starts watching albums.txt and the album directory on a daemon thread,
+     * and reloads the catalog whenever they change. Only the album files that
+     * changed, or that albums.txt newly lists, are parsed; a change to
+     * albums.txt rereads the list itself. Albums a reload adds or changes come
+     * after the rest in load order until the next restart, so they win
+     * getAlbumByTitle over older albums with the same title. A file that does
+     * not parse, for example because it is still being written, keeps its
+     * previous albums until it changes again
+     *
+     * @return a handle that stops the watching when closed
+     * @throws IOException if the files cannot be watched
+     * @throws IllegalStateException if the store is lazy
+     */
+    public Closeable startHotReload() throws IOException {
+        if (current.catalog instanceof LazyCatalog) {
+            throw new IllegalStateException("A lazy store reads its album files as it goes and cannot reload them");
+        }
+        Path directory = Paths.get(albumsDirectoryPath).toAbsolutePath();
+        Path list = Paths.get(albumsTxtPath).toAbsolutePath();
+        WatchService watcher = directory.getFileSystem().newWatchService();
+        try {
+            WatchKey albumsKey = directory.register(watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            WatchKey listKey = list.getParent().equals(directory) ? albumsKey
+                    : list.getParent().register(watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            Thread thread = new Thread(() -> watch(watcher, albumsKey, listKey, list.getFileName()), "catalog-reload");
+            thread.setDaemon(true);
+            thread.start();
+        } catch (IOException | RuntimeException e) {
+            watcher.close();
+            throw e;
+        }
+        return watcher;
+    }
 
-            // Store in albumsByTitle
-            albumsByTitle.put(albumTitle.toLowerCase(), album);
+    /**
+     * Reloads the catalog after each burst of file events until the watcher is closed
+     */
+    private void watch(WatchService watcher, WatchKey albumsKey, WatchKey listKey, Path listName) {
+        try {
+            while (true) {
+                Set<String> changed = new LinkedHashSet<>();
+                boolean listChanged = false;
+                boolean overflowed = false;
+                // copying files or saving from an editor makes several events; take them all before reloading
+                WatchKey key = watcher.take();
+                while (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == OVERFLOW) {
+                            overflowed = true;
+                            continue;
+                        }
+                        Path name = (Path) event.context();
+                        if (key == listKey && name.equals(listName)) {
+                            listChanged = true;
+                        } else if (key == albumsKey) {
+                            changed.add(albumsDirectoryPath + "/" + name);
+                        }
+                    }
+                    key.reset();
+                    key = watcher.poll(RELOAD_QUIET_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                try {
+                    if (overflowed) {
+                        // events were lost: check every file
+                        listChanged = true;
+                        try (Stream<Path> files = Files.list(Paths.get(albumsDirectoryPath))) {
+                            files.forEach(f -> changed.add(albumsDirectoryPath + "/" + f.getFileName()));
+                        }
+                    }
+                    reload(changed, listChanged);
+                } catch (IOException e) {
+                    // albums.txt or the directory could not be read; the next change retries
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // stopped
+        }
+    }
 
-            // Store in albumsByArtist
-            String lowerArtist = artist.toLowerCase();
-            albumsByArtist.computeIfAbsent(lowerArtist, _ -> new ArrayList<>()).add(album);
+    /**
+     * Applies changes to the given album files, named as in the store's
+     * source files, and to albums.txt if listChanged, and publishes the
+     * resulting catalog as the next generation. If the current generation's
+     * search indexes were built, the new generation's are built before this
+     * returns. Returns false if nothing changed. Waits for a background
+     * load to finish first
+     *
+     * @throws IOException if albums.txt cannot be read
+     */
+    boolean reload(Collection<String> changedFiles, boolean listChanged) throws IOException {
+        awaitLoad();
+        synchronized (reloadLock) {
+            Generation old = current;
+            if (reloader == null) {
+                // quarantined files are still listed, so fixing one loads it
+                reloader = new CatalogReloader(old.catalog, old.sourceFiles(), quarantined, albumsDirectoryPath);
+            }
+            CatalogReloader.Result result = reloader.reload(changedFiles, listChanged);
+            if (result == null) {
+                return false;
+            }
+            Generation next = new Generation(result.catalog, result::sourceFiles, old.number + 1);
+            current = next;
+            if (old.search != null) {
+                next.search();
+            }
+            return true;
         }
     }
 
@@ -104,7 +569,46 @@ public class MusicStore {
      * @pre albumTitle != null
      */
     public Album getAlbumByTitle(String albumTitle) {
-        return albumsByTitle.get(albumTitle.toLowerCase());
+        return current.catalog.getAlbumByTitle(albumTitle.toLowerCase());
+    }
+
+    /**
+     * Retrieves every Album with this title, by whichever artist, in load
+     * order. getAlbumByTitle returns the last of them
+     *
+     * @pre albumTitle != null
+     */
+    public List<Album> getAlbumsByTitle(String albumTitle) {
+        return Collections.unmodifiableList(current.catalog.getAlbumsByTitle(albumTitle.toLowerCase()));
+    }
+
+    /**
+     * Retrieves the Album with this title and artist. Unlike getAlbumByTitle,
+     * this finds an album whose title a later album by another artist shares
+     *
+     * @pre albumTitle != null && artist != null
+     */
+    public Album findAlbum(String albumTitle, String artist) {
+        return current.catalog.findAlbum(albumTitle.toLowerCase(), artist.toLowerCase());
+    }
+
+    /**
+     * Retrieves the Song with this title on the album with this title and artist
+     *
+     * @pre title != null && artist != null && albumTitle != null
+     */
+    public Song findSong(String title, String artist, String albumTitle) {
+        return current.catalog.findSong(title.toLowerCase(), artist.toLowerCase(), albumTitle.toLowerCase());
+    }
+
+    /**
+     * Retrieves the first Song in load order with this title and artist, on
+     * whichever album
+     *
+     * @pre title != null && artist != null
+     */
+    public Song findSong(String title, String artist) {
+        return current.catalog.findSong(title.toLowerCase(), artist.toLowerCase());
     }
 
     /**
@@ -113,7 +617,7 @@ public class MusicStore {
      * @pre artist != null
      */
     public List<Album> getAlbumsByArtist(String artist) {
-        return Collections.unmodifiableList(albumsByArtist.getOrDefault(artist.toLowerCase(), Collections.emptyList()));
+        return Collections.unmodifiableList(current.catalog.getAlbumsByArtist(artist.toLowerCase()));
     }
 
     /**
@@ -122,7 +626,7 @@ public class MusicStore {
      * @pre songTitle != null
      */
     public List<Song> getSongsByTitle(String songTitle) {
-        return Collections.unmodifiableList(songsByTitle.getOrDefault(songTitle.toLowerCase(), Collections.emptyList()));
+        return Collections.unmodifiableList(current.catalog.getSongsByTitle(songTitle.toLowerCase()));
     }
 
     /**
@@ -131,6 +635,197 @@ public class MusicStore {
      * @pre artist != null
      */
     public List<Song> getSongsByArtist(String artist) {
-        return Collections.unmodifiableList(songsByArtist.getOrDefault(artist.toLowerCase(), Collections.emptyList()));
+        return Collections.unmodifiableList(current.catalog.getSongsByArtist(artist.toLowerCase()));
+    }
+
+    /**
+     * Searches song titles for a query, tolerating typos. Songs whose title
+     * is the query come first, then titles starting with it, then titles
+     * sharing most of its letters
+     *
+     * @pre query != null && limit >= 0
+     */
+    public List<Song> searchSongs(String query, int limit) {
+        return Collections.unmodifiableList(search().songs.search(query, limit));
+    }
+
+    /**
+     * Searches album titles for a query, ranked like searchSongs
+     *
+     * @pre query != null && limit >= 0
+     */
+    public List<Album> searchAlbums(String query, int limit) {
+        return Collections.unmodifiableList(search().albums.search(query, limit));
+    }
+
+    /**
+     * Searches artist names for a query, ranked like searchSongs
+     *
+     * @pre query != null && limit >= 0
+     */
+    public List<String> searchArtists(String query, int limit) {
+        return Collections.unmodifiableList(search().artists.search(query, limit));
+    }
+
+    /**
+     * Returns up to limit songs whose title, artist, album title or genre
+     * contain every word of the query, in catalog order. Case, accents and
+     * punctuation are ignored, and the word OR separates alternatives, so
+     * "love pop OR jazz" finds pop songs with "love" in them and jazz songs
+     *
+     * @pre query != null && limit >= 0
+     */
+    public List<Song> searchText(String query, int limit) {
+        return Collections.unmodifiableList(search().text.search(query, limit));
+    }
+
+    /**
+     * Returns up to limit song titles, album titles and artist names that
+     * start with prefix, in alphabetical order, for autocompletion
+     *
+     * @pre prefix != null && limit >= 0
+     */
+    public List<String> autocomplete(String prefix, int limit) {
+        Search s = search();
+        TreeSet<String> names = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        names.addAll(s.songs.complete(prefix, Song::getTitle, limit));
+        names.addAll(s.albums.complete(prefix, Album::getTitle, limit));
+        names.addAll(s.artists.complete(prefix, a -> a, limit));
+        List<String> result = new ArrayList<>(names);
+        return Collections.unmodifiableList(result.subList(0, Math.min(limit, result.size())));
+    }
+
+    /**
+     * Builds the search indexes now rather than on the first search. Safe to
+     * call from a background thread while the store is in use. During a
+     * background load it waits for the load to finish, so that the indexes
+     * are built once, over the whole catalog. The indexes hold every song
+     * title, so for a lazy store they cost memory in proportion to the
+     * catalog; its album cache is left alone
+     */
+    public void prepareSearch() {
+        try {
+            loading.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        search();
+    }
+
+    /**
+     * Returns the current generation's search indexes
+     */
+    private Search search() {
+        return current.search();
+    }
+
+    /**
+     * A catalog and everything derived from it, replaced as a whole by a
+     * reload. The search indexes are built the first time they are needed, so
+     * stores that are never searched do not pay for them at load time
+     */
+    private static final class Generation {
+        private final Catalog catalog;
+        private final Supplier<List<String>> sourceFiles;	// albums.txt followed by every album file
+        private final long number;
+        private volatile Search search;
+
+        private Generation(Catalog catalog, Supplier<List<String>> sourceFiles, long number) {
+            this.catalog = catalog;
+            this.sourceFiles = sourceFiles;
+            this.number = number;
+        }
+
+        private List<String> sourceFiles() {
+            return sourceFiles.get();
+        }
+
+        private Search search() {
+            Search s = search;
+            if (s == null) {
+                synchronized (this) {
+                    s = search;
+                    if (s == null) {
+                        s = new Search(catalog);
+                        search = s;
+                    }
+                }
+            }
+            return s;
+        }
+    }
+
+    /**
+     * Search indexes over the catalog's song titles, album titles and
+     * artists, and a word index over all of them and the genres. Songs and
+     * albums are referred to by catalog number, so the indexes keep none of
+     * them in memory
+     */
+    private static final class Search {
+        private final SearchIndex<Song> songs;
+        private final SearchIndex<Album> albums;
+        private final SearchIndex<String> artists;
+        private final FullTextIndex text;
+
+        private Search(Catalog catalog) {
+            String[] songTitles = new String[catalog.getSongCount()];
+            String[] albumTitles = new String[catalog.getAlbumCount()];
+            Map<String, String> artistNames = new LinkedHashMap<>();	// lowercased -> first spelling
+            text = new FullTextIndex(catalog::getSong);
+            int[] counts = new int[2];		// albums and songs seen
+            // one pass, which for a lazy catalog reads each album file once and past its cache
+            catalog.forEachAlbum(album -> {
+                albumTitles[counts[0]++] = album.getTitle();
+                for (Song s : album.getSongs()) {
+                    songTitles[counts[1]++] = s.getTitle();
+                }
+                artistNames.putIfAbsent(album.getArtist().toLowerCase(), album.getArtist());
+                text.addAlbum(album);
+            });
+            songs = new SearchIndex<>(songTitles.length, i -> songTitles[i], catalog::getSong);
+            albums = new SearchIndex<>(albumTitles.length, i -> albumTitles[i], catalog::getAlbum);
+            artists = new SearchIndex<>(new ArrayList<>(artistNames.values()), a -> a);
+        }
+    }
+
+    /**
+     * Returns the canonical instance of a song: the store's own Song when the
+     * catalog has one with the same title, artist, and album, otherwise one
+     * shared instance created on the first request for that key
+     *
+     * @pre title != null && artist != null && albumTitle != null
+     */
+    public Song internSong(String title, String artist, String albumTitle) {
+        return internSong(new Song(title, artist, albumTitle));
+    }
+
+    /**
+     * Returns the canonical instance of a song equal to the given one
+     *
+     * @pre song != null
+     */
+    public Song internSong(Song song) {
+        Song s = findSong(song.getTitle(), song.getArtist(), song.getAlbumTitle());
+        if (s != null && s.equals(song)) {
+            return s;
+        }
+        Song pooled = songPool.putIfAbsent(song, song);
+        return pooled == null ? song : pooled;
+    }
+
+    /**
+     * Returns the canonical instance of an album equal to the given one,
+     * preferring the store's own Album with the same title and artist
+     *
+     * @pre album != null
+     */
+    public Album internAlbum(Album album) {
+        Album a = findAlbum(album.getTitle(), album.getArtist());
+        if (a != null && a.equals(album)) {
+            return a;
+        }
+        Album pooled = albumPool.putIfAbsent(album, album);
+        return pooled == null ? album : pooled;
     }
 }
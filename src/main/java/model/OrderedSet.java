@@ -0,0 +1,159 @@
+package model;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Set that keeps its elements in the order they were added and can be read
+ * from any number of threads, without locking, while one thread at a time
+ * changes it.
+ *
+ * Elements sit in an array in insertion order, with a concurrent map from
+ * each element to its slot. Removing an element clears its slot, and the
+ * array is rewritten without the cleared slots once they make up half of it.
+ * Every change publishes the array and its length together, so a reader
+ * iterates the elements present when it started, in order; one that is
+ * removed while the reader is running may or may not be seen.
+ */
+final class OrderedSet<E> extends AbstractCollection<E> {
+    private static final int MIN_COMPACT = 16;		// cleared slots before the array is rewritten
+
+    private final ConcurrentHashMap<E, Integer> slots;
+    private volatile Slots published;
+    private int cleared;		// only read and written by the thread making a change
+
+    OrderedSet() {
+        this.slots = new ConcurrentHashMap<>();
+        this.published = new Slots(new Object[8], 0);
+    }
+
+    /**
+     * Appends an element unless it is already present; returns true if it was added
+     *
+     * @pre e != null && no other thread is changing this set
+     */
+    @Override
+    public boolean add(E e) {
+        if (slots.containsKey(e)) {
+            return false;
+        }
+        Slots s = published;
+        Object[] elements = s.elements;
+        int length = s.length;
+        if (length == elements.length) {
+            elements = cleared > 0 ? compact(s, elements.length) : Arrays.copyOf(elements, length * 2);
+            length = size();
+        }
+        elements[length] = e;
+        slots.put(e, length);
+        published = new Slots(elements, length + 1);
+        return true;
+    }
+
+    /**
+     * Removes an element if present; returns true if it was removed
+     *
+     * @pre no other thread is changing this set
+     */
+    @Override
+    public boolean remove(Object o) {
+        Integer slot = slots.remove(o);
+        if (slot == null) {
+            return false;
+        }
+        Slots s = published;
+        s.elements[slot] = null;
+        if (++cleared >= MIN_COMPACT && cleared * 2 >= s.length) {
+            Object[] elements = compact(s, s.elements.length);
+            published = new Slots(elements, size());
+        } else {
+            published = new Slots(s.elements, s.length);	// publishes the cleared slot
+        }
+        return true;
+    }
+
+    /**
+     * Copies the live elements of s into a new array of the given capacity,
+     * at least twice their number, and moves their slots
+     */
+    @SuppressWarnings("unchecked")
+    private Object[] compact(Slots s, int capacity) {
+        Object[] elements = new Object[Math.max(capacity, size() * 2)];
+        int live = 0;
+        for (int i = 0; i < s.length; i++) {
+            Object e = s.elements[i];
+            if (e != null) {
+                elements[live] = e;
+                slots.put((E) e, live++);
+            }
+        }
+        cleared = 0;
+        return elements;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return slots.containsKey(o);
+    }
+
+    @Override
+    public int size() {
+        return slots.size();
+    }
+
+    /**
+     * Iterates the elements present when it is created, in the order they
+     * were added. Does not support remove; never throws
+     * ConcurrentModificationException
+     */
+    @Override
+    public Iterator<E> iterator() {
+        Slots s = published;
+        return new Iterator<E>() {
+            private int index;
+            private E next = advance();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public E next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                E e = next;
+                next = advance();
+                return e;
+            }
+
+            @SuppressWarnings("unchecked")
+            private E advance() {
+                while (index < s.length) {
+                    Object e = s.elements[index++];
+                    if (e != null) {
+                        return (E) e;
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    /**
+     * An array of elements and how many of its slots are in use
+     */
+    private static final class Slots {
+        private final Object[] elements;
+        private final int length;
+
+        private Slots(Object[] elements, int length) {
+            this.elements = elements;
+            this.length = length;
+        }
+    }
+}
@@ -1,22 +1,88 @@
 package model;
 import java.util.List;
-import java.util.Map;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
 
 
+/**
+ * A named list of songs, plus the bounded recently and frequently played
+ * lists LibraryModel keeps as playlists.
+ *
+ * Thread safety: changes to the songs are made under a lock, which a
+ * playlist owned by a LibraryModel shares with the library, so they are
+ * ordered with the library's own changes. Reading the songs never locks: they
+ * are kept in a copy-on-write list, or for auto-playlists an OrderedSet.
+ * Plays are recorded under a StampedLock; the recently and frequently played
+ * songs are copied under an optimistic read, which only waits for the lock
+ * when a play is recorded during the copy.
+ */
 public class PlayList {
+	public static final int DEFAULT_CAPACITY = 10;
+
 	private final String name;
-	private final List<Song> songs;
-	private final List<Song> recent;
-	private final Map<Song, Integer> frequent;
+	private final Collection<Song> songs;
+	private final RecencyList recent;
+	private final TopKTracker frequent;
+	private final boolean approximateFrequent;
+	private final Lock lock;			// guards changes to songs
+	private final StampedLock history;	// guards recent and frequent
+	private volatile LibraryListener listener;
 	
 	public PlayList(String name) {
+		this(name, DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * @param capacity how many songs the recently and frequently played lists keep
+	 * @pre name != null && capacity >= 1
+	 */
+	public PlayList(String name, int capacity) {
+		this(name, capacity, false);
+	}
+	
+	/**
+	 * @param capacity how many songs the recently and frequently played lists keep
+	 * @param approximateFrequent if true, the frequently played list counts plays itself
+	 *        in fixed memory instead of reading each song's exact play count
+	 * @pre name != null && capacity >= 1
+	 */
+	public PlayList(String name, int capacity, boolean approximateFrequent) {
+		this(name, capacity, approximateFrequent, new CopyOnWriteArrayList<>(), new ReentrantLock());
+	}
+	
+	private PlayList(String name, int capacity, boolean approximateFrequent, Collection<Song> songs, Lock lock) {
 		this.name = name;
-		this.songs = new ArrayList<>();
-		this.recent = new ArrayList<>();
-		this.frequent = new HashMap<>();
+		this.songs = songs;
+		this.recent = new RecencyList(capacity);
+		this.frequent = new TopKTracker(capacity);
+		this.approximateFrequent = approximateFrequent;
+		this.lock = lock;
+		this.history = new StampedLock();
+	}
+	
+	/**
+	 * Creates a playlist whose changes are made under its owner's lock
+	 *
+	 * @pre name != null && capacity >= 1 && lock != null
+	 */
+	static PlayList sharingLock(String name, int capacity, boolean approximateFrequent, Lock lock) {
+		return new PlayList(name, capacity, approximateFrequent, new CopyOnWriteArrayList<>(), lock);
+	}
+	
+	/**
+	 * Creates a playlist that holds each song at most once and removes songs in
+	 * O(1). LibraryModel uses these for the auto-playlists it keeps up to date
+	 *
+	 * @pre name != null && lock != null
+	 */
+	static PlayList withUniqueSongs(String name, Lock lock) {
+		return new PlayList(name, DEFAULT_CAPACITY, false, new OrderedSet<>(), lock);
 	}
 	
 	public String getName() {
@@ -24,13 +90,49 @@ public class PlayList {
 	}
 	
 	public void addSong(Song song) {
-		songs.add(song);
+		lock.lock();
+		try {
+			songs.add(song);
+			if (listener != null) {
+				listener.playListSongAdded(name, song);
+			}
+		} finally {
+			lock.unlock();
+		}
 	}
 	
 	public void removeSong(Song song) {
-		songs.remove(song);
-		recent.remove(song);
-		frequent.remove(song);
+		lock.lock();
+		try {
+			if (drop(song) && listener != null) {
+				listener.playListSongRemoved(name, song);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Removes a song without notifying the listener; returns true if the song was in the playlist
+	 *
+	 * @pre the caller holds the playlist's lock
+	 */
+	boolean drop(Song song) {
+		long stamp = history.writeLock();
+		try {
+			recent.remove(song);
+			frequent.remove(song);
+		} finally {
+			history.unlockWrite(stamp);
+		}
+		return songs.remove(song);
+	}
+	
+	/**
+	 * Set by the LibraryModel that owns this playlist
+	 */
+	void setListener(LibraryListener listener) {
+		this.listener = listener;
 	}
 	
     public List<Song> getSongs() {
@@ -38,36 +140,122 @@ public class PlayList {
     }
     
     public void addSongRecent(Song song) {
-    	recent.remove(song); recent.add(song);
-    	if (recent.size() > 10) recent.remove(0);
+    	long stamp = history.writeLock();
+    	try {
+    		recent.touch(song);
+    	} finally {
+    		history.unlockWrite(stamp);
+    	}
     }
     
+    /**
+     * Returns a copy of the recently played songs, most recent first
+     */
     public List<Song> getRecentlyPlayedSongs() {
-        List<Song> reversedList = new ArrayList<>(recent);
-        Collections.reverse(reversedList);
-        return reversedList;
+        return readHistory(() -> {
+            List<Song> newestFirst = new ArrayList<>();
+            for (Song s : recent) {
+            	if (newestFirst.size() == recent.capacity()) {
+            		break;	// stops a walk that a concurrent play sent round the ring
+            	}
+            	newestFirst.add(s);
+            }
+            return newestFirst;
+        });
     }
     
-    public void addSongFrequent(Song song) {
-    	frequent.put(song, song.getPlayCount());
-
-    	if (frequent.size() > 10) {
-    		Song leastPlayed = Collections.min(frequent.entrySet(), Map.Entry.comparingByValue()).getKey();
-            frequent.remove(leastPlayed);
+    /**
+     * Returns a read-only view of the recently played songs, most recent first.
+     * The view is not copied, so it reflects later plays; unlike
+     * getRecentlyPlayedSongs it must not be read while another thread plays songs
+     */
+    public Iterable<Song> recentlyPlayed() {
+    	return recent;
+    }
+    
+    /**
+     * Records a play of a song in the frequently played list. In exact mode the
+     * song's own play count is used; in approximate mode this call is the play.
+     * Package-private, since a library's songs are ranked by the library's
+     * counts (see LibraryModel.playSong), not the count shared on the song
+     */
+    @SuppressWarnings("deprecation")
+    void addSongFrequent(Song song) {
+    	addSongFrequent(song, song.getPlayCount());
+    }
+    
+    /**
+     * Records a play of a song whose play count is kept by the caller, as
+     * LibraryModel keeps its own counts. In approximate mode playCount is ignored
+     */
+    void addSongFrequent(Song song, int playCount) {
+    	long stamp = history.writeLock();
+    	try {
+    		if (approximateFrequent) {
+    			frequent.increment(song);
+    		} else {
+    			frequent.offer(song, playCount);
+    		}
+    	} finally {
+    		history.unlockWrite(stamp);
     	}
     }
     
+    /**
+     * Returns the frequently played songs, most played first, as an
+     * unmodifiable list that is shared until the next play changes it
+     */
     public List<Song> getFrequentlyPlayedSongs() {
-        List<Map.Entry<Song, Integer>> sortedEntries = new ArrayList<>(frequent.entrySet());
-
-        sortedEntries.sort(Map.Entry.<Song, Integer>comparingByValue().reversed());
-
-        List<Song> sortedSongs = new ArrayList<>();
-        for (Map.Entry<Song, Integer> entry : sortedEntries) {
-            sortedSongs.add(entry.getKey());
+        List<Song> top = readHistory(frequent::sortedIfCurrent);
+        if (top != null) {
+            return top;
         }
-
-        return sortedSongs;
+        // rebuild under the read lock, so that no play can change the heap mid-sort
+        long stamp = history.readLock();
+        try {
+            return frequent.sorted();
+        } finally {
+            history.unlockRead(stamp);
+        }
+    }
+    
+    /**
+     * Returns the play count the frequently played list holds for a song, or 0 if
+     * the song is not in it. In approximate mode this may overestimate
+     */
+    public int getFrequentPlayCount(Song song) {
+    	long stamp = history.readLock();	// a hash lookup is not safe to race with a play
+    	try {
+    		return frequent.count(song);
+    	} finally {
+    		history.unlockRead(stamp);
+    	}
+    }
+    
+    /**
+     * Copies part of the play history under an optimistic read, falling back
+     * to the read lock if a play was recorded meanwhile. A copy racing a play
+     * may see the lists half changed and fail, or stop short; either way it
+     * does not validate and is thrown away
+     */
+    private <T> T readHistory(Supplier<T> copy) {
+    	long stamp = history.tryOptimisticRead();
+    	if (stamp != 0) {
+    		try {
+    			T result = copy.get();
+    			if (history.validate(stamp)) {
+    				return result;
+    			}
+    		} catch (RuntimeException e) {
+    			// saw a play half recorded; copy again under the lock
+    		}
+    	}
+    	stamp = history.readLock();
+    	try {
+    		return copy.get();
+    	} finally {
+    		history.unlockRead(stamp);
+    	}
     }
     
 	public List<Song> getShuffledSongs() {
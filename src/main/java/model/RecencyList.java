@@ -0,0 +1,110 @@
+package model;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Bounded most-recently-played list. Songs sit on a doubly-linked ring behind
+ * a sentinel, newest first, with a hash map from song to node, so touching a
+ * song and evicting the oldest one are both O(1)
+ */
+class RecencyList implements Iterable<Song> {
+	private final int capacity;
+	private final Map<Song, Node> nodes;
+	private final Node sentinel;	// sentinel.next is the newest song, sentinel.prev the oldest
+
+	/**
+	 * @pre capacity >= 1
+	 */
+	RecencyList(int capacity) {
+		this.capacity = capacity;
+		this.nodes = new HashMap<>();
+		this.sentinel = new Node(null);
+		sentinel.prev = sentinel;
+		sentinel.next = sentinel;
+	}
+
+	/**
+	 * Moves a song to the front, evicting the oldest song if the list is over capacity
+	 */
+	void touch(Song song) {
+		Node node = nodes.get(song);
+		if (node == null) {
+			node = new Node(song);
+			nodes.put(song, node);
+		} else {
+			unlink(node);
+		}
+		linkFirst(node);
+
+		if (nodes.size() > capacity) {
+			Node oldest = sentinel.prev;
+			unlink(oldest);
+			nodes.remove(oldest.song);
+		}
+	}
+
+	void remove(Song song) {
+		Node node = nodes.remove(song);
+		if (node != null) {
+			unlink(node);
+		}
+	}
+
+	int size() {
+		return nodes.size();
+	}
+
+	int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * Walks the ring newest to oldest without copying it
+	 */
+	@Override
+	public Iterator<Song> iterator() {
+		return new Iterator<Song>() {
+			private Node next = sentinel.next;
+
+			@Override
+			public boolean hasNext() {
+				return next != sentinel;
+			}
+
+			@Override
+			public Song next() {
+				if (next == sentinel) {
+					throw new NoSuchElementException();
+				}
+				Song song = next.song;
+				next = next.next;
+				return song;
+			}
+		};
+	}
+
+	private void linkFirst(Node node) {
+		node.prev = sentinel;
+		node.next = sentinel.next;
+		sentinel.next.prev = node;
+		sentinel.next = node;
+	}
+
+	private static void unlink(Node node) {
+		node.prev.next = node.next;
+		node.next.prev = node.prev;
+	}
+
+	private static final class Node {
+		private final Song song;
+		private Node prev;
+		private Node next;
+
+		private Node(Song song) {
+			this.song = song;
+		}
+	}
+}
@@ -0,0 +1,515 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Prefix and typo-tolerant search over one kind of name (song titles, album
+ * titles or artists).
+ *
+ * Distinct names are kept lowercased in a sorted array, so the names starting
+ * with a prefix form one range found by binary search, which gives the same
+ * lookups as a trie in two flat arrays. The words of the names form a sorted
+ * vocabulary with a posting list of the names containing each word, and the
+ * vocabulary is indexed by bigrams so a misspelled word finds its candidates
+ * without scanning every word.
+ *
+ * A query is ranked in three tiers: the name equal to it, then names starting
+ * with it in alphabetical order, then names containing every query word. In
+ * the last tier a query word also matches words within a small edit distance,
+ * and the last query word matches words it is a prefix of, so results appear
+ * while a word is still being typed; closer words score higher. The last tier
+ * walks at most MAX_POSTINGS postings: when the query words are common it only
+ * considers the alphabetically first keys whose postings fit, so a match
+ * further on may be missed.
+ */
+final class SearchIndex<T> {
+    private static final int MAX_ALTERNATIVES = 16;	// vocabulary words tried per query word
+    private static final int MAX_POSTINGS = 1 << 13;	// postings the word tier walks per query
+    private static final float PREFIX_SCORE = 0.9f;
+
+    private final String[] keys;		// distinct lowercased names, sorted
+    private final int[] firstItem;		// items of keys[k] are itemIds[firstItem[k] .. firstItem[k + 1])
+    private final int[] itemIds;
+    private final IntFunction<T> item;
+
+    private final String[] words;		// distinct words of the keys, sorted
+    private final int[] firstPosting;	// keys containing words[w] are postings[firstPosting[w] .. firstPosting[w + 1])
+    private final int[] postings;		// ascending key numbers
+    private final Map<Integer, int[]> wordsByBigram;	// ascending word numbers, words with a letter only
+
+    private final BlockingQueue<Scratch> spareScratch;	// a few for queries to borrow, not one per thread
+
+    /**
+     * @pre items != null && name returns a non-null name for each item
+     */
+    SearchIndex(List<T> items, Function<T, String> name) {
+        this(items.size(), i -> name.apply(items.get(i)), items::get);
+    }
+
+    /**
+     * An index over items numbered 0 to count - 1 that keeps only their
+     * numbers, fetching an item through item when a search returns it
+     *
+     * @pre count >= 0 && name returns a non-null name for each number
+     */
+    SearchIndex(int count, IntFunction<String> name, IntFunction<T> item) {
+        int n = count;
+        String[] normalized = new String[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            normalized[i] = normalize(name.apply(i));
+            order[i] = i;
+        }
+        // stable, so items sharing a name keep their catalog order
+        Arrays.parallelSort(order, (a, b) -> normalized[a].compareTo(normalized[b]));
+
+        List<String> distinct = new ArrayList<>();
+        int[] first = new int[n + 1];
+        this.itemIds = new int[n];
+        this.item = item;
+        for (int i = 0; i < n; i++) {
+            String key = normalized[order[i]];
+            if (distinct.isEmpty() || !distinct.get(distinct.size() - 1).equals(key)) {
+                first[distinct.size()] = i;
+                distinct.add(key);
+            }
+            this.itemIds[i] = order[i];
+        }
+        first[distinct.size()] = n;
+        this.keys = distinct.toArray(new String[0]);
+        this.firstItem = Arrays.copyOf(first, keys.length + 1);
+
+        // vocabulary and posting lists, counted first so each list is one flat range
+        Map<String, Integer> counts = new HashMap<>();
+        for (String key : keys) {
+            for (String w : distinctWords(key)) {
+                counts.merge(w, 1, Integer::sum);
+            }
+        }
+        this.words = counts.keySet().toArray(new String[0]);
+        Arrays.sort(words);
+        Map<String, Integer> wordIds = new HashMap<>();
+        this.firstPosting = new int[words.length + 1];
+        for (int w = 0; w < words.length; w++) {
+            wordIds.put(words[w], w);
+            firstPosting[w + 1] = firstPosting[w] + counts.get(words[w]);
+        }
+        this.postings = new int[firstPosting[words.length]];
+        int[] fill = Arrays.copyOf(firstPosting, words.length);
+        for (int k = 0; k < keys.length; k++) {
+            for (String w : distinctWords(keys[k])) {
+                postings[fill[wordIds.get(w)]++] = k;
+            }
+        }
+
+        Map<Integer, List<Integer>> byBigram = new HashMap<>();
+        for (int w = 0; w < words.length; w++) {
+            if (hasLetter(words[w])) {
+                for (int gram : bigrams(words[w])) {
+                    byBigram.computeIfAbsent(gram, g -> new ArrayList<>()).add(w);
+                }
+            }
+        }
+        this.wordsByBigram = new HashMap<>();
+        for (Map.Entry<Integer, List<Integer>> e : byBigram.entrySet()) {
+            wordsByBigram.put(e.getKey(), e.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        this.spareScratch = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Returns up to limit items whose name matches the query, best first
+     */
+    List<T> search(String query, int limit) {
+        List<T> result = new ArrayList<>();
+        for (int k : rankedKeys(normalize(query), limit)) {
+            for (int i = firstItem[k]; i < firstItem[k + 1] && result.size() < limit; i++) {
+                result.add(item.apply(itemIds[i]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns up to limit names that start with prefix, in alphabetical order,
+     * each as spelled by the first item that has it
+     */
+    List<String> complete(String prefix, Function<T, String> name, int limit) {
+        List<String> result = new ArrayList<>();
+        String p = normalize(prefix);
+        for (int k = lowerBound(keys, p); k < keys.length && result.size() < limit && keys[k].startsWith(p); k++) {
+            result.add(name.apply(item.apply(itemIds[firstItem[k]])));
+        }
+        return result;
+    }
+
+    /**
+     * Key numbers of the best matches for a normalized query; stops once the
+     * keys found hold at least limit items
+     */
+    private List<Integer> rankedKeys(String q, int limit) {
+        List<Integer> ranked = new ArrayList<>();
+        if (q.isEmpty() || limit <= 0) {
+            return ranked;
+        }
+        int found = 0;
+        // the exact match sorts first in the prefix range
+        for (int k = lowerBound(keys, q); k < keys.length && found < limit && keys[k].startsWith(q); k++) {
+            ranked.add(k);
+            found += firstItem[k + 1] - firstItem[k];
+        }
+        if (found < limit) {
+            for (int k : wordMatches(q, limit - found)) {
+                ranked.add(k);
+                found += firstItem[k + 1] - firstItem[k];
+                if (found >= limit) {
+                    break;
+                }
+            }
+        }
+        return ranked;
+    }
+
+    /**
+     * Keys that contain every query word or a close alternative to it, best
+     * first, leaving out keys that start with the query
+     */
+    private List<Integer> wordMatches(String q, int limit) {
+        String[] queryWords = q.split(" ");
+        int[][] alternatives = new int[queryWords.length][];
+        float[][] altScores = new float[queryWords.length][];
+        long[] sizes = new long[queryWords.length];
+        for (int i = 0; i < queryWords.length; i++) {
+            findAlternatives(queryWords[i], i == queryWords.length - 1, i, alternatives, altScores);
+            if (alternatives[i].length == 0) {
+                return List.of();	// a word nothing matches
+            }
+            for (int w : alternatives[i]) {
+                sizes[i] += firstPosting[w + 1] - firstPosting[w];
+            }
+        }
+
+        // walk the query word with the fewest postings first, so only its keys are ever touched
+        Integer[] byCost = new Integer[queryWords.length];
+        for (int i = 0; i < byCost.length; i++) {
+            byCost[i] = i;
+        }
+        Arrays.sort(byCost, (a, b) -> Long.compare(sizes[a], sizes[b]));
+        int bound = keyBound(alternatives);
+
+        Scratch s = spareScratch.poll();
+        if (s == null) {
+            s = new Scratch(keys.length);
+        }
+        try {
+            for (int round = 0; round < byCost.length; round++) {
+                int i = byCost[round];
+                // alternatives are in descending score, so the first credit a key gets for a word is its best
+                for (int a = 0; a < alternatives[i].length; a++) {
+                    int w = alternatives[i][a];
+                    float score = altScores[i][a];
+                    int end = lowerBound(postings, firstPosting[w], firstPosting[w + 1], bound);
+                    for (int p = firstPosting[w]; p < end; p++) {
+                        int k = postings[p];
+                        if (round == 0) {
+                            if (s.matched[k] == 0) {
+                                s.touch(k);
+                                s.matched[k] = 1;
+                                s.score[k] = score;
+                            }
+                        } else if (s.matched[k] == round) {
+                            s.matched[k] = round + 1;
+                            s.score[k] += score;
+                        }
+                    }
+                }
+            }
+
+            // keep the best `limit` keys: best score, then the name closest in
+            // length to the query, then alphabetical
+            int[] best = new int[limit];
+            int size = 0;
+            for (int t = 0; t < s.touched; t++) {
+                int k = s.touchedKeys[t];
+                if (s.matched[k] != queryWords.length || keys[k].startsWith(q)) {
+                    continue;
+                }
+                if (size == limit && !better(s, q, k, best[size - 1])) {
+                    continue;
+                }
+                int at = size < limit ? size++ : size - 1;
+                while (at > 0 && better(s, q, k, best[at - 1])) {
+                    best[at] = best[at - 1];
+                    at--;
+                }
+                best[at] = k;
+            }
+            List<Integer> hits = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                hits.add(best[i]);
+            }
+            return hits;
+        } finally {
+            s.reset();
+            spareScratch.offer(s);		// dropped if the pool is full
+        }
+    }
+
+    /**
+     * The key number the postings walk stops before: all keys if every
+     * alternative's postings fit in MAX_POSTINGS, otherwise the largest bound
+     * whose postings below it still fit
+     */
+    private int keyBound(int[][] alternatives) {
+        if (postingsBelow(alternatives, keys.length) <= MAX_POSTINGS) {
+            return keys.length;
+        }
+        int lo = 1;		// at least one key, however many alternatives there are
+        int hi = keys.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (postingsBelow(alternatives, mid) <= MAX_POSTINGS) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    private long postingsBelow(int[][] alternatives, int bound) {
+        long count = 0;
+        for (int[] alts : alternatives) {
+            for (int w : alts) {
+                count += lowerBound(postings, firstPosting[w], firstPosting[w + 1], bound) - firstPosting[w];
+            }
+        }
+        return count;
+    }
+
+    private boolean better(Scratch s, String q, int a, int b) {
+        if (s.score[a] != s.score[b]) {
+            return s.score[a] > s.score[b];
+        }
+        int da = Math.abs(keys[a].length() - q.length());
+        int db = Math.abs(keys[b].length() - q.length());
+        return da != db ? da < db : a < b;
+    }
+
+    /**
+     * Vocabulary words a query word may stand for, best first: the word itself,
+     * words it is a prefix of (for the last query word), and words within the
+     * edit distance allowed for its length
+     */
+    private void findAlternatives(String word, boolean last, int i, int[][] alternatives, float[][] scores) {
+        Map<Integer, Float> found = new HashMap<>();
+        int exact = Arrays.binarySearch(words, word);
+        if (exact >= 0) {
+            found.put(exact, 1f);
+        }
+        if (last) {
+            int added = 0;
+            for (int w = lowerBound(words, word); w < words.length && added < MAX_ALTERNATIVES && words[w].startsWith(word); w++) {
+                if (found.putIfAbsent(w, PREFIX_SCORE) == null) {
+                    added++;
+                }
+            }
+        }
+        int maxDistance = word.length() < 3 ? 0 : word.length() < 6 ? 1 : 2;
+        if (maxDistance > 0 && hasLetter(word)) {
+            for (int gram : bigrams(word)) {
+                for (int w : wordsByBigram.getOrDefault(gram, new int[0])) {
+                    if (found.containsKey(w) || Math.abs(words[w].length() - word.length()) > maxDistance) {
+                        continue;
+                    }
+                    int d = distance(word, words[w], maxDistance);
+                    found.put(w, d <= maxDistance ? 1f - (float) d / (word.length() + 1) : -1f);
+                }
+            }
+        }
+
+        List<Map.Entry<Integer, Float>> ranked = new ArrayList<>();
+        for (Map.Entry<Integer, Float> e : found.entrySet()) {
+            if (e.getValue() > 0) {
+                ranked.add(e);
+            }
+        }
+        ranked.sort((a, b) -> Float.compare(b.getValue(), a.getValue()));
+        int n = Math.min(MAX_ALTERNATIVES, ranked.size());
+        alternatives[i] = new int[n];
+        scores[i] = new float[n];
+        for (int a = 0; a < n; a++) {
+            alternatives[i][a] = ranked.get(a).getKey();
+            scores[i][a] = ranked.get(a).getValue();
+        }
+    }
+
+    /**
+     * Edit distance counting an adjacent transposition as one edit, or
+     * max + 1 once it is known to exceed max
+     */
+    static int distance(String a, String b, int max) {
+        int[] prev2 = new int[b.length() + 1];
+        int[] prev = new int[b.length() + 1];
+        int[] cur = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            prev[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            cur[0] = i;
+            int rowMin = cur[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                cur[j] = Math.min(Math.min(cur[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    cur[j] = Math.min(cur[j], prev2[j - 2] + 1);
+                }
+                rowMin = Math.min(rowMin, cur[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] t = prev2;
+            prev2 = prev;
+            prev = cur;
+            cur = t;
+        }
+        return Math.min(prev[b.length()], max + 1);
+    }
+
+    /**
+     * The first index in from .. to whose value is at least key
+     *
+     * @pre sorted is ascending between from and to
+     */
+    private static int lowerBound(int[] sorted, int from, int to, int key) {
+        int lo = from;
+        int hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static int lowerBound(String[] sorted, String key) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid].compareTo(key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Lowercases a name and collapses runs of whitespace to one space
+     */
+    static String normalize(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        boolean space = false;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = sb.length() > 0;
+            } else {
+                if (space) {
+                    sb.append(' ');
+                    space = false;
+                }
+                sb.append(c);
+            }
+        }
+        return sb.toString().toLowerCase();
+    }
+
+    private static List<String> distinctWords(String key) {
+        List<String> result = new ArrayList<>();
+        for (String w : key.split(" ")) {
+            if (!w.isEmpty() && !result.contains(w)) {
+                result.add(w);
+            }
+        }
+        return result;
+    }
+
+    private static boolean hasLetter(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.isLetter(word.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Distinct bigrams of a word padded with a space at each end, each packed into an int
+     */
+    private static int[] bigrams(String word) {
+        String padded = " " + word + " ";
+        int[] grams = new int[padded.length() - 1];
+        int n = 0;
+        for (int i = 0; i + 1 < padded.length(); i++) {
+            int gram = (padded.charAt(i) << 16) | padded.charAt(i + 1);
+            boolean seen = false;
+            for (int j = 0; j < n && !seen; j++) {
+                seen = grams[j] == gram;
+            }
+            if (!seen) {
+                grams[n++] = gram;
+            }
+        }
+        return Arrays.copyOf(grams, n);
+    }
+
+    /**
+     * Score arrays for the word tier, borrowed by one query at a time. Only
+     * the keys touched by a query are cleared afterwards, so a query never
+     * costs O(keys). The index keeps at most one per processor between
+     * queries, so memory does not grow with the threads that search, such as
+     * one virtual thread per server session
+     */
+    private static final class Scratch {
+        private final float[] score;
+        private final int[] matched;	// how many query words a key has matched so far
+        private int[] touchedKeys = new int[64];
+        private int touched;
+
+        private Scratch(int keys) {
+            score = new float[keys];
+            matched = new int[keys];
+        }
+
+        private void touch(int k) {
+            if (touched == touchedKeys.length) {
+                touchedKeys = Arrays.copyOf(touchedKeys, touched * 2);
+            }
+            touchedKeys[touched++] = k;
+        }
+
+        private void reset() {
+            for (int t = 0; t < touched; t++) {
+                score[touchedKeys[t]] = 0;
+                matched[touchedKeys[t]] = 0;
+            }
+            touched = 0;
+        }
+    }
+}
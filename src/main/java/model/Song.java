@@ -1,12 +1,14 @@
 package model;
 
 /**
- * Represents a Song using its title, artist, and album
+ * Represents a Song using its title, artist, and album. Two songs are equal
+ * when their title, artist, and album match, ignoring case
  */
 public class Song {
 	private final String title;
     private final String artist;
     private final String albumTitle;
+    private final int hash;
     private int playCount;
 
     /**
@@ -16,6 +18,7 @@ public class Song {
         this.title = title;
         this.artist = artist;
         this.albumTitle = albumTitle;
+        this.hash = 31 * (31 * foldedHash(title) + foldedHash(artist)) + foldedHash(albumTitle);
         this.playCount = 0;
     }
 
@@ -31,14 +34,30 @@ public class Song {
         return albumTitle;
     }
     
+    /**
+     * Counts a play on the song itself, for songs used outside a library
+     *
+     * @deprecated store songs are shared by every library, so a count on the
+     *             song is shared too; use LibraryModel.playSong and
+     *             LibraryModel.getPlayCount, which count per library
+     */
+    @Deprecated
     public void play() {
     	playCount ++;
     }
     
+    /**
+     * @deprecated see play; use LibraryModel.getPlayCount
+     */
+    @Deprecated
     public int getPlayCount() {
     	return playCount;
     }
     
+    /**
+     * @deprecated see play; use LibraryModel.getPlayCount
+     */
+    @Deprecated
     public void setPlayCount(int count) {
     	if (count >= 0) {
     		this.playCount = count;    	
@@ -46,4 +65,32 @@ public class Song {
     		this.playCount = 0;
     	}
     }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Song)) return false;
+        Song other = (Song) o;
+        return hash == other.hash
+                && title.equalsIgnoreCase(other.title)
+                && artist.equalsIgnoreCase(other.artist)
+                && albumTitle.equalsIgnoreCase(other.albumTitle);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Hashes a string with each char folded the same way String.equalsIgnoreCase
+     * compares it, so strings that are equal ignoring case hash the same
+     */
+    static int foldedHash(String s) {
+        int h = 0;
+        for (int i = 0; i < s.length(); i++) {
+            h = 31 * h + Character.toLowerCase(Character.toUpperCase(s.charAt(i)));
+        }
+        return h;
+    }
 }
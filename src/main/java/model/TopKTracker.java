@@ -0,0 +1,248 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the K most played songs in an indexed min-heap ordered by play count.
+ * The least played song sits at the root, and a map from song to heap slot
+ * lets an existing entry be updated in place, so every update is O(log K).
+ *
+ * In exact mode the caller supplies each song's play count. In approximate
+ * mode the tracker counts plays itself with the Space-Saving algorithm: a song
+ * that is not tracked replaces the root and inherits its count plus one, so
+ * memory stays at K entries however many distinct songs are played, and each
+ * reported count overestimates the true count by at most the evicted count.
+ *
+ * Among songs with the same count, the one that entered the tracker first is
+ * listed first, and is also the first to be evicted.
+ *
+ * The ordered list is built on the first read after a change and kept until
+ * the next one, so repeated reads between plays cost O(1) rather than a sort.
+ */
+class TopKTracker {
+	private final int capacity;
+	private final Song[] songs;
+	private final int[] counts;
+	private final long[] admitted;	// admission order, used to break ties
+	private final Map<Song, Integer> slots;
+	private int size;
+	private long sequence;
+	private volatile List<Song> ordered;	// most played first; null once the heap changes
+
+	/**
+	 * @pre capacity >= 1
+	 */
+	TopKTracker(int capacity) {
+		this.capacity = capacity;
+		this.songs = new Song[capacity];
+		this.counts = new int[capacity];
+		this.admitted = new long[capacity];
+		this.slots = new HashMap<>();
+	}
+
+	/**
+	 * Exact mode: records that a song has now been played count times.
+	 * A song that is not tracked only gets in if it has been played at least as
+	 * often as the current least played song
+	 */
+	void offer(Song song, int count) {
+		Integer slot = slots.get(song);
+		if (slot != null || size < capacity || count >= counts[0]) {
+			ordered = null;
+		}
+		if (slot != null) {
+			int old = counts[slot];
+			counts[slot] = count;
+			if (count > old) {
+				siftDown(slot);
+			} else {
+				siftUp(slot);
+			}
+		} else if (size < capacity) {
+			insert(song, count);
+		} else if (count >= counts[0]) {
+			replaceRoot(song, count);
+		}
+	}
+
+	/**
+	 * Approximate mode: counts one play of a song with the Space-Saving algorithm
+	 */
+	void increment(Song song) {
+		ordered = null;
+		Integer slot = slots.get(song);
+		if (slot != null) {
+			counts[slot]++;
+			siftDown(slot);
+		} else if (size < capacity) {
+			insert(song, 1);
+		} else {
+			replaceRoot(song, counts[0] + 1);
+		}
+	}
+
+	void remove(Song song) {
+		Integer slot = slots.remove(song);
+		if (slot == null) {
+			return;
+		}
+		ordered = null;
+		size--;
+		if (slot != size) {
+			move(size, slot);
+			siftDown(slot);
+			siftUp(slot);
+		}
+		songs[size] = null;
+	}
+
+	/**
+	 * Returns the tracked count of a song, or 0 if it is not tracked
+	 */
+	int count(Song song) {
+		Integer slot = slots.get(song);
+		return slot == null ? 0 : counts[slot];
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the tracked songs, most played first, as an unmodifiable list.
+	 * The first call after a change sorts K entries, O(K log K) regardless of
+	 * how many songs have been played; later calls return the same list.
+	 * Callers that may run alongside an update must hold a lock that excludes
+	 * it, so that a list built from a heap being changed is never kept
+	 */
+	List<Song> sorted() {
+		List<Song> result = ordered;
+		if (result == null) {
+			result = sort();
+			ordered = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the list sorted last returned if nothing has changed since, or
+	 * null. Only reads a field, so it is safe under an optimistic read
+	 */
+	List<Song> sortedIfCurrent() {
+		return ordered;
+	}
+
+	/**
+	 * Heap-sorts the slot numbers, last in list order at the root, and fills
+	 * the list from the back; no boxing
+	 */
+	private List<Song> sort() {
+		int[] heap = new int[size];
+		for (int i = 0; i < size; i++) {
+			heap[i] = i;
+		}
+		for (int i = size / 2 - 1; i >= 0; i--) {
+			siftLast(heap, i, size);
+		}
+		Song[] result = new Song[size];
+		for (int n = size; n > 0; n--) {
+			result[n - 1] = songs[heap[0]];
+			heap[0] = heap[n - 1];
+			siftLast(heap, 0, n - 1);
+		}
+		return Collections.unmodifiableList(Arrays.asList(result));
+	}
+
+	/**
+	 * Sifts down in a heap of slot numbers whose root is the slot that comes
+	 * last in list order: fewest plays, then the song that entered latest
+	 */
+	private void siftLast(int[] heap, int i, int n) {
+		while (true) {
+			int last = i;
+			int left = 2 * i + 1;
+			int right = left + 1;
+			if (left < n && listedAfter(heap[left], heap[last])) last = left;
+			if (right < n && listedAfter(heap[right], heap[last])) last = right;
+			if (last == i) {
+				return;
+			}
+			int t = heap[i];
+			heap[i] = heap[last];
+			heap[last] = t;
+			i = last;
+		}
+	}
+
+	private boolean listedAfter(int a, int b) {
+		return counts[a] < counts[b] || (counts[a] == counts[b] && admitted[a] > admitted[b]);
+	}
+
+	private void insert(Song song, int count) {
+		int slot = size++;
+		place(slot, song, count, sequence++);
+		siftUp(slot);
+	}
+
+	private void replaceRoot(Song song, int count) {
+		slots.remove(songs[0]);
+		place(0, song, count, sequence++);
+		siftDown(0);
+	}
+
+	/**
+	 * Heap order: fewer plays first, then the song that entered earlier
+	 */
+	private boolean less(int a, int b) {
+		return counts[a] < counts[b] || (counts[a] == counts[b] && admitted[a] < admitted[b]);
+	}
+
+	private void siftUp(int slot) {
+		while (slot > 0) {
+			int parent = (slot - 1) / 2;
+			if (!less(slot, parent)) {
+				return;
+			}
+			swap(slot, parent);
+			slot = parent;
+		}
+	}
+
+	private void siftDown(int slot) {
+		while (true) {
+			int smallest = slot;
+			int left = 2 * slot + 1;
+			int right = left + 1;
+			if (left < size && less(left, smallest)) smallest = left;
+			if (right < size && less(right, smallest)) smallest = right;
+			if (smallest == slot) {
+				return;
+			}
+			swap(slot, smallest);
+			slot = smallest;
+		}
+	}
+
+	private void swap(int a, int b) {
+		Song song = songs[a];
+		int count = counts[a];
+		long order = admitted[a];
+		place(a, songs[b], counts[b], admitted[b]);
+		place(b, song, count, order);
+	}
+
+	private void move(int from, int to) {
+		place(to, songs[from], counts[from], admitted[from]);
+	}
+
+	private void place(int slot, Song song, int count, long order) {
+		songs[slot] = song;
+		counts[slot] = count;
+		admitted[slot] = order;
+		slots.put(song, slot);
+	}
+}
@@ -7,23 +7,57 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.security.MessageDigest;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Manages user creation, login, and loading/saving library data
+ *
+ * A UserManager is one session: it logs in one user at a time and owns that
+ * user's library file and journal while they are logged in. Concurrent
+ * sessions each get their own UserManager from newSession, sharing the
+ * users, the store and the journal compaction threads; a user can be logged
+ * in on only one session at a time.
  */
 public class UserManager {
+    /** Journaled changes between background compactions */
+    static final int COMPACT_EVERY = 1000;
 
-    private final Map<String, User> usersByUsername;
+    // sections timed by loadUserLibrary, indexes into LOAD_SECTIONS
+    private static final int SONGS = 0, ALBUMS = 1, RESOLVE = 2, RATINGS = 3, PLAYLISTS = 4,
+            RECENT = 5, FREQUENT = 6, JOURNAL = 7;
+    private static final String[] LOAD_SECTIONS = {
+            "songs", "albums", "resolve", "ratings", "playlists", "recent", "frequent", "journal" };
+
+    private final Shared shared;
+    private final Map<String, User> usersByUsername;	// shared.users
     private final File userFile;
     private final MusicStore store;
+    private final Path libraryDirectory;
     private User currentUser;
+    private long journalSequence;
+    private String libraryLoadReport;
+    private LibraryJournal journal;
+    private LibraryModel journaled;		// the library journal listens to
+    private Future<?> compaction;
 
     /**
      * Constructs a UserManager object and loads existing users
@@ -32,42 +66,80 @@ public class UserManager {
      * @throws IOException if files are missing or unreadable
      */
     public UserManager(String userJsonPath, MusicStore store) throws IOException {
+        this(userJsonPath, store, ".");
+    }
+
+    /**
+     * Constructs a UserManager object that keeps library files in libraryDirectory
+     *
+     * @pre userJsonPath != null && store != null && libraryDirectory != null
+     * @throws IOException if files are missing or unreadable
+     */
+    public UserManager(String userJsonPath, MusicStore store, String libraryDirectory) throws IOException {
         this.userFile = new File(userJsonPath);
         this.store = store;
-        this.usersByUsername = new HashMap<>();
+        this.libraryDirectory = Path.of(libraryDirectory);
+        this.shared = new Shared();
+        this.usersByUsername = shared.users;
         this.currentUser = null;
 
         loadUsersFromJson();
     }
 
+    /**
+     * Constructs another session over the same users, store and library directory
+     */
+    private UserManager(UserManager other) {
+        this.userFile = other.userFile;
+        this.store = other.store;
+        this.libraryDirectory = other.libraryDirectory;
+        this.shared = other.shared;
+        this.usersByUsername = shared.users;
+        this.currentUser = null;
+    }
+
+    /**
+     * Returns a UserManager for another concurrent session. It shares this
+     * manager's users, store and library directory, and logs in its own user
+     */
+    public UserManager newSession() {
+        return new UserManager(this);
+    }
+
     /**
      * Creates new user if not already present
      */
     public boolean createUser(String username, String plainPassword) throws IOException {
-        if (usersByUsername.containsKey(username.toLowerCase())) {
-            return false;
-        }
         String salt = generateSalt();
         String hash = hashPassword(plainPassword, salt);
-        User newUser = new User(username, salt, hash);
-        usersByUsername.put(username.toLowerCase(), newUser);
-        saveUsersToJson();
+        synchronized (shared) {		// one users file write at a time
+            if (usersByUsername.putIfAbsent(username.toLowerCase(), new User(username, salt, hash)) != null) {
+                return false;
+            }
+            saveUsersToJson();
+        }
         return true;
     }
 
     /**
-     * Attempts to authenticate user
+     * Attempts to authenticate user. Fails if the user is logged in on another session
      */
     public boolean authenticate(String username, String plainPassword) {
         User u = usersByUsername.get(username.toLowerCase());
         if (u == null) return false;  // user doesn't exist
 
         String testHash = hashPassword(plainPassword, u.getSalt());
-        if (testHash.equals(u.getPasswordHash())) {
+        if (!testHash.equals(u.getPasswordHash())) {
+            return false;
+        }
+        if (u != currentUser) {
+            if (!shared.loggedIn.add(u.getUsername().toLowerCase())) {
+                return false;
+            }
+            releaseCurrentUser();
             this.currentUser = u;
-            return true;
         }
-        return false;
+        return true;
     }
 
     /**
@@ -81,241 +153,446 @@ public class UserManager {
      * Logs out current user
      */
     public void logout() {
+        try {
+            closeJournal();
+        } catch (IOException e) {
+            // every change was flushed as it was written
+        }
+        awaitCompaction();
+        this.journalSequence = 0;
+        releaseCurrentUser();
         this.currentUser = null;
     }
 
+    private void releaseCurrentUser() {
+        if (currentUser != null) {
+            shared.loggedIn.remove(currentUser.getUsername().toLowerCase());
+        }
+    }
+
     /**
-     * Loads current user's library data from JSON
+     * Loads current user's library data from JSON, then replays any changes
+     * journaled since it was last saved. The file is streamed one entry at a
+     * time, so memory use does not grow with the size of the file. The time
+     * spent on each section is kept for getLibraryLoadReport
      */
     public void loadUserLibrary(LibraryModel library) throws IOException {
         if (currentUser == null) {
             return;
         }
-        File libraryFile = new File("library_" + currentUser.getUsername() + ".json");
-        if (!libraryFile.exists()) {
-            // no library data yet so user is new
+        long start = System.nanoTime();
+        long[] sectionNanos = new long[LOAD_SECTIONS.length];
+        String username = currentUser.getUsername();
+        long sequence = readLibraryFile(libraryFile(username), library, sectionNanos);
+
+        long journalStart = System.nanoTime();
+        LibraryJournal.Handler replay = journalReplay(library);
+        sequence = LibraryJournal.replay(compactingJournalFile(username), sequence, replay);
+        sequence = LibraryJournal.replay(journalFile(username), sequence, replay);
+        journalSequence = sequence;
+        long end = System.nanoTime();
+        sectionNanos[JOURNAL] = end - journalStart;
+
+        StringBuilder report = new StringBuilder();
+        long applied = 0;
+        for (int i = 0; i < LOAD_SECTIONS.length; i++) {
+            report.append(String.format(", %s %.1f ms", LOAD_SECTIONS[i], sectionNanos[i] / 1_000_000.0));
+            applied += sectionNanos[i];
+        }
+        libraryLoadReport = String.format("Loaded library for %s in %.1f ms (parsing %.1f ms%s)",
+                username, (end - start) / 1_000_000.0, (end - start - applied) / 1_000_000.0, report);
+    }
+
+    /**
+     * Returns a one-line breakdown of the last loadUserLibrary by section, or
+     * null if no library has been loaded
+     */
+    public String getLibraryLoadReport() {
+        return libraryLoadReport;
+    }
+
+    /**
+     * Starts journaling every change made to the library, so the current
+     * user's session is kept even if it never reaches saveUserLibrary. Every
+     * COMPACT_EVERY changes the journal is folded into the library file on a
+     * background thread. Call after loadUserLibrary
+     *
+     * @pre library was loaded with loadUserLibrary for the current user
+     */
+    public void openJournal(LibraryModel library) throws IOException {
+        if (currentUser == null) {
             return;
         }
-        String content = new String(Files.readAllBytes(libraryFile.toPath()), StandardCharsets.UTF_8);
-        JSONObject json = new JSONObject(content);
-
-        // Load songs
-        JSONArray songsArr = json.optJSONArray("songs");
-        if (songsArr != null) {
-            for (int i = 0; i < songsArr.length(); i++) {
-                JSONObject sObj = songsArr.getJSONObject(i);
-                String title = sObj.getString("title");
-                String artist = sObj.getString("artist");
-                String albumTitle = sObj.getString("albumTitle");
-
-                Song storeSong = findSongInStore(title, artist, albumTitle);
-                if (storeSong != null) {
-                    library.addSong(storeSong);
-                }
+        closeJournal();
+        String username = currentUser.getUsername();
+        Path rotated = compactingJournalFile(username);
+        journal = new LibraryJournal(journalFile(username), journalSequence, COMPACT_EVERY, () -> {
+            if (compaction != null && !compaction.isDone() || Files.exists(rotated)) {
+                return;	// the last compaction is still running or failed; keep appending
+            }
+            try {
+                journal.rotate(rotated);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error rotating library journal", e);
             }
+            compact(username);
+        });
+        journaled = library;
+        library.setListener(journal);
+        if (Files.exists(rotated)) {
+            compact(username);	// left behind by a session that ended early
         }
+    }
 
-        // Load albums
-        JSONArray albumsArr = json.optJSONArray("albums");
-        if (albumsArr != null) {
-            for (int i = 0; i < albumsArr.length(); i++) {
-                JSONObject aObj = albumsArr.getJSONObject(i);
-                String albumTitle = aObj.getString("title");
-                String artist = aObj.getString("artist");
+    /**
+     * Saves the current user's library data. Entries are streamed straight to
+     * a temporary file, which then replaces the library file in one step so a
+     * failed save never leaves a half-written library behind. The saved file
+     * holds every journaled change, so the journal is closed and cleared
+     */
+    public void saveUserLibrary(LibraryModel library) throws IOException {
+        if (currentUser == null) {
+            return;
+        }
+        String username = currentUser.getUsername();
+        if (journal != null) {
+            journalSequence = journal.sequence();
+        }
+        closeJournal();
+        awaitCompaction();
+        writeLibraryFile(library, journalSequence, libraryFile(username));
+        Files.deleteIfExists(journalFile(username));
+        Files.deleteIfExists(compactingJournalFile(username));
+    }
 
-                Album storeAlbum = findAlbumInStore(albumTitle, artist);
-                if (storeAlbum != null) {
-                    library.addAlbum(storeAlbum);
-                }
+    /**
+     * Folds the rotated journal into the library file on a compaction
+     * thread. The changes are replayed into a separate LibraryModel loaded
+     * from the file, so the live library is never touched from that thread
+     */
+    private void compact(String username) {
+        compaction = shared.compactor().submit(() -> {
+            Path rotated = compactingJournalFile(username);
+            LibraryModel folded = new LibraryModel();
+            folded.setMusicStore(store);
+            long sequence = readLibraryFile(libraryFile(username), folded);
+            sequence = LibraryJournal.replay(rotated, sequence, journalReplay(folded));
+            writeLibraryFile(folded, sequence, libraryFile(username));
+            Files.delete(rotated);
+            return null;
+        });
+    }
+
+    /**
+     * Waits for a running compaction. If it failed, its rotated journal is
+     * still on disk and is replayed on the next load
+     */
+    private void awaitCompaction() {
+        if (compaction == null) {
+            return;
+        }
+        try {
+            compaction.get();
+        } catch (ExecutionException e) {
+            // rotated journal kept
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        compaction = null;
+    }
+
+    private void closeJournal() throws IOException {
+        if (journal != null) {
+            journaled.setListener(null);
+            journaled = null;
+            journal.close();
+            journal = null;
+        }
+    }
+
+    /**
+     * Helper method for reading a library file into a library
+     *
+     * @return the sequence number of the last journaled change the file holds
+     */
+    private long readLibraryFile(File libraryFile, LibraryModel library) throws IOException {
+        return readLibraryFile(libraryFile, library, new long[LOAD_SECTIONS.length]);
+    }
+
+    /**
+     * Reads a library file, adding the time spent applying each section to sectionNanos
+     */
+    private long readLibraryFile(File libraryFile, LibraryModel library, long[] sectionNanos) throws IOException {
+        if (!libraryFile.exists()) {
+            // no library data yet so user is new
+            return 0;
+        }
+        LibraryLoader loader = new LibraryLoader(library, sectionNanos);
+        try (Reader in = Files.newBufferedReader(libraryFile.toPath(), StandardCharsets.UTF_8)) {
+            LibraryJson.read(in, loader);
+        }
+        loader.finish();
+        return loader.sequence;
+    }
+
+    /**
+     * Applies the entries of a library file to a library. LibraryJson delivers
+     * every rating, playlist and play history entry after the songs and albums,
+     * so the songs they refer to are resolved through maps built once at that
+     * point rather than by a lookup per entry
+     */
+    private final class LibraryLoader implements LibraryJson.Visitor {
+        private final LibraryModel library;
+        private final long[] nanos;
+        private final List<Song> recent;	// saved newest first, replayed oldest first
+        private final Map<String, PlayList> playlists;
+        private Map<String, Song> songsByKey;				// (title, artist, album)
+        private Map<String, List<Song>> songsByTitleArtist;	// (title, artist)
+        private long sequence;
+
+        private LibraryLoader(LibraryModel library, long[] nanos) {
+            this.library = library;
+            this.nanos = nanos;
+            this.recent = new ArrayList<>();
+            this.playlists = new HashMap<>();
+        }
+
+        @Override
+        public void journalSequence(long seq) {
+            sequence = seq;
+        }
+
+        @Override
+        public void song(String title, String artist, String albumTitle) {
+            long start = System.nanoTime();
+            Song storeSong = findSongInStore(title, artist, albumTitle);
+            if (storeSong != null) {
+                library.addSong(storeSong);
             }
+            nanos[SONGS] += System.nanoTime() - start;
         }
 
-        // Load rated songs if they're present in library
-        JSONArray ratedArr = json.optJSONArray("ratedSongs");
-        if (ratedArr != null) {
-            for (int i = 0; i < ratedArr.length(); i++) {
-                JSONObject rObj = ratedArr.getJSONObject(i);
-                String title = rObj.getString("title");
-                String artist = rObj.getString("artist");
-                int rating = rObj.getInt("rating");
+        @Override
+        public void album(String title, String artist) {
+            long start = System.nanoTime();
+            Album storeAlbum = findAlbumInStore(title, artist);
+            if (storeAlbum != null) {
+                library.addAlbum(storeAlbum);
+            }
+            nanos[ALBUMS] += System.nanoTime() - start;
+        }
 
-                List<Song> matches = library.getSongsByTitle(title);
-                for (Song s : matches) {
-                    if (s.getArtist().equalsIgnoreCase(artist)) {
-                        library.rateSong(s, rating);
-                    }
-                }
+        @Override
+        public void rating(String title, String artist, int rating) {
+            long start = System.nanoTime();
+            for (Song s : byTitleArtist(title, artist)) {
+                library.rateSong(s, rating);
             }
+            nanos[RATINGS] += System.nanoTime() - start;
         }
 
-        // Load playlists
-        JSONArray playlistsArr = json.optJSONArray("playlists");
-        if (playlistsArr != null) {
-            for (int i = 0; i < playlistsArr.length(); i++) {
-                JSONObject pObj = playlistsArr.getJSONObject(i);
-                String playlistName = pObj.getString("name");
-                library.createPlayList(playlistName);
-
-                JSONArray plSongs = pObj.optJSONArray("songs");
-                if (plSongs != null) {
-                    for (int j = 0; j < plSongs.length(); j++) {
-                        JSONObject sObj = plSongs.getJSONObject(j);
-                        String t = sObj.getString("title");
-                        String art = sObj.getString("artist");
-
-                        List<Song> matches = library.getSongsByTitle(t);
-                        for (Song s : matches) {
-                            if (s.getArtist().equalsIgnoreCase(art)) {
-                                library.getPlayList(playlistName).addSong(s);
-                            }
-                        }
-                    }
-                }
+        @Override
+        public void playlist(String name) {
+            long start = System.nanoTime();
+            library.createPlayList(name);
+            // songs of a repeated name go to the first playlist with it, as getPlayList would
+            playlists.putIfAbsent(name, library.getPlayList(name));
+            nanos[PLAYLISTS] += System.nanoTime() - start;
+        }
+
+        @Override
+        public void playlistSong(String playlist, String title, String artist) {
+            long start = System.nanoTime();
+            PlayList p = playlists.get(playlist);
+            for (Song s : byTitleArtist(title, artist)) {
+                p.addSong(s);
             }
+            nanos[PLAYLISTS] += System.nanoTime() - start;
         }
-        
-     // 5) Load 'recentlyPlayedSongs'
-        JSONArray recentArr = json.optJSONArray("recentlyPlayedSongs");
-        if (recentArr != null) {
-            for (int i = 0; i < recentArr.length(); i++) {
-                JSONObject sObj = recentArr.getJSONObject(i);
-                String title = sObj.getString("title");
-                String artist = sObj.getString("artist");
-                String albumTitle = sObj.getString("albumTitle");
-
-                List<Song> matches = library.getSongsByTitle(title);
-                for (Song s : matches) {
-                    if (s.getArtist().equalsIgnoreCase(artist)
-                            && s.getAlbumTitle().equalsIgnoreCase(albumTitle)) {
-                        library.getRecentlyPlayedPlayList().addSongRecent(s);
-                        break;
-                    }
-                }
+
+        @Override
+        public void recentlyPlayed(String title, String artist, String albumTitle) {
+            long start = System.nanoTime();
+            Song s = byKey(title, artist, albumTitle);
+            if (s != null) {
+                recent.add(s);
             }
+            nanos[RECENT] += System.nanoTime() - start;
         }
 
-        // 6) Load 'frequentlyPlayedSongs'
-        JSONArray freqArr = json.optJSONArray("frequentlyPlayedSongs");
-        if (freqArr != null) {
-            for (int i = 0; i < freqArr.length(); i++) {
-                JSONObject sObj = freqArr.getJSONObject(i);
-                String title = sObj.getString("title");
-                String artist = sObj.getString("artist");
-                String albumTitle = sObj.getString("albumTitle");
-
-                List<Song> matches = library.getSongsByTitle(title);
-                for (Song s : matches) {
-                    if (s.getArtist().equalsIgnoreCase(artist)
-                            && s.getAlbumTitle().equalsIgnoreCase(albumTitle)) {
-                        library.getFrequentlyPlayedPlayList().addSongFrequent(s);
-                        break;
-                    }
-                }
+        @Override
+        public void frequentlyPlayed(String title, String artist, String albumTitle) {
+            long start = System.nanoTime();
+            Song s = byKey(title, artist, albumTitle);
+            if (s != null) {
+                library.restoreFrequentlyPlayed(s);
             }
+            nanos[FREQUENT] += System.nanoTime() - start;
         }
-    }
 
-    /**
-     * Saves the current user's library data
-     */
-    public void saveUserLibrary(LibraryModel library) throws IOException {
-        if (currentUser == null) {
-            return;
+        private void finish() {
+            long start = System.nanoTime();
+            for (int i = recent.size() - 1; i >= 0; i--) {
+                library.restoreRecentlyPlayed(recent.get(i));
+            }
+            nanos[RECENT] += System.nanoTime() - start;
         }
-        File libraryFile = new File("library_" + currentUser.getUsername() + ".json");
-        JSONObject root = new JSONObject();
-
-        // Save songs
-        JSONArray songsArr = new JSONArray();
-        for (Song s : library.getSongs()) {
-            JSONObject sObj = new JSONObject();
-            sObj.put("title", s.getTitle());
-            sObj.put("artist", s.getArtist());
-            sObj.put("albumTitle", s.getAlbumTitle());
-            songsArr.put(sObj);
-        }
-        root.put("songs", songsArr);
-
-        // Save albums
-        JSONArray albumsArr = new JSONArray();
-        for (Album a : library.getAlbums()) {
-            JSONObject aObj = new JSONObject();
-            aObj.put("title", a.getTitle());
-            aObj.put("artist", a.getArtist());
-            aObj.put("genre", a.getGenre());
-            aObj.put("year", a.getYear());
-
-            // Save album's songs
-            JSONArray aSongs = new JSONArray();
-            for (Song s : a.getSongs()) {
-                JSONObject sObj = new JSONObject();
-                sObj.put("title", s.getTitle());
-                sObj.put("artist", s.getArtist());
-                sObj.put("albumTitle", s.getAlbumTitle());
-                aSongs.put(sObj);
+
+        private Song byKey(String title, String artist, String albumTitle) {
+            if (songsByKey == null) {
+                buildResolution();
             }
-            aObj.put("songs", aSongs);
-
-            albumsArr.put(aObj);
-        }
-        root.put("albums", albumsArr);
-
-        // Save rated songs
-        JSONArray ratedArr = new JSONArray();
-        Map<Song, Integer> ratedMap = library.getAllRatedSongs();
-        for (Map.Entry<Song, Integer> entry : ratedMap.entrySet()) {
-            Song s = entry.getKey();
-            int r = entry.getValue();
-            JSONObject rObj = new JSONObject();
-            rObj.put("title", s.getTitle());
-            rObj.put("artist", s.getArtist());
-            rObj.put("rating", r);
-            ratedArr.put(rObj);
-        }
-        root.put("ratedSongs", ratedArr);
-
-        // Save playlists
-        JSONArray playlistsArr = new JSONArray();
-        for (PlayList pl : library.getPlayLists()) {
-            JSONObject plObj = new JSONObject();
-            plObj.put("name", pl.getName());
-            JSONArray plSongsArr = new JSONArray();
-            for (Song s : pl.getSongs()) {
-                JSONObject sObj = new JSONObject();
-                sObj.put("title", s.getTitle());
-                sObj.put("artist", s.getArtist());
-                plSongsArr.put(sObj);
+            return songsByKey.get(songKey(title, artist, albumTitle));
+        }
+
+        private List<Song> byTitleArtist(String title, String artist) {
+            if (songsByTitleArtist == null) {
+                buildResolution();
             }
-            plObj.put("songs", plSongsArr);
-            playlistsArr.put(plObj);
+            return songsByTitleArtist.getOrDefault(songKey(title, artist), Collections.emptyList());
         }
-        root.put("playlists", playlistsArr);
-        
-     // 5) Save recentlyPlayedSongs
-        JSONArray recentArr = new JSONArray();
-        for (Song s : library.getRecentlyPlayedSongs()) {
-            JSONObject sObj = new JSONObject();
-            sObj.put("title", s.getTitle());
-            sObj.put("artist", s.getArtist());
-            sObj.put("albumTitle", s.getAlbumTitle());
-            recentArr.put(sObj);
+
+        /**
+         * One pass over the library's songs, made once the songs and albums are in
+         */
+        private void buildResolution() {
+            long start = System.nanoTime();
+            songsByKey = new HashMap<>();
+            songsByTitleArtist = new HashMap<>();
+            for (Song s : library.getSongs()) {
+                songsByKey.putIfAbsent(songKey(s.getTitle(), s.getArtist(), s.getAlbumTitle()), s);
+                songsByTitleArtist.computeIfAbsent(songKey(s.getTitle(), s.getArtist()), k -> new ArrayList<>()).add(s);
+            }
+            nanos[RESOLVE] += System.nanoTime() - start;
         }
-        root.put("recentlyPlayedSongs", recentArr);
+    }
 
-        // 6) Save frequentlyPlayedSongs
-        JSONArray freqArr = new JSONArray();
-        for (Song s : library.getFrequentlyPlayedSongs()) {
-            JSONObject sObj = new JSONObject();
-            sObj.put("title", s.getTitle());
-            sObj.put("artist", s.getArtist());
-            sObj.put("albumTitle", s.getAlbumTitle());
-            freqArr.put(sObj);
+    private static String songKey(String... fields) {
+        StringBuilder key = new StringBuilder();
+        for (String f : fields) {
+            key.append(f.toLowerCase()).append('\u0000');
         }
-        root.put("frequentlyPlayedSongs", freqArr);
+        return key.toString();
+    }
 
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(libraryFile))) {
-            bw.write(root.toString(2));
+    /**
+     * Helper method for writing a library file through a temporary file
+     */
+    private static void writeLibraryFile(LibraryModel library, long sequence, File libraryFile) throws IOException {
+        Path target = libraryFile.toPath().toAbsolutePath();
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            LibraryJson.write(library, sequence, out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
         }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Helper method for applying journaled changes to a library. Plays are
+     * applied to the play history only; play counts are not journaled
+     */
+    private LibraryJournal.Handler journalReplay(LibraryModel library) {
+        return new LibraryJournal.Handler() {
+            @Override
+            public void songAdded(String title, String artist, String albumTitle) {
+                Song s = findSongInStore(title, artist, albumTitle);
+                if (s != null) {
+                    library.addSong(s);
+                }
+            }
+
+            @Override
+            public void albumAdded(String title, String artist) {
+                Album a = findAlbumInStore(title, artist);
+                if (a != null) {
+                    library.addAlbum(a);
+                }
+            }
+
+            @Override
+            public void songRemoved(String title, String artist, String albumTitle) {
+                Song s = findSongInLibrary(library, title, artist, albumTitle);
+                if (s != null) {
+                    library.removeSong(s);
+                }
+            }
+
+            @Override
+            public void albumRemoved(String title, String artist) {
+                for (Album a : library.getAlbumsByTitle(title)) {
+                    if (a.getArtist().equalsIgnoreCase(artist)) {
+                        library.removeAlbum(a);
+                        return;
+                    }
+                }
+            }
+
+            @Override
+            public void songRated(String title, String artist, String albumTitle, int rating) {
+                Song s = findSongInLibrary(library, title, artist, albumTitle);
+                if (s != null) {
+                    library.rateSong(s, rating);
+                }
+            }
+
+            @Override
+            public void songFavorited(String title, String artist, String albumTitle) {
+                Song s = findSongInLibrary(library, title, artist, albumTitle);
+                if (s != null) {
+                    library.markSongAsFavorite(s);
+                }
+            }
+
+            @Override
+            public void songPlayed(String title, String artist, String albumTitle) {
+                Song s = findSongInLibrary(library, title, artist, albumTitle);
+                if (s != null) {
+                    library.restoreRecentlyPlayed(s);
+                    library.restoreFrequentlyPlayed(s);
+                }
+            }
+
+            @Override
+            public void playListCreated(String name) {
+                library.createPlayList(name);
+            }
+
+            @Override
+            public void playListSongAdded(String playlist, String title, String artist, String albumTitle) {
+                PlayList p = library.getPlayList(playlist);
+                Song s = findSongInLibrary(library, title, artist, albumTitle);
+                if (p != null && s != null) {
+                    p.addSong(s);
+                }
+            }
+
+            @Override
+            public void playListSongRemoved(String playlist, String title, String artist, String albumTitle) {
+                PlayList p = library.getPlayList(playlist);
+                Song s = findSongInLibrary(library, title, artist, albumTitle);
+                if (p != null && s != null) {
+                    p.removeSong(s);
+                }
+            }
+        };
+    }
+
+    /**
+     * Helper methods for a user's library file and journals
+     */
+    private File libraryFile(String username) {
+        return libraryDirectory.resolve("library_" + username + ".json").toFile();
+    }
+
+    private Path journalFile(String username) {
+        return libraryDirectory.resolve("library_" + username + ".journal");
+    }
+
+    private Path compactingJournalFile(String username) {
+        return libraryDirectory.resolve("library_" + username + ".journal.compacting");
     }
 
     /**
@@ -392,8 +669,14 @@ public class UserManager {
     private Song findSongInStore(String title, String artist, String albumTitle) {
         if (store == null) return null;
 
-        List<Song> byTitle = store.getSongsByTitle(title);
-        for (Song s : byTitle) {
+        return store.findSong(title, artist, albumTitle);
+    }
+
+    /**
+     * Helper method for searching a library for a Song
+     */
+    private Song findSongInLibrary(LibraryModel library, String title, String artist, String albumTitle) {
+        for (Song s : library.getSongsByTitle(title)) {
             if (s.getArtist().equalsIgnoreCase(artist)
                     && s.getAlbumTitle().equalsIgnoreCase(albumTitle)) {
                 return s;
@@ -408,10 +691,28 @@ public class UserManager {
     private Album findAlbumInStore(String albumTitle, String artist) {
         if (store == null) return null;
 
-        Album found = store.getAlbumByTitle(albumTitle);
-        if (found != null && found.getArtist().equalsIgnoreCase(artist)) {
-            return found;
+        return store.findAlbum(albumTitle, artist);
+    }
+
+    /**
+     * What the sessions of one UserManager share: the users, who is logged
+     * in, and the threads that compact journals. Each session waits for its
+     * own compaction before starting another, so they may run in parallel
+     */
+    private static final class Shared {
+        private final Map<String, User> users = new ConcurrentHashMap<>();	// keyed by lowercased username
+        private final Set<String> loggedIn = ConcurrentHashMap.newKeySet();
+        private ExecutorService compactor;
+
+        private synchronized ExecutorService compactor() {
+            if (compactor == null) {
+                compactor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+                    Thread t = new Thread(r, "library-compaction");
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+            return compactor;
         }
-        return null;
     }
-}
\ No newline at end of file
+}
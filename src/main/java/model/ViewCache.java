@@ -0,0 +1,73 @@
+package model;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The Song or Album objects a catalog has handed out for its records, one
+ * slot per record. Each slot holds a weak reference, so a record maps to the
+ * same instance for as long as anything holds it, while instances nothing
+ * holds are garbage collected and the catalog's own data stays the only
+ * long-lived copy. Safe to use from several threads
+ */
+final class ViewCache<T> {
+    private final AtomicReferenceArray<View<T>> views;
+    private final ReferenceQueue<T> collected;
+
+    ViewCache(int records) {
+        this.views = new AtomicReferenceArray<>(records);
+        this.collected = new ReferenceQueue<>();
+    }
+
+    /**
+     * Returns the live instance for a record, or null if there is none
+     */
+    T get(int id) {
+        View<T> ref = views.get(id);
+        return ref == null ? null : ref.get();
+    }
+
+    /**
+     * Publishes a newly created instance for a record unless another thread
+     * got there first, and returns whichever instance the record now has
+     */
+    T publish(int id, T created) {
+        clearCollected();
+        View<T> fresh = new View<>(created, id, collected);
+        while (true) {
+            View<T> ref = views.get(id);
+            T existing = ref == null ? null : ref.get();
+            if (existing != null) {
+                return existing;
+            }
+            if (views.compareAndSet(id, ref, fresh)) {
+                return created;
+            }
+        }
+    }
+
+    /**
+     * Empties the slots of instances that have been garbage collected
+     */
+    @SuppressWarnings("unchecked")
+    private void clearCollected() {
+        View<T> ref;
+        while ((ref = (View<T>) collected.poll()) != null) {
+            views.compareAndSet(ref.id, ref, null);
+        }
+    }
+
+    /**
+     * A weak reference that remembers its slot, so the slot can be emptied
+     * once the instance is collected
+     */
+    private static final class View<T> extends WeakReference<T> {
+        private final int id;
+
+        private View(T instance, int id, ReferenceQueue<T> queue) {
+            super(instance, queue);
+            this.id = id;
+        }
+    }
+}
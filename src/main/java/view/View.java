@@ -2,136 +2,221 @@ package view;
 
 import model.*;
 
+import java.io.PrintStream;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Scanner;
-import java.util.Set;
 
 public class View {
+    private static final int SEARCH_RESULTS = 10;
+
 	private final LibraryModel library;
     private final MusicStore store;
     private final UserManager userManager;
     private final Scanner scanner;
+    private final PrintStream out;
 
     /**
-     * View that interacts with the user
+     * View that interacts with the user on the console
      *
      * @pre library != null && store != null && userManager != null
      */
     public View(LibraryModel library, MusicStore store, UserManager userManager) {
+        this(library, store, userManager, new Scanner(System.in), System.out);
+    }
+
+    /**
+     * View that reads the user's input from in and writes to out, such as a
+     * client connection
+     *
+     * @pre library != null && store != null && userManager != null && in != null && out != null
+     */
+    public View(LibraryModel library, MusicStore store, UserManager userManager, Scanner in, PrintStream out) {
         this.library = library;
         this.store = store;
         this.userManager = userManager;
-        this.scanner = new Scanner(System.in);
+        this.scanner = in;
+        this.out = out;
     }
 
     /**
      * Presents a menu of commands to the user
      */
     public void run() {
-        System.out.println("Welcome to the Music Library Application!");
+        out.println("Welcome to the Music Library Application!");
         String command;
 
         do {
             printMenu();
-            System.out.print("Enter your choice (or 'exit' to quit): ");
+            out.print("Enter your choice (or 'exit' to quit): ");
             command = scanner.nextLine().trim().toLowerCase();
+            execute(command);
+            out.println();
+        } while (!command.equals("exit"));
 
-            switch (command) {
-                case "1":
-                    searchStoreForSongTitle();
-                    break;
-                case "2":
-                    searchStoreForSongArtist();
-                    break;
-                case "3":
-                    searchStoreForAlbumTitle();
-                    break;
-                case "4":
-                    searchStoreForAlbumArtist();
-                    break;
-                case "5":
-                    searchLibraryForSongTitle();
-                    break;
-                case "6":
-                    searchLibraryForSongArtist();
-                    break;
-                case "7":
-                    searchLibraryForAlbumTitle();
-                    break;
-                case "8":
-                    searchLibraryForAlbumArtist();
-                    break;
-                case "9":
-                    searchLibraryForPlaylist();
-                    break;
-                case "a":
-                    addSongToLibrary();
-                    break;
-                case "b":
-                    addAlbumToLibrary();
-                    break;
-                case "c":
-                    listLibraryItems();
-                    break;
-                case "d":
-                    createPlaylist();
-                    break;
-                case "e":
-                    addSongToPlaylist();
-                    break;
-                case "f":
-                    removeSongFromPlaylist();
-                    break;
-                case "g":
-                    markSongAsFavorite();
-                    break;
-                case "h":
-                    rateSong();
-                    break;
-                case "i":
-                    playSongInLibrary();
-                    break;
-                case "j":
-                    removeSongFromLibrary();
-                    break;
-                case "k":
-                    removeAlbumFromLibrary();
-                    break;
-                case "l":
-                    shuffleLibrarySongs();
-                    break;
-                case "m":
-                    shufflePlaylist();
-                    break;
-                case "n":
-                    searchLibraryByGenre();
-                    break;
-                case "o":
-                    getAlbumInfoForLibrarySong();
-                    break;
-                case "p":
-                    getSortedLibrarySongs();
-                    break;
-                case "q":
-                    library.updateAutoPlaylists();
-                    System.out.println("Auto-playlists updated!");
-                    break;
-                case "r":
-                    showAutoPlaylists();
-                    break;
-
-                case "exit":
-                    System.out.println("Exiting the application...");
-                    break;
-                default:
-                    System.out.println("Unrecognized command. Please try again.");
+        out.println("Goodbye!");
+    }
+
+    /**
+     * Runs a script of commands back to back, without the menu: each command
+     * followed by the lines it would prompt for, as typed at the console.
+     * Stops at "exit" or at the end of the input, skipping blank lines between
+     * commands. Returns how many operations ran, the operations per second and
+     * their latency percentiles; the latency of an operation includes reading
+     * its arguments but not writing out, which the caller should buffer.
+     */
+    public String runBatch() {
+        long[] latencies = new long[1024];
+        int operations = 0;
+        long start = System.nanoTime();
+        while (scanner.hasNextLine()) {
+            String command = scanner.nextLine().trim().toLowerCase();
+            if (command.isEmpty()) {
+                continue;
             }
-            System.out.println();
-        } while (!command.equals("exit"));
+            if (command.equals("exit")) {
+                break;
+            }
+            long begin = System.nanoTime();
+            try {
+                execute(command);
+            } catch (NoSuchElementException e) {
+                out.println("Script ended in the middle of command \"" + command + "\".");
+                break;
+            }
+            out.println();
+            if (operations == latencies.length) {
+                latencies = Arrays.copyOf(latencies, operations * 2);
+            }
+            latencies[operations++] = System.nanoTime() - begin;
+        }
+        long elapsed = System.nanoTime() - start;
+        out.flush();
+
+        Arrays.sort(latencies, 0, operations);
+        StringBuilder report = new StringBuilder(String.format("Batch: %d operations in %.3f s, %.0f ops/s",
+                operations, elapsed / 1e9, operations / Math.max(elapsed / 1e9, 1e-9)));
+        if (operations > 0) {
+            report.append(String.format("; latency p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms",
+                    percentile(latencies, operations, 0.50), percentile(latencies, operations, 0.90),
+                    percentile(latencies, operations, 0.99), latencies[operations - 1] / 1e6));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Returns the given percentile of the first n sorted nanosecond latencies,
+     * in milliseconds
+     */
+    private static double percentile(long[] sorted, int n, double p) {
+        return sorted[Math.min(n - 1, (int) (p * n))] / 1e6;
+    }
+
+    /**
+     * Runs one menu command, prompting for its arguments
+     */
+    private void execute(String command) {
+        switch (command) {
+            case "1":
+                searchStoreForSongTitle();
+                break;
+            case "2":
+                searchStoreForSongArtist();
+                break;
+            case "3":
+                searchStoreForAlbumTitle();
+                break;
+            case "4":
+                searchStoreForAlbumArtist();
+                break;
+            case "5":
+                searchLibraryForSongTitle();
+                break;
+            case "6":
+                searchLibraryForSongArtist();
+                break;
+            case "7":
+                searchLibraryForAlbumTitle();
+                break;
+            case "8":
+                searchLibraryForAlbumArtist();
+                break;
+            case "9":
+                searchLibraryForPlaylist();
+                break;
+            case "a":
+                addSongToLibrary();
+                break;
+            case "b":
+                addAlbumToLibrary();
+                break;
+            case "c":
+                listLibraryItems();
+                break;
+            case "d":
+                createPlaylist();
+                break;
+            case "e":
+                addSongToPlaylist();
+                break;
+            case "f":
+                removeSongFromPlaylist();
+                break;
+            case "g":
+                markSongAsFavorite();
+                break;
+            case "h":
+                rateSong();
+                break;
+            case "i":
+                playSongInLibrary();
+                break;
+            case "j":
+                removeSongFromLibrary();
+                break;
+            case "k":
+                removeAlbumFromLibrary();
+                break;
+            case "l":
+                shuffleLibrarySongs();
+                break;
+            case "m":
+                shufflePlaylist();
+                break;
+            case "n":
+                searchLibraryByGenre();
+                break;
+            case "o":
+                getAlbumInfoForLibrarySong();
+                break;
+            case "p":
+                getSortedLibrarySongs();
+                break;
+            case "q":
+                library.updateAutoPlaylists();
+                out.println("Auto-playlists updated!");
+                break;
+            case "r":
+                showAutoPlaylists();
+                break;
+            case "s":
+                searchStore();
+                break;
+            case "t":
+                searchStoreByKeywords();
+                break;
+            case "u":
+                searchLibraryByKeywords();
+                break;
 
-        System.out.println("Goodbye!");
+            case "exit":
+                out.println("Exiting the application...");
+                break;
+            default:
+                out.println("Unrecognized command. Please try again.");
+        }
     }
 
     /**
@@ -140,44 +225,47 @@ public class View {
      * This menu was generated by ChatGPT, OpenAI, March 24, 2025
      */
     private void printMenu() {
-        System.out.println("-------------------------------------------------");
-        System.out.println("                MAIN MENU OPTIONS");
-        System.out.println("-------------------------------------------------");
-        System.out.println("  Store Searches:");
-        System.out.println("    1) Search Store by Song Title");
-        System.out.println("    2) Search Store by Song Artist");
-        System.out.println("    3) Search Store by Album Title");
-        System.out.println("    4) Search Store by Album Artist");
-        System.out.println();
-        System.out.println("  Library Searches:");
-        System.out.println("    5) Search Library by Song Title");
-        System.out.println("    6) Search Library by Song Artist");
-        System.out.println("    7) Search Library by Album Title");
-        System.out.println("    8) Search Library by Album Artist");
-        System.out.println("    9) Search Library for Playlist by Name");
-        System.out.println();
-        System.out.println("  Library Modifications:");
-        System.out.println("    a) Add Song to Library (from Store)");
-        System.out.println("    b) Add Album to Library (from Store)");
-        System.out.println("    c) List Library items");
-        System.out.println("    d) Create Playlist");
-        System.out.println("    e) Add Song to a Playlist");
-        System.out.println("    f) Remove Song from a Playlist");
-        System.out.println("    g) Mark Song as Favorite");
-        System.out.println("    h) Rate a Song");
-        System.out.println("    i) Play a Song (tracks plays)");
-        System.out.println("    j) Remove a Song from Library");
-        System.out.println("    k) Remove an Album from Library");
-        System.out.println("    l) Shuffle your library songs");
-        System.out.println("    m) Shuffle a playlist");
-        System.out.println("    n) Search Library by Genre");
-        System.out.println("    o) Get Album Info for a Song (Library)");
-        System.out.println("    p) Get Sorted List of Songs (by title, artist, or rating)");
-        System.out.println("    q) Update Auto-Playlists");
-        System.out.println("    r) Show Auto-Playlists");
-        System.out.println();
-        System.out.println("  Type 'exit' to quit.");
-        System.out.println("-------------------------------------------------");
+        out.println("-------------------------------------------------");
+        out.println("                MAIN MENU OPTIONS");
+        out.println("-------------------------------------------------");
+        out.println("  Store Searches:");
+        out.println("    1) Search Store by Song Title");
+        out.println("    2) Search Store by Song Artist");
+        out.println("    3) Search Store by Album Title");
+        out.println("    4) Search Store by Album Artist");
+        out.println("    s) Search Store (partial or misspelled names, 'prefix*' to autocomplete)");
+        out.println("    t) Search Store by Keywords (titles, artists, albums, genres; OR for alternatives)");
+        out.println();
+        out.println("  Library Searches:");
+        out.println("    5) Search Library by Song Title");
+        out.println("    6) Search Library by Song Artist");
+        out.println("    7) Search Library by Album Title");
+        out.println("    8) Search Library by Album Artist");
+        out.println("    9) Search Library for Playlist by Name");
+        out.println("    u) Search Library by Keywords (titles, artists, albums, genres; OR for alternatives)");
+        out.println();
+        out.println("  Library Modifications:");
+        out.println("    a) Add Song to Library (from Store)");
+        out.println("    b) Add Album to Library (from Store)");
+        out.println("    c) List Library items");
+        out.println("    d) Create Playlist");
+        out.println("    e) Add Song to a Playlist");
+        out.println("    f) Remove Song from a Playlist");
+        out.println("    g) Mark Song as Favorite");
+        out.println("    h) Rate a Song");
+        out.println("    i) Play a Song (tracks plays)");
+        out.println("    j) Remove a Song from Library");
+        out.println("    k) Remove an Album from Library");
+        out.println("    l) Shuffle your library songs");
+        out.println("    m) Shuffle a playlist");
+        out.println("    n) Search Library by Genre");
+        out.println("    o) Get Album Info for a Song (Library)");
+        out.println("    p) Get Sorted List of Songs (by title, artist, or rating)");
+        out.println("    q) Update Auto-Playlists");
+        out.println("    r) Show Auto-Playlists");
+        out.println();
+        out.println("  Type 'exit' to quit.");
+        out.println("-------------------------------------------------");
     }
 
     /**
@@ -188,60 +276,146 @@ public class View {
      */
 
     private void searchStoreForSongTitle() {
-        System.out.print("Enter song title to search in the store: ");
+        out.print("Enter song title to search in the store: ");
         String title = scanner.nextLine().trim();
+        noteIfStoreLoading();
         List<Song> songs = store.getSongsByTitle(title);
         if (songs.isEmpty()) {
-            System.out.println("No songs found with title \"" + title + "\" in the store.");
+            out.println("No songs found with title \"" + title + "\" in the store.");
         } else {
-            System.out.println("Found the following song(s) in the store:");
+            out.println("Found the following song(s) in the store:");
             for (Song s : songs) {
-                System.out.println("  - " + s.getTitle() + " by " + s.getArtist() 
+                out.println("  - " + s.getTitle() + " by " + s.getArtist() 
                                    + " (album: " + s.getAlbumTitle() + ")");
             }
         }
     }
 
     private void searchStoreForSongArtist() {
-        System.out.print("Enter artist name to search in the store: ");
+        out.print("Enter artist name to search in the store: ");
         String artist = scanner.nextLine().trim();
+        noteIfStoreLoading();
         List<Song> songs = store.getSongsByArtist(artist);
         if (songs.isEmpty()) {
-            System.out.println("No songs found by artist \"" + artist + "\" in the store.");
+            out.println("No songs found by artist \"" + artist + "\" in the store.");
         } else {
-            System.out.println("Found the following song(s) in the store:");
+            out.println("Found the following song(s) in the store:");
             for (Song s : songs) {
-                System.out.println("  - " + s.getTitle() + " by " + s.getArtist() 
+                out.println("  - " + s.getTitle() + " by " + s.getArtist() 
                                    + " (album: " + s.getAlbumTitle() + ")");
             }
         }
     }
 
     private void searchStoreForAlbumTitle() {
-        System.out.print("Enter album title to search in the store: ");
+        out.print("Enter album title to search in the store: ");
         String title = scanner.nextLine().trim();
-        Album album = store.getAlbumByTitle(title);
+        noteIfStoreLoading();
+        List<Album> albums = store.getAlbumsByTitle(title);
+        Album album = albums.size() == 1 ? albums.get(0) : null;
+        if (albums.size() > 1) {
+            out.println("Several albums are titled \"" + title + "\":");
+            for (Album a : albums) {
+                out.println("  - " + a.getTitle() + " by " + a.getArtist());
+            }
+            out.print("Enter the artist: ");
+            String artist = scanner.nextLine().trim();
+            album = store.findAlbum(title, artist);
+            if (album == null) {
+                out.println("No album titled \"" + title + "\" by \"" + artist + "\" in the store.");
+                return;
+            }
+        }
         if (album == null) {
-            System.out.println("No album found with title \"" + title + "\" in the store.");
+            out.println("No album found with title \"" + title + "\" in the store.");
         } else {
             printAlbumInfo(album);
         }
     }
 
     private void searchStoreForAlbumArtist() {
-        System.out.print("Enter album artist to search in the store: ");
+        out.print("Enter album artist to search in the store: ");
         String artist = scanner.nextLine().trim();
+        noteIfStoreLoading();
         List<Album> albums = store.getAlbumsByArtist(artist);
         if (albums.isEmpty()) {
-            System.out.println("No albums found for artist \"" + artist + "\" in the store.");
+            out.println("No albums found for artist \"" + artist + "\" in the store.");
         } else {
-            System.out.println("Found the following album(s) by " + artist + ":");
+            out.println("Found the following album(s) by " + artist + ":");
             for (Album album : albums) {
                 printAlbumInfo(album);
             }
         }
     }
 
+    private void searchStore() {
+        out.print("Enter search text: ");
+        String query = scanner.nextLine().trim();
+        noteIfStoreLoading();
+        if (query.endsWith("*")) {
+            List<String> names = store.autocomplete(query.substring(0, query.length() - 1), SEARCH_RESULTS);
+            if (names.isEmpty()) {
+                out.println("Nothing in the store starts with \"" + query + "\".");
+            }
+            for (String name : names) {
+                out.println("  - " + name);
+            }
+            return;
+        }
+
+        List<Song> songs = store.searchSongs(query, SEARCH_RESULTS);
+        List<Album> albums = store.searchAlbums(query, SEARCH_RESULTS);
+        List<String> artists = store.searchArtists(query, SEARCH_RESULTS);
+        if (songs.isEmpty() && albums.isEmpty() && artists.isEmpty()) {
+            out.println("No matches for \"" + query + "\" in the store.");
+            return;
+        }
+        if (!songs.isEmpty()) {
+            out.println("Songs:");
+            for (Song s : songs) {
+                out.println("  - " + s.getTitle() + " by " + s.getArtist()
+                                   + " (album: " + s.getAlbumTitle() + ")");
+            }
+        }
+        if (!albums.isEmpty()) {
+            out.println("Albums:");
+            for (Album a : albums) {
+                out.println("  - " + a.getTitle() + " by " + a.getArtist() + " (" + a.getYear() + ")");
+            }
+        }
+        if (!artists.isEmpty()) {
+            out.println("Artists:");
+            for (String a : artists) {
+                out.println("  - " + a);
+            }
+        }
+    }
+
+    private void searchStoreByKeywords() {
+        out.print("Enter keywords to search in the store: ");
+        String query = scanner.nextLine().trim();
+        noteIfStoreLoading();
+        List<Song> songs = store.searchText(query, SEARCH_RESULTS);
+        if (songs.isEmpty()) {
+            out.println("No songs in the store match \"" + query + "\".");
+        } else {
+            out.println("Found the following song(s) in the store:");
+            for (Song s : songs) {
+                out.println("  - " + s.getTitle() + " by " + s.getArtist()
+                                   + " (album: " + s.getAlbumTitle() + ")");
+            }
+        }
+    }
+
+    /**
+     * Warns that store results may be incomplete while the catalog is still loading
+     */
+    private void noteIfStoreLoading() {
+        if (!store.isFullyLoaded()) {
+            out.println("(" + store.getLoadReport() + "; results may be incomplete)");
+        }
+    }
+
     /**
      * --- LIBRARY SEARCHES ---
      * These methods search the user's personal library (LibraryModel).
@@ -250,43 +424,58 @@ public class View {
      */
 
     private void searchLibraryForSongTitle() {
-        System.out.print("Enter song title to search in your library: ");
+        out.print("Enter song title to search in your library: ");
         String title = scanner.nextLine().trim();
         List<Song> songs = library.getSongsByTitle(title);
         if (songs.isEmpty()) {
-            System.out.println("No songs found with title \"" + title + "\" in your library.");
+            out.println("No songs found with title \"" + title + "\" in your library.");
         } else {
-            System.out.println("Found the following song(s) in your library:");
+            out.println("Found the following song(s) in your library:");
             for (Song s : songs) {
-                System.out.println("  - " + s.getTitle() + " by " + s.getArtist() 
+                out.println("  - " + s.getTitle() + " by " + s.getArtist() 
+                                   + " (album: " + s.getAlbumTitle() + ")");
+            }
+        }
+    }
+
+    private void searchLibraryByKeywords() {
+        out.print("Enter keywords to search in your library: ");
+        String query = scanner.nextLine().trim();
+        List<Song> songs = library.searchText(query);
+        if (songs.isEmpty()) {
+            out.println("No songs in your library match \"" + query + "\".");
+        } else {
+            out.println("Found the following song(s) in your library:");
+            for (Song s : songs) {
+                out.println("  - " + s.getTitle() + " by " + s.getArtist()
                                    + " (album: " + s.getAlbumTitle() + ")");
             }
         }
     }
 
     private void searchLibraryForSongArtist() {
-        System.out.print("Enter artist name to search in your library: ");
+        out.print("Enter artist name to search in your library: ");
         String artist = scanner.nextLine().trim();
         List<Song> songs = library.getSongsByArtist(artist);
         if (songs.isEmpty()) {
-            System.out.println("No songs found by \"" + artist + "\" in your library.");
+            out.println("No songs found by \"" + artist + "\" in your library.");
         } else {
-            System.out.println("Found the following song(s) in your library:");
+            out.println("Found the following song(s) in your library:");
             for (Song s : songs) {
-                System.out.println("  - " + s.getTitle() + " by " + s.getArtist() 
+                out.println("  - " + s.getTitle() + " by " + s.getArtist() 
                                    + " (album: " + s.getAlbumTitle() + ")");
             }
         }
     }
 
     private void searchLibraryForAlbumTitle() {
-        System.out.print("Enter album title to search in your library: ");
+        out.print("Enter album title to search in your library: ");
         String title = scanner.nextLine().trim();
         List<Album> albums = library.getAlbumsByTitle(title);
         if (albums.isEmpty()) {
-            System.out.println("No albums found with title \"" + title + "\" in your library.");
+            out.println("No albums found with title \"" + title + "\" in your library.");
         } else {
-            System.out.println("Found the following album(s) in your library:");
+            out.println("Found the following album(s) in your library:");
             for (Album album : albums) {
                 printAlbumInfo(album);
             }
@@ -294,13 +483,13 @@ public class View {
     }
 
     private void searchLibraryForAlbumArtist() {
-        System.out.print("Enter album artist to search in your library: ");
+        out.print("Enter album artist to search in your library: ");
         String artist = scanner.nextLine().trim();
         List<Album> albums = library.getAlbumsByArtist(artist);
         if (albums.isEmpty()) {
-            System.out.println("No albums found by \"" + artist + "\" in your library.");
+            out.println("No albums found by \"" + artist + "\" in your library.");
         } else {
-            System.out.println("Found the following album(s) in your library:");
+            out.println("Found the following album(s) in your library:");
             for (Album album : albums) {
                 printAlbumInfo(album);
             }
@@ -308,15 +497,15 @@ public class View {
     }
 
     private void searchLibraryForPlaylist() {
-        System.out.print("Enter the playlist name to search in your library: ");
+        out.print("Enter the playlist name to search in your library: ");
         String name = scanner.nextLine().trim();
         PlayList playlist = library.getPlayList(name);
         if (playlist == null) {
-            System.out.println("No playlist named \"" + name + "\" in your library.");
+            out.println("No playlist named \"" + name + "\" in your library.");
         } else {
-            System.out.println("Playlist \"" + playlist.getName() + "\" found. Songs:");
+            out.println("Playlist \"" + playlist.getName() + "\" found. Songs:");
             for (Song s : playlist.getSongs()) {
-                System.out.println("  - " + s.getTitle() + " by " + s.getArtist());
+                out.println("  - " + s.getTitle() + " by " + s.getArtist());
             }
         }
     }
@@ -329,10 +518,10 @@ public class View {
      */
 
     private void addSongToLibrary() {
-        System.out.println("To add a song from the store to your library:");
-        System.out.print("  Enter the song title: ");
+        out.println("To add a song from the store to your library:");
+        out.print("  Enter the song title: ");
         String title = scanner.nextLine().trim();
-        System.out.print("  Enter the artist: ");
+        out.print("  Enter the artist: ");
         String artist = scanner.nextLine().trim();
 
         // Look up song in store
@@ -341,7 +530,7 @@ public class View {
 	    songs.removeIf(s -> !s.getArtist().equalsIgnoreCase(artist));
 
         if (songs.isEmpty()) {
-            System.out.println("Could not find that song in the store.");
+            out.println("Could not find that song in the store.");
             return;
         }
 
@@ -349,88 +538,82 @@ public class View {
         for (Song s : songs) {
             library.addSong(s);
         }
-        System.out.println("Song(s) successfully added to your library!");
+        out.println("Song(s) successfully added to your library!");
     }
 
     private void addAlbumToLibrary() {
-        System.out.println("To add an album from the store to your library:");
-        System.out.print("  Enter the album title: ");
+        out.println("To add an album from the store to your library:");
+        out.print("  Enter the album title: ");
         String title = scanner.nextLine().trim();
-        System.out.print("  Enter the artist: ");
+        out.print("  Enter the artist: ");
         String artist = scanner.nextLine().trim();
 
         // Look up album in store
-        Album album = store.getAlbumByTitle(title);
-        if (album == null || !album.getArtist().equalsIgnoreCase(artist)) {
-        	List<Album> unmodifiable = store.getAlbumsByArtist(artist);
-            List<Album> possibleMatches = new ArrayList<>(unmodifiable);
-            possibleMatches.removeIf(a -> !a.getTitle().equalsIgnoreCase(title));
-            if (possibleMatches.isEmpty()) {
-                System.out.println("Could not find that album in the store.");
-                return;
-            }
-            album = possibleMatches.get(0);
+        Album album = store.findAlbum(title, artist);
+        if (album == null) {
+            out.println("Could not find that album in the store.");
+            return;
         }
 
         library.addAlbum(album);
-        System.out.println("Album and its songs successfully added to your library!");
+        out.println("Album and its songs successfully added to your library!");
     }
 
     private void listLibraryItems() {
-        System.out.println("Your Library Contents:");
+        out.println("Your Library Contents:");
 
-        System.out.println("  Songs:");
+        out.println("  Songs:");
         for (Song s : library.getSongs()) {
-            System.out.println("    - " + s.getTitle() + " by " + s.getArtist() 
+            out.println("    - " + s.getTitle() + " by " + s.getArtist() 
                                + " (album: " + s.getAlbumTitle() + ")");
         }
-        System.out.println();
+        out.println();
 
-        System.out.println("  Artists:");
+        out.println("  Artists:");
         for (String artist : library.getArtists()) {
-            System.out.println("    - " + artist);
+            out.println("    - " + artist);
         }
-        System.out.println();
+        out.println();
 
-        System.out.println("  Albums:");
+        out.println("  Albums:");
         for (Album album : library.getAlbums()) {
-            System.out.println("    - " + album.getTitle() + " by " + album.getArtist()
+            out.println("    - " + album.getTitle() + " by " + album.getArtist()
                                + " (" + album.getYear() + ", " + album.getGenre() + ")");
         }
-        System.out.println();
+        out.println();
 
-        System.out.println("  Playlists:");
+        out.println("  Playlists:");
         for (PlayList p : library.getPlayLists()) {
-            System.out.println("    - " + p.getName());
+            out.println("    - " + p.getName());
         }
-        System.out.println();
+        out.println();
 
-        System.out.println("  Favorite Songs:");
+        out.println("  Favorite Songs:");
         for (Song fav : library.getFavoriteSongs()) {
-            System.out.println("    - " + fav.getTitle() + " by " + fav.getArtist());
+            out.println("    - " + fav.getTitle() + " by " + fav.getArtist());
         }
     }
 
     private void createPlaylist() {
-        System.out.print("Enter a name for the new playlist: ");
+        out.print("Enter a name for the new playlist: ");
         String name = scanner.nextLine().trim();
         library.createPlayList(name);
-        System.out.println("Playlist \"" + name + "\" created successfully!");
+        out.println("Playlist \"" + name + "\" created successfully!");
     }
 
     private void addSongToPlaylist() {
-        System.out.print("Enter the playlist name: ");
+        out.print("Enter the playlist name: ");
         String playlistName = scanner.nextLine().trim();
 
         PlayList playlist = library.getPlayList(playlistName);
         if (playlist == null) {
-            System.out.println("No playlist named \"" + playlistName + "\" in your library.");
+            out.println("No playlist named \"" + playlistName + "\" in your library.");
             return;
         }
 
-        System.out.print("Enter the song title: ");
+        out.print("Enter the song title: ");
         String title = scanner.nextLine().trim();
-        System.out.print("Enter the artist: ");
+        out.print("Enter the artist: ");
         String artist = scanner.nextLine().trim();
 
         // Look for song in library
@@ -438,7 +621,7 @@ public class View {
         matches.removeIf(s -> !s.getArtist().equalsIgnoreCase(artist));
 
         if (matches.isEmpty()) {
-            System.out.println("No matching song found in your library. Please add the song to the library first.");
+            out.println("No matching song found in your library. Please add the song to the library first.");
             return;
         }
 
@@ -447,22 +630,22 @@ public class View {
             playlist.addSong(s);
         }
 
-        System.out.println("Song(s) added to playlist \"" + playlistName + "\" successfully!");
+        out.println("Song(s) added to playlist \"" + playlistName + "\" successfully!");
     }
 
     private void removeSongFromPlaylist() {
-        System.out.print("Enter the playlist name: ");
+        out.print("Enter the playlist name: ");
         String playlistName = scanner.nextLine().trim();
 
         PlayList playlist = library.getPlayList(playlistName);
         if (playlist == null) {
-            System.out.println("No playlist named \"" + playlistName + "\" in your library.");
+            out.println("No playlist named \"" + playlistName + "\" in your library.");
             return;
         }
 
-        System.out.print("Enter the song title: ");
+        out.print("Enter the song title: ");
         String title = scanner.nextLine().trim();
-        System.out.print("Enter the artist: ");
+        out.print("Enter the artist: ");
         String artist = scanner.nextLine().trim();
 
         List<Song> toRemove = playlist.getSongs();
@@ -470,7 +653,7 @@ public class View {
                                 && s.getArtist().equalsIgnoreCase(artist)));
 
         if (toRemove.isEmpty()) {
-            System.out.println("No matching song in \"" + playlistName + "\" playlist.");
+            out.println("No matching song in \"" + playlistName + "\" playlist.");
             return;
         }
 
@@ -479,44 +662,44 @@ public class View {
             playlist.removeSong(s);
         }
 
-        System.out.println("Song(s) removed from playlist \"" + playlistName + "\" successfully!");
+        out.println("Song(s) removed from playlist \"" + playlistName + "\" successfully!");
     }
 
     private void markSongAsFavorite() {
-        System.out.println("Mark a song in your library as favorite.");
-        System.out.print("  Enter the song title: ");
+        out.println("Mark a song in your library as favorite.");
+        out.print("  Enter the song title: ");
         String title = scanner.nextLine().trim();
-        System.out.print("  Enter the artist: ");
+        out.print("  Enter the artist: ");
         String artist = scanner.nextLine().trim();
 
         List<Song> matches = library.getSongsByTitle(title);
         matches.removeIf(s -> !s.getArtist().equalsIgnoreCase(artist));
 
         if (matches.isEmpty()) {
-            System.out.println("No matching song found in your library.");
+            out.println("No matching song found in your library.");
             return;
         }
 
         for (Song s : matches) {
             library.markSongAsFavorite(s);
         }
-        System.out.println("Song(s) marked as favorite!");
+        out.println("Song(s) marked as favorite!");
     }
 
     private void rateSong() {
-        System.out.println("Rate a song in your library (1-5). Rating of 5 automatically marks it favorite.");
-        System.out.print("  Song title: ");
+        out.println("Rate a song in your library (1-5). Rating of 5 automatically marks it favorite.");
+        out.print("  Song title: ");
         String title = scanner.nextLine().trim();
-        System.out.print("  Artist: ");
+        out.print("  Artist: ");
         String artist = scanner.nextLine().trim();
-        System.out.print("  Rating (1-5): ");
+        out.print("  Rating (1-5): ");
         String ratingStr = scanner.nextLine().trim();
 
         int rating;
         try {
             rating = Integer.parseInt(ratingStr);
         } catch (NumberFormatException e) {
-            System.out.println("Invalid rating. Must be an integer 1-5.");
+            out.println("Invalid rating. Must be an integer 1-5.");
             return;
         }
 
@@ -524,7 +707,7 @@ public class View {
         matches.removeIf(s -> !s.getArtist().equalsIgnoreCase(artist));
 
         if (matches.isEmpty()) {
-            System.out.println("No matching song found in your library.");
+            out.println("No matching song found in your library.");
             return;
         }
 
@@ -535,9 +718,9 @@ public class View {
         }
 
         if (success) {
-            System.out.println("Song(s) rated successfully!");
+            out.println("Song(s) rated successfully!");
         } else {
-            System.out.println("Failed to rate song(s). Check if the song is in your library.");
+            out.println("Failed to rate song(s). Check if the song is in your library.");
         }
     }
     
@@ -549,122 +732,122 @@ public class View {
      */
     
     private void playSongInLibrary() {
-        System.out.println("Play a song from your library.");
-        System.out.print("  Song title: ");
+        out.println("Play a song from your library.");
+        out.print("  Song title: ");
         String title = scanner.nextLine().trim();
-        System.out.print("  Artist: ");
+        out.print("  Artist: ");
         String artist = scanner.nextLine().trim();
 
         library.playSong(title, artist);
-        System.out.println("Song play recorded (if it exists in your library).\n");
+        out.println("Song play recorded (if it exists in your library).\n");
     }
     
     private void removeSongFromLibrary() {
-        System.out.println("Remove a song from your library.");
-        System.out.print("  Song title: ");
+        out.println("Remove a song from your library.");
+        out.print("  Song title: ");
         String title = scanner.nextLine().trim();
-        System.out.print("  Artist: ");
+        out.print("  Artist: ");
         String artist = scanner.nextLine().trim();
 
         List<Song> matches = library.getSongsByTitle(title);
         matches.removeIf(s -> !s.getArtist().equalsIgnoreCase(artist));
 
         if (matches.isEmpty()) {
-            System.out.println("No matching song found in your library.");
+            out.println("No matching song found in your library.");
             return;
         }
 
         for (Song s : matches) {
             library.removeSong(s);
-            System.out.println("Removed '" + s.getTitle() + "' by " + s.getArtist() + " from the library.");
+            out.println("Removed '" + s.getTitle() + "' by " + s.getArtist() + " from the library.");
         }
     }
     
     private void removeAlbumFromLibrary() {
-        System.out.println("Remove an album from your library.");
-        System.out.print("  Album title: ");
+        out.println("Remove an album from your library.");
+        out.print("  Album title: ");
         String title = scanner.nextLine().trim();
-        System.out.print("  Artist: ");
+        out.print("  Artist: ");
         String artist = scanner.nextLine().trim();
 
         List<Album> matches = library.getAlbumsByTitle(title);
         matches.removeIf(a -> !a.getArtist().equalsIgnoreCase(artist));
 
         if (matches.isEmpty()) {
-            System.out.println("No matching album found in your library.");
+            out.println("No matching album found in your library.");
             return;
         }
 
         for (Album a : matches) {
             library.removeAlbum(a);
-            System.out.println("Removed album '" + a.getTitle() + "' by " + a.getArtist() + " from the library.");
+            out.println("Removed album '" + a.getTitle() + "' by " + a.getArtist() + " from the library.");
         }
     }
     
     private void shuffleLibrarySongs() {
-        System.out.println("Shuffled Library Songs:");
+        out.println("Shuffled Library Songs:");
         List<Song> shuffled = library.getShuffledSongs();
         for (Song s : shuffled) {
-            System.out.println("  - " + s.getTitle() + " by " + s.getArtist());
+            out.println("  - " + s.getTitle() + " by " + s.getArtist());
         }
     }
     
     private void shufflePlaylist() {
-        System.out.print("Enter the playlist name to shuffle: ");
+        out.print("Enter the playlist name to shuffle: ");
         String playlistName = scanner.nextLine().trim();
         PlayList playlist = library.getPlayList(playlistName);
         if (playlist == null) {
-            System.out.println("No playlist named \"" + playlistName + "\" in your library.");
+            out.println("No playlist named \"" + playlistName + "\" in your library.");
             return;
         }
-        System.out.println("Shuffled Playlist \"" + playlistName + "\":");
+        out.println("Shuffled Playlist \"" + playlistName + "\":");
         List<Song> shuffled = library.shuffleSongsInPlayList(playlist);
         for (Song s : shuffled) {
-            System.out.println("  - " + s.getTitle() + " by " + s.getArtist());
+            out.println("  - " + s.getTitle() + " by " + s.getArtist());
         }
     }
     
     private void searchLibraryByGenre() {
-        System.out.print("Enter the genre to search in your library: ");
+        out.print("Enter the genre to search in your library: ");
         String genre = scanner.nextLine().trim();
         List<Song> results = library.getSongsByGenre(genre);
         if (results.isEmpty()) {
-            System.out.println("No songs found in the \"" + genre + "\" genre.");
+            out.println("No songs found in the \"" + genre + "\" genre.");
         } else {
-            System.out.println("Found the following \"" + genre + "\" song(s) in your library:");
+            out.println("Found the following \"" + genre + "\" song(s) in your library:");
             for (Song s : results) {
-                System.out.println("  - " + s.getTitle() + " by " + s.getArtist());
+                out.println("  - " + s.getTitle() + " by " + s.getArtist());
             }
         }
     }
 
     private void getAlbumInfoForLibrarySong() {
-        System.out.println("Enter the Song to see its full album info (from the store).");
-        System.out.print("  Song title: ");
+        out.println("Enter the Song to see its full album info (from the store).");
+        out.print("  Song title: ");
         String title = scanner.nextLine().trim();
-        System.out.print("  Artist: ");
+        out.print("  Artist: ");
         String artist = scanner.nextLine().trim();
         Album alb = library.getAlbumInfoForSong(title, artist);
         if (alb == null) {
-            System.out.println("No matching album found in the store for that song.");
+            out.println("No matching album found in the store for that song.");
             return;
         }
-        System.out.println("\n--- ALBUM INFO ---");
+        out.println("\n--- ALBUM INFO ---");
         printAlbumInfo(alb);
         boolean inLib = library.isAlbumInLibrary(alb.getTitle(), alb.getArtist());
         if (inLib) {
-            System.out.println("(This album is already in your library, at least partially.)\n");
+            out.println("(This album is already in your library, at least partially.)\n");
         } else {
-            System.out.println("(This album is not yet in your library.)\n");
+            out.println("(This album is not yet in your library.)\n");
         }
     }
 
     private void getSortedLibrarySongs() {
-        System.out.println("Sort songs in your library:");
-        System.out.println("  1) By Title");
-        System.out.println("  2) By Artist");
-        System.out.println("  3) By Rating");
-        System.out.print("Enter choice: ");
+        out.println("Sort songs in your library:");
+        out.println("  1) By Title");
+        out.println("  2) By Artist");
+        out.println("  3) By Rating");
+        out.print("Enter choice: ");
         String choice = scanner.nextLine().trim();
 
         List<Song> sorted = new ArrayList<>();
@@ -679,66 +862,58 @@ public class View {
                 sorted = library.getSongsSortedByRating();
                 break;
             default:
-                System.out.println("Invalid choice.");
+                out.println("Invalid choice.");
                 return;
         }
 
-        System.out.println("\nSorted Songs:");
+        out.println("\nSorted Songs:");
         for (Song s : sorted) {
             Integer rating = library.getAllRatedSongs().getOrDefault(s, 0);
-            System.out.println("  " + s.getTitle() + " by " + s.getArtist()
+            out.println("  " + s.getTitle() + " by " + s.getArtist()
                                + " (Rating: " + rating + ")");
         }
     }
 
     private void showAutoPlaylists() {
-        System.out.println("\nAUTO-PLAYLIST: Favorite Songs (Auto)");
+        out.println("\nAUTO-PLAYLIST: Favorite Songs (Auto)");
         PlayList fav = library.getFavoritesAutoPlaylist();
         if (fav != null) {
             for (Song s : fav.getSongs()) {
-                System.out.println("  - " + s.getTitle() + " by " + s.getArtist());
+                out.println("  - " + s.getTitle() + " by " + s.getArtist());
             }
         }
 
-        System.out.println("\nAUTO-PLAYLIST: Top Rated (Auto)");
+        out.println("\nAUTO-PLAYLIST: Top Rated (Auto)");
         PlayList top = library.getTopRatedAutoPlaylist();
         if (top != null) {
             for (Song s : top.getSongs()) {
-                System.out.println("  - " + s.getTitle() + " by " + s.getArtist());
+                out.println("  - " + s.getTitle() + " by " + s.getArtist());
             }
         }
         
-        System.out.println("\nAUTO-PLAYLIST: Most Frequently Played (Auto)");
+        out.println("\nAUTO-PLAYLIST: Most Frequently Played (Auto)");
         PlayList freq = library.getFrequentlyPlayedPlayList();
         if (freq != null) {
             for (Song s : freq.getFrequentlyPlayedSongs()) {
-                System.out.println("  - " + s.getTitle() + " by " + s.getArtist() + ": " + s.getPlayCount() + " time(s) played");
+                out.println("  - " + s.getTitle() + " by " + s.getArtist() + ": " + library.getPlayCount(s) + " time(s) played");
             }
         }
         
-        System.out.println("\nAUTO-PLAYLIST: Most Recently Played (Auto)");
+        out.println("\nAUTO-PLAYLIST: Most Recently Played (Auto)");
         PlayList rec = library.getRecentlyPlayedPlayList();
         if (rec != null) {
             for (Song s : rec.getRecentlyPlayedSongs()) {
-                System.out.println("  - " + s.getTitle() + " by " + s.getArtist());
+                out.println("  - " + s.getTitle() + " by " + s.getArtist());
             }
         }
 
-        System.out.println("\nAUTO-PLAYLISTS by Genre:");
-        Set<String> uniqueGenres = new HashSet<>();
-        for (Album a : library.getAlbums()) {
-            uniqueGenres.add(a.getGenre().toLowerCase());
-        }
-
-        for (String g : uniqueGenres) {
-            PlayList gp = library.getGenreAutoPlaylist(g);
-            if (gp != null) {
-                System.out.println("  " + gp.getName() + ":");
-                for (Song s : gp.getSongs()) {
-                    System.out.println("     - " + s.getTitle() + " by " + s.getArtist());
-                }
-                System.out.println();
+        out.println("\nAUTO-PLAYLISTS by Genre:");
+        for (PlayList gp : library.getGenreAutoPlaylists()) {
+            out.println("  " + gp.getName() + ":");
+            for (Song s : gp.getSongs()) {
+                out.println("     - " + s.getTitle() + " by " + s.getArtist());
             }
+            out.println();
         }
     }
 
@@ -746,15 +921,15 @@ public class View {
      * Helper method to print album info
      */
     private void printAlbumInfo(Album album) {
-        System.out.println("Album: " + album.getTitle());
-        System.out.println("  Artist: " + album.getArtist());
-        System.out.println("  Genre: " + album.getGenre());
-        System.out.println("  Year: " + album.getYear());
-        System.out.println("  Tracks:");
+        out.println("Album: " + album.getTitle());
+        out.println("  Artist: " + album.getArtist());
+        out.println("  Genre: " + album.getGenre());
+        out.println("  Year: " + album.getYear());
+        out.println("  Tracks:");
         int i = 1;
         for (Song s : album.getSongs()) {
-            System.out.println("    " + (i++) + ". " + s.getTitle());
+            out.println("    " + (i++) + ". " + s.getTitle());
         }
-        System.out.println();
+        out.println();
     }
 }
@@ -0,0 +1,53 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/**
+ * JUnit tests for AlbumCache class
+ */
+class AlbumCacheTest {
+
+    private static Album album(String title) {
+        return new Album(title, "Artist", "Rock", 2000, List.of(new Song("Track", "Artist", title)));
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsed() {
+        AlbumCache cache = new AlbumCache(2);
+        cache.put("a", album("A"));
+        cache.put("b", album("B"));
+        assertEquals(album("A"), cache.get("a"));	// b is now the least recently used
+        cache.put("c", album("C"));
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    void testCountsHitsAndMisses() {
+        AlbumCache cache = new AlbumCache(4);
+        assertNull(cache.get("a"));
+        cache.put("a", album("A"));
+        cache.get("a");
+        cache.get("a");
+
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    void testFirstPutWins() {
+        AlbumCache cache = new AlbumCache(4);
+        Album first = album("A");
+        assertSame(first, cache.put("a", first));
+        assertSame(first, cache.put("a", album("A")));
+    }
+}
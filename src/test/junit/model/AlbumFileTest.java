@@ -0,0 +1,106 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JUnit tests for AlbumFile class
+ */
+class AlbumFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testHeaderAndTracks() throws IOException {
+        Path file = write("a.txt", " 21 , Adele ,Pop , 2011 \nRolling in the Deep\n\n  Rumour Has It  \nTurning Tables");
+        AlbumFile album = AlbumFile.read(file.toString());
+        assertEquals("21", album.getTitle());
+        assertEquals("Adele", album.getArtist());
+        assertEquals("Pop", album.getGenre());
+        assertEquals(2011, album.getYear());
+        assertEquals(3, album.getTrackCount());
+        assertEquals(List.of("Rolling in the Deep", "Rumour Has It", "Turning Tables"), titles(album.toAlbum()));
+    }
+
+    @Test
+    void testLineEndingsAndUtf8() throws IOException {
+        Path file = write("b.txt", "Café Tacvba,Café Tacvba,Latin,+1992,extra\r\nLa Chica Banda\rLas Flores\r\n\r\n\tMaría\t\r\n");
+        Album album = AlbumFile.read(file.toString()).toAlbum();
+        assertEquals("Café Tacvba", album.getTitle());
+        assertEquals(1992, album.getYear());
+        assertEquals(List.of("La Chica Banda", "Las Flores", "María"), titles(album));
+        assertEquals("Café Tacvba", album.getSongs().get(2).getArtist());
+    }
+
+    @Test
+    void testMalformedHeader() throws IOException {
+        assertThrows(IOException.class, () -> AlbumFile.read(write("empty.txt", "").toString()));
+        assertThrows(IOException.class, () -> AlbumFile.read(write("short.txt", "21,Adele,Pop\nSong").toString()));
+        assertThrows(NumberFormatException.class, () -> AlbumFile.read(write("year.txt", "21,Adele,Pop,soon\n").toString()));
+        assertThrows(IOException.class, () -> AlbumFile.read(tempDir.resolve("missing.txt").toString()));
+    }
+
+    @Test
+    void testAlbumList() throws IOException {
+        Path list = write("albums.txt", "21, Adele\r\nNoComma\nTrailing,\n,Anonymous\nFour,Commas,,\n\nx,,y\n");
+        assertEquals(List.of("dir/21_Adele.txt", "dir/_Anonymous.txt", "dir/Four_Commas.txt", "dir/x_.txt"),
+                AlbumFile.readAlbumList(list.toString(), "dir"));
+    }
+
+    @Test
+    void testBundledAlbumsMatchLineReader() throws IOException {
+        File[] files = new File("src/main/resources/albums").listFiles();
+        assertNotNull(files);
+        for (File f : files) {
+            Album parsed = AlbumFile.read(f.getPath()).toAlbum();
+            Album expected = readWithLineReader(f);
+            assertEquals(expected.getTitle(), parsed.getTitle());
+            assertEquals(expected.getArtist(), parsed.getArtist());
+            assertEquals(expected.getGenre(), parsed.getGenre());
+            assertEquals(expected.getYear(), parsed.getYear());
+            assertEquals(titles(expected), titles(parsed));
+        }
+    }
+
+    private Path write(String name, String content) throws IOException {
+        Path file = tempDir.resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static List<String> titles(Album album) {
+        return album.getSongs().stream().map(Song::getTitle).toList();
+    }
+
+    /**
+     * Reads an album file the way MusicStore did before AlbumFile
+     */
+    private static Album readWithLineReader(File file) throws IOException {
+        try (BufferedReader br = new BufferedReader(new FileReader(file, StandardCharsets.UTF_8))) {
+            String[] parts = br.readLine().split(",");
+            String title = parts[0].trim();
+            String artist = parts[1].trim();
+            List<Song> songs = new ArrayList<>();
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    songs.add(new Song(line.trim(), artist, title));
+                }
+            }
+            return new Album(title, artist, parts[2].trim(), Integer.parseInt(parts[3].trim()), songs);
+        }
+    }
+}
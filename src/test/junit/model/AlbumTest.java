@@ -61,4 +61,12 @@ class AlbumTest {
         songs.clear();
         assertEquals(2, album.getSongs().size());
     }
+
+    @Test
+    void testEqualsUsesTitleAndArtist() {
+        Album same = new Album("boys & girls", "alabama shakes", "Rock", 2012, new ArrayList<>());
+        assertEquals(album, same);
+        assertEquals(album.hashCode(), same.hashCode());
+        assertNotEquals(album, new Album("Boys & Girls", "Someone Else", "Rock", 2012, songList));
+    }
 }
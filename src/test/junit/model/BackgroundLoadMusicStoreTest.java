@@ -0,0 +1,146 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Runs every MusicStoreTest against a store loaded in the background, and
+ * tests loading in the background and skipping unreadable album files
+ */
+public class BackgroundLoadMusicStoreTest extends MusicStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Override
+    MusicStore loadStore() throws IOException {
+        MusicStore store = MusicStore.loadInBackground(ALBUMS_TXT_PATH, ALBUMS_DIR_PATH, 2);
+        awaitLoaded(store);
+        return store;
+    }
+
+    private static void awaitLoaded(MusicStore store) {
+        try {
+            store.awaitFullyLoaded();
+        } catch (InterruptedException e) {
+            fail("Interrupted while loading");
+        }
+    }
+
+    private String albumsTxt() {
+        return tempDir.resolve("albums.txt").toString();
+    }
+
+    private String albumsDir() {
+        return tempDir.resolve("albums").toString();
+    }
+
+    private String albumFile(String title, String artist) {
+        return albumsDir() + "/" + title + "_" + artist + ".txt";
+    }
+
+    private void write(String file, String content) throws IOException {
+        Files.createDirectories(Path.of(file).getParent());
+        Files.write(Path.of(file), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes a catalog of three albums: one good, one whose file is missing
+     * and one whose year is not a number
+     */
+    private void writeDamagedCatalog() throws IOException {
+        write(albumsTxt(), "Good,Band\nMissing,Band\nBroken,Band\n");
+        write(albumFile("Good", "Band"), "Good,Band,Rock,2001\nFirst\nSecond\n");
+        write(albumFile("Broken", "Band"), "Broken,Band,Rock,two thousand\nThird\n");
+    }
+
+    @Test
+    public void testLoadsInAlbumOrder() throws IOException {
+        StringBuilder list = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            list.append("Album ").append(i).append(",Generated\n");
+            write(albumFile("Album " + i, "Generated"), "Album " + i + ",Generated,Rock,2000\nSong " + i + "\n");
+        }
+        write(albumsTxt(), list.toString());
+
+        MusicStore store = MusicStore.loadInBackground(albumsTxt(), albumsDir(), 1);
+        int seen = 0;
+        boolean loaded;
+        do {
+            loaded = store.isFullyLoaded();
+            // whatever a lookup sees is a prefix of albums.txt that only grows
+            List<Album> albums = store.getAlbumsByArtist("generated");
+            assertTrue(albums.size() >= seen);
+            for (int i = 0; i < albums.size(); i++) {
+                assertEquals("Album " + i, albums.get(i).getTitle());
+            }
+            seen = albums.size();
+        } while (!loaded);
+
+        assertEquals(300, seen);
+        assertEquals(0, store.getGeneration());
+        assertTrue(store.getLoadReport().startsWith("Loaded 300 albums (300 songs)"));
+        assertEquals(List.of(new Song("Song 299", "Generated", "Album 299")), store.getSongsByTitle("song 299"));
+    }
+
+    @Test
+    public void testUnreadableFilesAreQuarantined() throws IOException {
+        writeDamagedCatalog();
+        List<String> skipped = List.of(albumFile("Missing", "Band"), albumFile("Broken", "Band"));
+
+        for (MusicStore store : List.of(new MusicStore(albumsTxt(), albumsDir()),
+                new MusicStore(albumsTxt(), albumsDir(), 2),
+                MusicStore.loadInBackground(albumsTxt(), albumsDir(), 2))) {
+            awaitLoaded(store);
+            assertEquals(skipped, store.getQuarantinedFiles());
+            assertEquals(2, store.getSongsByArtist("band").size());
+            assertNull(store.getAlbumByTitle("broken"));
+            assertTrue(store.getLoadReport().contains("Loaded 1 albums (2 songs)"));
+            assertTrue(store.getLoadReport().endsWith("skipped 2 unreadable album file(s)"));
+        }
+    }
+
+    @Test
+    public void testFixedQuarantinedFileIsReloaded() throws IOException {
+        writeDamagedCatalog();
+        MusicStore store = MusicStore.loadInBackground(albumsTxt(), albumsDir(), 1);
+        awaitLoaded(store);
+        String broken = albumFile("Broken", "Band");
+        assertTrue(store.getQuarantinedFiles().contains(broken));
+        write(broken, "Broken,Band,Rock,2002\nThird\n");
+
+        assertTrue(store.reload(Set.of(broken), false));
+        assertEquals(2002, store.getAlbumByTitle("broken").getYear());
+        assertEquals(3, store.getSongsByArtist("band").size());
+    }
+
+    @Test
+    public void testSnapshotIsNotWrittenWithQuarantinedFiles() throws IOException {
+        writeDamagedCatalog();
+        Path snapshot = tempDir.resolve("catalog.snapshot");
+        MusicStore store = MusicStore.fromSnapshot(snapshot.toString(), albumsTxt(), albumsDir());
+
+        assertEquals(2, store.getQuarantinedFiles().size());
+        assertFalse(Files.exists(snapshot));
+    }
+
+    @Test
+    public void testMissingAlbumList() {
+        MusicStore store = MusicStore.loadInBackground(albumsTxt(), albumsDir(), 2);
+        awaitLoaded(store);
+
+        assertTrue(store.isFullyLoaded());
+        assertTrue(store.getLoadReport().startsWith("Could not load albums"));
+        assertNull(store.getAlbumByTitle("21"));
+        assertTrue(store.searchSongs("love", 10).isEmpty());
+    }
+}
@@ -0,0 +1,147 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+/**
+ * JUnit tests for CatalogSnapshot class
+ */
+class CatalogSnapshotTest {
+
+    private static final String ALBUMS_TXT_PATH = "src/main/resources/albums.txt";
+    private static final String ALBUMS_DIR_PATH = "src/main/resources/albums";
+
+    @TempDir
+    Path tempDir;
+
+    private Path albumsTxt;
+    private Path albumsDir;
+    private Path snapshot;
+    private MusicStore parsed;
+
+    /**
+     * Copies the catalog into a temp directory so tests can touch the files
+     */
+    @BeforeEach
+    void setUp() throws IOException {
+        albumsTxt = tempDir.resolve("albums.txt");
+        albumsDir = tempDir.resolve("albums");
+        snapshot = tempDir.resolve("catalog.snapshot");
+
+        Files.copy(Paths.get(ALBUMS_TXT_PATH), albumsTxt);
+        Files.createDirectory(albumsDir);
+        try (var files = Files.list(Paths.get(ALBUMS_DIR_PATH))) {
+            for (Path f : (Iterable<Path>) files::iterator) {
+                Files.copy(f, albumsDir.resolve(f.getFileName().toString()));
+            }
+        }
+        parsed = new MusicStore(albumsTxt.toString(), albumsDir.toString());
+    }
+
+    @Test
+    void testSnapshotMatchesParsedStore() throws IOException {
+        parsed.writeSnapshot(snapshot.toString());
+        MusicStore mapped = MusicStore.fromSnapshot(snapshot.toString(), albumsTxt.toString(), albumsDir.toString());
+        assertTrue(mapped.getLoadReport().contains("catalog snapshot"));
+
+        Album album = mapped.getAlbumByTitle("21");
+        assertNotNull(album);
+        assertEquals("Adele", album.getArtist());
+        assertEquals("Pop", album.getGenre());
+        assertEquals(2011, album.getYear());
+        assertEquals(parsed.getAlbumByTitle("21").getSongs().size(), album.getSongs().size());
+
+        List<Song> expected = parsed.getSongsByArtist("adele");
+        List<Song> actual = mapped.getSongsByArtist("ADELE");
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getTitle(), actual.get(i).getTitle());
+            assertEquals(expected.get(i).getAlbumTitle(), actual.get(i).getAlbumTitle());
+        }
+
+        assertEquals(2, mapped.getAlbumsByArtist("Adele").size());
+        assertEquals(parsed.getSongsByTitle("Lullaby").size(), mapped.getSongsByTitle("lullaby").size());
+        assertNull(mapped.getAlbumByTitle("Purple Rain"));
+        assertTrue(mapped.getSongsByArtist("Prince").isEmpty());
+    }
+
+    @Test
+    void testFindByTitleAndArtist() throws IOException {
+        // albums.txt has no final newline
+        Files.writeString(albumsTxt, "\n21,Tribute Band\n", java.nio.file.StandardOpenOption.APPEND);
+        Files.writeString(albumsDir.resolve("21_Tribute Band.txt"), "21,Tribute Band,Pop,2015\nRolling in the Deep\n");
+        // the first store writes the snapshot and the second maps it
+        MusicStore.fromSnapshot(snapshot.toString(), albumsTxt.toString(), albumsDir.toString());
+        MusicStore mapped = MusicStore.fromSnapshot(snapshot.toString(), albumsTxt.toString(), albumsDir.toString());
+        assertTrue(mapped.getLoadReport().contains("catalog snapshot"));
+
+        assertEquals("Tribute Band", mapped.getAlbumByTitle("21").getArtist());
+        assertEquals(12, mapped.findAlbum("21", "adele").getSongs().size());
+        assertEquals(1, mapped.findAlbum("21", "TRIBUTE BAND").getSongs().size());
+        assertNull(mapped.findAlbum("21", "coldplay"));
+        assertEquals(List.of("Adele", "Tribute Band"),
+                mapped.getAlbumsByTitle("21").stream().map(Album::getArtist).toList());
+        assertEquals(new Song("Rolling in the Deep", "Tribute Band", "21"),
+                mapped.findSong("rolling in the deep", "tribute band", "21"));
+        assertEquals(new Song("Lovesong", "Adele", "21"), mapped.findSong("lovesong", "adele", "21"));
+        assertNull(mapped.findSong("lovesong", "tribute band", "21"));
+        assertNull(mapped.findSong("rolling in the deep", "tribute band", "25"));
+
+        assertEquals(new Song("Rolling in the Deep", "Tribute Band", "21"),
+                mapped.findSong("rolling in the deep", "tribute band"));
+        assertEquals(new Song("Rolling in the Deep", "Adele", "21"), mapped.findSong("rolling in the deep", "adele"));
+        assertNull(mapped.findSong("lovesong", "tribute band"));
+        assertNull(mapped.findSong("purple rain", "adele"));
+    }
+
+    @Test
+    void testSnapshotReturnsSameInstances() throws IOException {
+        parsed.writeSnapshot(snapshot.toString());
+        MusicStore mapped = MusicStore.fromSnapshot(snapshot.toString(), albumsTxt.toString(), albumsDir.toString());
+
+        Song first = mapped.getSongsByTitle("Rolling in the Deep").get(0);
+        Song second = mapped.getSongsByArtist("Adele").stream()
+                .filter(s -> s.getTitle().equals("Rolling in the Deep")).findFirst().orElseThrow();
+        assertSame(first, second);
+        assertSame(mapped.getAlbumByTitle("21"), mapped.getAlbumsByArtist("Adele").get(1));
+    }
+
+    @Test
+    void testMissingSnapshotIsCompiled() throws IOException {
+        assertFalse(Files.exists(snapshot));
+        MusicStore store = MusicStore.fromSnapshot(snapshot.toString(), albumsTxt.toString(), albumsDir.toString());
+        assertTrue(store.getLoadReport().contains("loader thread"));
+        assertTrue(Files.exists(snapshot));
+        assertNotNull(CatalogSnapshot.open(snapshot, albumsTxt.toString()));
+    }
+
+    @Test
+    void testChangedSourceInvalidatesSnapshot() throws IOException {
+        parsed.writeSnapshot(snapshot.toString());
+        assertNotNull(CatalogSnapshot.open(snapshot, albumsTxt.toString()));
+
+        Path album = albumsDir.resolve("19_Adele.txt");
+        FileTime modified = Files.getLastModifiedTime(album);
+        Files.setLastModifiedTime(album, FileTime.fromMillis(modified.toMillis() + 5000));
+        assertNull(CatalogSnapshot.open(snapshot, albumsTxt.toString()));
+    }
+
+    @Test
+    void testCorruptSnapshotIsRejected() throws IOException {
+        Files.write(snapshot, new byte[] { 1, 2, 3, 4 });
+        assertNull(CatalogSnapshot.open(snapshot, albumsTxt.toString()));
+
+        parsed.writeSnapshot(snapshot.toString());
+        assertNull(CatalogSnapshot.open(snapshot, "some/other/albums.txt"));
+    }
+}
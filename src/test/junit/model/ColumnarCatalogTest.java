@@ -0,0 +1,154 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/**
+ * JUnit tests for ColumnarCatalog class
+ */
+class ColumnarCatalogTest {
+
+    private ColumnarCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new ColumnarCatalog();
+        catalog.addAlbum(album("21", "Adele", "Pop", 2011, "Rolling in the Deep", "Lovesong"));
+        // "Aa" and "BB" have the same String hash code
+        catalog.addAlbum(album("Hashes", "Collider", "Electronic", 2020, "Aa", "BB", "Lovesong"));
+        catalog.addAlbum(album("19", "ADELE", "Pop", 2008, "Daydreamer"));
+        catalog.addAlbum(album("21", "Tribute Band", "Pop", 2015, "Someone Like You"));
+        catalog.finishLoading();
+    }
+
+    @Test
+    void testLookups() {
+        assertEquals(4, catalog.getAlbumCount());
+        assertEquals(7, catalog.getSongCount());
+
+        assertEquals("Tribute Band", catalog.getAlbumByTitle("21").getArtist());
+        assertNull(catalog.getAlbumByTitle("25"));
+
+        List<Album> adele = catalog.getAlbumsByArtist("adele");
+        assertEquals(2, adele.size());
+        assertEquals("21", adele.get(0).getTitle());
+        assertEquals("19", adele.get(1).getTitle());
+
+        List<Song> songs = catalog.getSongsByArtist("adele");
+        assertEquals(List.of("Rolling in the Deep", "Lovesong", "Daydreamer"), songs.stream().map(Song::getTitle).toList());
+        assertEquals("ADELE", songs.get(2).getArtist());
+        assertEquals("19", songs.get(2).getAlbumTitle());
+
+        List<Song> lovesongs = catalog.getSongsByTitle("lovesong");
+        assertEquals(2, lovesongs.size());
+        assertEquals("Adele", lovesongs.get(0).getArtist());
+        assertEquals("Collider", lovesongs.get(1).getArtist());
+        assertTrue(catalog.getSongsByTitle("purple rain").isEmpty());
+        assertTrue(catalog.getSongsByArtist("prince").isEmpty());
+    }
+
+    @Test
+    void testFindByTitleAndArtist() {
+        // the tribute band's "21" replaces Adele's in getAlbumByTitle but not here
+        assertEquals("Tribute Band", catalog.getAlbumByTitle("21").getArtist());
+        assertEquals("Adele", catalog.findAlbum("21", "adele").getArtist());
+        assertEquals("Tribute Band", catalog.findAlbum("21", "tribute band").getArtist());
+        assertEquals("ADELE", catalog.findAlbum("19", "adele").getArtist());
+        assertNull(catalog.findAlbum("19", "tribute band"));
+        assertNull(catalog.findAlbum("25", "adele"));
+        assertEquals(List.of("Adele", "Tribute Band"),
+                catalog.getAlbumsByTitle("21").stream().map(Album::getArtist).toList());
+        assertTrue(catalog.getAlbumsByTitle("25").isEmpty());
+
+        assertEquals(new Song("Lovesong", "Adele", "21"), catalog.findSong("lovesong", "adele", "21"));
+        assertEquals(new Song("Lovesong", "Collider", "Hashes"), catalog.findSong("lovesong", "collider", "hashes"));
+        assertEquals(new Song("BB", "Collider", "Hashes"), catalog.findSong("bb", "collider", "hashes"));
+        assertNull(catalog.findSong("lovesong", "tribute band", "21"));
+        assertNull(catalog.findSong("daydreamer", "adele", "21"));
+
+        assertEquals(new Song("Lovesong", "Collider", "Hashes"), catalog.findSong("lovesong", "collider"));
+        assertEquals(new Song("Daydreamer", "ADELE", "19"), catalog.findSong("daydreamer", "adele"));
+        assertEquals(new Song("Aa", "Collider", "Hashes"), catalog.findSong("aa", "collider"));
+        assertNull(catalog.findSong("lovesong", "tribute band"));
+        assertNull(catalog.findSong("purple rain", "adele"));
+    }
+
+    @Test
+    void testHashCollisionsKeepKeysApart() {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        assertEquals(List.of(new Song("Aa", "Collider", "Hashes")), catalog.getSongsByTitle("aa"));
+        assertEquals(List.of(new Song("BB", "Collider", "Hashes")), catalog.getSongsByTitle("bb"));
+    }
+
+    @Test
+    void testNumbering() {
+        assertEquals("Hashes", catalog.getAlbum(1).getTitle());
+        assertEquals("Electronic", catalog.getAlbum(1).getGenre());
+        assertEquals(2020, catalog.getAlbum(1).getYear());
+        assertEquals(new Song("Aa", "Collider", "Hashes"), catalog.getSong(2));
+        assertEquals(new Song("Someone Like You", "Tribute Band", "21"), catalog.getSong(6));
+        assertEquals(4, catalog.getAlbums().size());
+    }
+
+    @Test
+    void testViewsAreCanonical() {
+        Song first = catalog.getSongsByTitle("rolling in the deep").get(0);
+        assertSame(first, catalog.getSongsByArtist("adele").get(0));
+        assertSame(first, catalog.getSong(0));
+
+        Album album = catalog.getAlbum(2);
+        assertSame(album, catalog.getAlbumsByArtist("adele").get(1));
+        assertSame(album.getSongs().get(0), catalog.getSongsByTitle("daydreamer").get(0));
+    }
+
+    @Test
+    void testNonAsciiKeys() {
+        ColumnarCatalog other = new ColumnarCatalog();
+        other.addAlbum(album("Café Songs", "Beyoncé", "Pop", 2016, "CAFÉ", "King"));
+        // the Kelvin sign lowercases to an ASCII "k", so "\u212Aing" shares the key "king"
+        other.addAlbum(album("Crowns", "BEYONCÉ", "Pop", 2017, "Café", "\u212Aing"));
+        other.finishLoading();
+
+        assertEquals(2, other.getAlbumsByArtist("beyoncé").size());
+        assertEquals("Crowns", other.getAlbumByTitle("crowns").getTitle());
+        assertEquals(List.of("CAFÉ", "Café"), other.getSongsByTitle("café").stream().map(Song::getTitle).toList());
+        assertEquals(List.of("King", "\u212Aing"), other.getSongsByTitle("king").stream().map(Song::getTitle).toList());
+        assertTrue(other.getSongsByTitle("cafe").isEmpty());
+    }
+
+    @Test
+    void testLoadedSoFar() {
+        ColumnarCatalog loading = new ColumnarCatalog();
+        loading.addAlbum(album("21", "Adele", "Pop", 2011, "Rolling in the Deep", "Lovesong"));
+        ColumnarCatalog first = loading.loadedSoFar();
+        // enough albums to grow every column past the arrays the first view shares
+        for (int i = 0; i < 100; i++) {
+            loading.addAlbum(album("Album " + i, "Artist " + i, "Rock", 2000 + i, "Track " + i, "Lovesong"));
+        }
+        loading.addAlbum(album("21", "Tribute Band", "Pop", 2015, "Someone Like You"));
+        ColumnarCatalog second = loading.loadedSoFar();
+        loading.finishLoading();
+
+        assertEquals(1, first.getAlbumCount());
+        assertEquals(2, first.getSongCount());
+        assertEquals("Adele", first.getAlbumByTitle("21").getArtist());
+        assertEquals(1, first.getSongsByTitle("lovesong").size());
+        assertTrue(first.getAlbumsByArtist("artist 0").isEmpty());
+        assertEquals(List.of("Rolling in the Deep", "Lovesong"),
+                first.getAlbum(0).getSongs().stream().map(Song::getTitle).toList());
+
+        assertEquals(102, second.getAlbumCount());
+        assertEquals(203, second.getSongCount());
+        assertEquals("Tribute Band", second.getAlbumByTitle("21").getArtist());
+        assertEquals(101, second.getSongsByTitle("lovesong").size());
+        assertEquals(second.getAlbums(), loading.getAlbums());
+    }
+
+    private static Album album(String title, String artist, String genre, int year, String... songs) {
+        return new Album(title, artist, genre, year, List.of(songs).stream().map(s -> new Song(s, artist, title)).toList());
+    }
+}
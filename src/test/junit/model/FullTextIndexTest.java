@@ -0,0 +1,88 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JUnit tests for FullTextIndex class
+ */
+class FullTextIndexTest {
+
+    private final Song deep = new Song("Rolling in the Deep", "Adele", "21");
+    private final Song crazy = new Song("Crazy in Love", "Beyoncé", "Dangerously in Love");
+    private final Song dragon = new Song("City of Angels", "Ozomatli", "Don't Mess With the Dragon");
+
+    @Test
+    void testTokenize() {
+        assertEquals(List.of("beyonce"), FullTextIndex.tokenize("Beyoncé"));
+        assertEquals(List.of("dont", "mess", "with", "the", "dragon"), FullTextIndex.tokenize("Don't Mess With the Dragon"));
+        assertEquals(List.of("hip", "hop", "r", "b"), FullTextIndex.tokenize("Hip-Hop, R&B!"));
+        assertTrue(FullTextIndex.tokenize(" -- ").isEmpty());
+    }
+
+    @Test
+    void testAndAcrossFields() {
+        FullTextIndex index = index();
+        assertEquals(List.of(deep, crazy), index.search("in", 10));
+        assertEquals(List.of(crazy), index.search("LOVE beyonce", 10));
+        assertEquals(List.of(deep), index.search("pop adele", 10));
+        assertEquals(List.of(dragon), index.search("dont rock", 10));
+        assertTrue(index.search("adele rock", 10).isEmpty());
+        assertTrue(index.search("nothing", 10).isEmpty());
+        assertTrue(index.search("", 10).isEmpty());
+    }
+
+    @Test
+    void testOr() {
+        FullTextIndex index = index();
+        assertEquals(List.of(deep, dragon), index.search("ozomatli OR deep", 10));
+        assertEquals(List.of(deep, crazy), index.search("love OR adele OR missing", 10));
+        assertEquals(List.of(deep), index.search("love OR adele", 1));
+        // lowercase "or" is an ordinary word
+        assertTrue(index.search("ozomatli or deep", 10).isEmpty());
+    }
+
+    @Test
+    void testRemoveAndAddAgain() {
+        FullTextIndex index = index();
+        index.remove(deep);
+        assertEquals(List.of(crazy), index.search("in", 10));
+        assertEquals(2, index.size());
+        index.add(deep, "Pop");
+        assertEquals(List.of(crazy, deep), index.search("in", 10));
+    }
+
+    @Test
+    void testLongListsAndPurge() {
+        FullTextIndex index = new FullTextIndex();
+        List<Song> songs = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            Song s = new Song("Track " + i + (i % 7 == 0 ? " seven" : "") + (i % 500 == 0 ? " rare" : ""), "Artist", "Album");
+            songs.add(s);
+            index.add(s, "Pop");
+        }
+        // "rare" is short, "seven" and "track" long: the intersection skips through them
+        assertEquals(List.of(songs.get(0), songs.get(3500)), index.search("track seven rare", 10));
+
+        for (int i = 0; i < 4000; i++) {
+            index.remove(songs.get(i));
+        }
+        assertEquals(1000, index.size());
+        assertEquals(List.of(songs.get(4000), songs.get(4500)), index.search("rare", 10));
+        assertEquals(143, index.search("seven track", Integer.MAX_VALUE).size());
+        assertEquals(songs.get(4001), index.search("artist", 10).get(1));
+    }
+
+    private FullTextIndex index() {
+        FullTextIndex index = new FullTextIndex();
+        index.add(deep, "Pop");
+        index.add(crazy, "R&B");
+        index.add(dragon, "Rock");
+        index.add(deep, "Pop");
+        return index;
+    }
+}
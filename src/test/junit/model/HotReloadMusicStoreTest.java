@@ -0,0 +1,215 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Runs every MusicStoreTest against a store whose albums have all been
+ * reloaded, and tests reloading changed files
+ */
+public class HotReloadMusicStoreTest extends MusicStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Override
+    MusicStore loadStore() throws IOException {
+        MusicStore store = new MusicStore(ALBUMS_TXT_PATH, ALBUMS_DIR_PATH);
+        assertTrue(store.reload(AlbumFile.readAlbumList(ALBUMS_TXT_PATH, ALBUMS_DIR_PATH), false));
+        assertEquals(1, store.getGeneration());
+        return store;
+    }
+
+    /**
+     * Copies the bundled catalog into the temporary directory and loads it
+     */
+    private MusicStore copyAndLoad() throws IOException {
+        copyCatalog();
+        return new MusicStore(albumsTxt(), albumsDir());
+    }
+
+    private void copyCatalog() throws IOException {
+        Files.createDirectories(tempDir.resolve("albums"));
+        Files.copy(Path.of(ALBUMS_TXT_PATH), tempDir.resolve("albums.txt"));
+        try (Stream<Path> files = Files.list(Path.of(ALBUMS_DIR_PATH))) {
+            for (Path f : files.toList()) {
+                Files.copy(f, tempDir.resolve("albums").resolve(f.getFileName()));
+            }
+        }
+    }
+
+    private String albumsTxt() {
+        return tempDir.resolve("albums.txt").toString();
+    }
+
+    private String albumsDir() {
+        return tempDir.resolve("albums").toString();
+    }
+
+    private String albumFile(String name) {
+        return albumsDir() + "/" + name;
+    }
+
+    private void write(String file, String content) throws IOException {
+        Files.write(Path.of(file), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testChangedAlbumIsReparsed() throws IOException {
+        MusicStore store = copyAndLoad();
+        int songs = store.getSongsByArtist("Adele").size();
+        String file = albumFile("21_Adele.txt");
+        write(file, Files.readString(Path.of(file)) + "\nBonus Track\n");
+
+        assertTrue(store.reload(Set.of(file), false));
+        assertEquals(1, store.getGeneration());
+        assertEquals(songs + 1, store.getSongsByArtist("Adele").size());
+        assertEquals(List.of(new Song("Bonus Track", "Adele", "21")), store.getSongsByTitle("bonus track"));
+        assertEquals(13, store.getAlbumByTitle("21").getSongs().size());
+        assertEquals(13, store.findAlbum("21", "adele").getSongs().size());
+        assertEquals(new Song("Bonus Track", "Adele", "21"), store.findSong("bonus track", "adele", "21"));
+        assertEquals(List.of(store.findAlbum("21", "adele")), store.getAlbumsByTitle("21"));
+        assertEquals(new Song("Bonus Track", "Adele", "21"), store.findSong("Bonus Track", "ADELE"));
+        assertEquals(new Song("Rolling in the Deep", "Adele", "21"), store.findSong("rolling in the deep", "adele"));
+        assertEquals(2, store.getAlbumsByArtist("adele").size());
+        assertEquals(1, store.getSongsByTitle("Rolling in the Deep").size());
+        assertEquals("Norah Jones", store.getAlbumByTitle("Begin Again").getArtist());
+        assertTrue(store.getLoadReport().contains("15 albums"));
+    }
+
+    @Test
+    void testUnlistedOrUnchangedFilesAreIgnored() throws IOException {
+        MusicStore store = copyAndLoad();
+        String stray = albumFile("Stray_Nobody.txt");
+        write(stray, "Stray,Nobody,Pop,2020\nLost Song\n");
+        assertFalse(store.reload(Set.of(stray), false));
+        assertFalse(store.reload(Set.of(), true));
+        assertEquals(0, store.getGeneration());
+        assertTrue(store.getSongsByTitle("Lost Song").isEmpty());
+    }
+
+    @Test
+    void testListChanges() throws IOException {
+        MusicStore store = copyAndLoad();
+        write(albumFile("Stray_Nobody.txt"), "Stray,Nobody,Pop,2020\nLost Song\nFound Song\n");
+        List<String> lines = new ArrayList<>(Files.readAllLines(Path.of(albumsTxt())));
+        lines.remove("21,Adele");
+        lines.add("Stray,Nobody");
+        Files.write(Path.of(albumsTxt()), lines);
+
+        assertTrue(store.reload(Set.of(), true));
+        assertNull(store.getAlbumByTitle("21"));
+        assertEquals(List.of("19"), store.getAlbumsByArtist("Adele").stream().map(Album::getTitle).toList());
+        assertTrue(store.getSongsByTitle("Rolling in the Deep").isEmpty());
+        assertEquals(2, store.getAlbumByTitle("stray").getSongs().size());
+        assertEquals(List.of(new Song("Lost Song", "Nobody", "Stray")), store.getSongsByTitle("lost song"));
+        assertNull(store.findSong("Rolling in the Deep", "Adele"));
+        assertEquals(new Song("Found Song", "Nobody", "Stray"), store.findSong("found song", "nobody"));
+    }
+
+    @Test
+    void testDeletedAndUnparsableFiles() throws IOException {
+        MusicStore store = copyAndLoad();
+        String broken = albumFile("21_Adele.txt");
+        write(broken, "21,Adele,Pop");
+        assertFalse(store.reload(Set.of(broken), false));
+        assertEquals(12, store.getAlbumByTitle("21").getSongs().size());
+
+        Files.delete(Path.of(albumFile("19_Adele.txt")));
+        assertTrue(store.reload(Set.of(albumFile("19_Adele.txt")), false));
+        assertNull(store.getAlbumByTitle("19"));
+        assertEquals(1, store.getAlbumsByArtist("adele").size());
+    }
+
+    @Test
+    void testSearchFollowsReload() throws IOException {
+        MusicStore store = copyAndLoad();
+        store.prepareSearch();
+        assertTrue(store.searchText("zyzzyva", 10).isEmpty());
+        String file = albumFile("21_Adele.txt");
+        write(file, Files.readString(Path.of(file)) + "\nZyzzyva\n");
+        store.reload(Set.of(file), false);
+
+        assertEquals(List.of(new Song("Zyzzyva", "Adele", "21")), store.searchText("zyzzyva", 10));
+        assertEquals("Zyzzyva", store.searchSongs("zyzzyva", 1).get(0).getTitle());
+    }
+
+    @Test
+    void testReloadOverSnapshot() throws IOException {
+        copyCatalog();
+        String snapshot = tempDir.resolve("catalog.snapshot").toString();
+        MusicStore.fromSnapshot(snapshot, albumsTxt(), albumsDir());
+        MusicStore store = MusicStore.fromSnapshot(snapshot, albumsTxt(), albumsDir());
+        assertTrue(store.getLoadReport().contains("snapshot"));
+
+        String file = albumFile("21_Adele.txt");
+        write(file, "21,Adele,Soul,2011\nOnly Song\n");
+        assertTrue(store.reload(Set.of(file), false));
+        assertEquals("Soul", store.getAlbumByTitle("21").getGenre());
+        assertEquals(List.of("Only Song"), store.getAlbumByTitle("21").getSongs().stream().map(Song::getTitle).toList());
+
+        // the rewritten snapshot lists the reloaded catalog
+        store.writeSnapshot(snapshot);
+        MusicStore reopened = MusicStore.fromSnapshot(snapshot, albumsTxt(), albumsDir());
+        assertEquals("Soul", reopened.getAlbumByTitle("21").getGenre());
+        assertEquals(store.getSongsByArtist("Adele"), reopened.getSongsByArtist("Adele"));
+    }
+
+    @Test
+    void testManyReloadsFoldIntoNewBase() throws IOException {
+        Files.createDirectories(tempDir.resolve("albums"));
+        List<String> lines = new ArrayList<>();
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            lines.add("Album " + i + ",Artist " + (i % 7));
+            files.add(albumFile("Album " + i + "_Artist " + (i % 7) + ".txt"));
+            write(files.get(i), "Album " + i + ",Artist " + (i % 7) + ",Pop,2000\nSong " + i + "\nShared\n");
+        }
+        Files.write(Path.of(albumsTxt()), lines);
+        MusicStore store = new MusicStore(albumsTxt(), albumsDir());
+
+        for (int i = 0; i < 300; i++) {
+            write(files.get(i), "Album " + i + ",Artist " + (i % 7) + ",Rock,2001\nSong " + i + "\nShared\nNew " + i + "\n");
+            assertTrue(store.reload(Set.of(files.get(i)), false));
+            assertEquals(2001, store.getAlbumByTitle("Album " + i).getYear());
+        }
+        assertEquals(300, store.getGeneration());
+        assertEquals(300, store.getSongsByTitle("shared").size());
+        for (int i = 0; i < 300; i++) {
+            Album album = store.getAlbumByTitle("album " + i);
+            assertEquals("Rock", album.getGenre());
+            assertEquals(List.of("Song " + i, "Shared", "New " + i), album.getSongs().stream().map(Song::getTitle).toList());
+        }
+        assertEquals(43 * 3, store.getSongsByArtist("artist 0").size());	// albums 0, 7, ..., 294
+        assertTrue(store.getLoadReport().contains("300 albums (900 songs)"));
+    }
+
+    @Test
+    void testWatcherReloadsChangedFile() throws IOException, InterruptedException {
+        MusicStore store = copyAndLoad();
+        Closeable watching = store.startHotReload();
+        try {
+            String file = albumFile("21_Adele.txt");
+            write(file, Files.readString(Path.of(file)) + "\nWatched Song\n");
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (store.getGeneration() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(List.of(new Song("Watched Song", "Adele", "21")), store.getSongsByTitle("watched song"));
+        } finally {
+            watching.close();
+        }
+    }
+}
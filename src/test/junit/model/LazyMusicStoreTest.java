@@ -0,0 +1,95 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Runs every MusicStoreTest against a lazy store whose album cache is too
+ * small for the catalog, and tests the cache and unreadable album files
+ */
+public class LazyMusicStoreTest extends MusicStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Override
+    MusicStore loadStore() throws IOException {
+        return MusicStore.lazy(ALBUMS_TXT_PATH, ALBUMS_DIR_PATH, 4);
+    }
+
+    @Test
+    public void testAlbumsAreParsedOnFirstUse() throws IOException {
+        MusicStore store = loadStore();
+        assertEquals(0, store.getAlbumCacheMisses());
+
+        Album album = store.getAlbumByTitle("21");
+        assertEquals(1, store.getAlbumCacheMisses());
+        assertEquals(0, store.getAlbumCacheHits());
+        assertSame(album, store.getAlbumByTitle("21"));
+        assertEquals(1, store.getAlbumCacheHits());
+        assertTrue(store.getLoadReport().contains("album cache holds 1 of 4 (1 hits, 1 misses, 0 evictions)"));
+    }
+
+    @Test
+    public void testCacheStaysBounded() throws IOException {
+        MusicStore store = loadStore();
+        MusicStore eager = new MusicStore(ALBUMS_TXT_PATH, ALBUMS_DIR_PATH);
+        List<String> titles = Files.readAllLines(Path.of(ALBUMS_TXT_PATH)).stream()
+                .map(line -> line.substring(0, line.indexOf(','))).toList();
+        for (String title : titles) {
+            assertEquals(eager.getAlbumByTitle(title), store.getAlbumByTitle(title));
+        }
+        assertEquals(titles.size(), store.getAlbumCacheMisses());
+        assertTrue(store.getLoadReport().contains("album cache holds 4 of 4"));
+        // the first album was evicted, so it is parsed again
+        store.getAlbumByTitle(titles.get(0));
+        assertEquals(titles.size() + 1, store.getAlbumCacheMisses());
+    }
+
+    @Test
+    public void testUnreadableFilesAreLeftOut() throws IOException {
+        Path dir = tempDir.resolve("albums");
+        Files.createDirectories(dir);
+        Files.write(tempDir.resolve("albums.txt"), "Good,Band\nMissing,Band\nBroken,Band\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(dir.resolve("Good_Band.txt"), "Good,Band,Rock,2001\nFirst\nSecond\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(dir.resolve("Broken_Band.txt"), "Broken,Band,Rock,two thousand\nThird\n".getBytes(StandardCharsets.UTF_8));
+        MusicStore store = MusicStore.lazy(tempDir.resolve("albums.txt").toString(), dir.toString(), 8);
+
+        assertNull(store.getAlbumByTitle("missing"));
+        assertTrue(store.getQuarantinedFiles().contains(dir.resolve("Missing_Band.txt").toString()));
+        assertEquals(List.of("Good"), store.getAlbumsByArtist("band").stream().map(Album::getTitle).toList());
+        assertEquals(2, store.getSongsByArtist("band").size());
+        assertEquals(1, store.searchAlbums("good", 10).size());
+        // the census thread may find either file first, so compare once it has read them all
+        store.awaitCensus();
+        assertEquals(Set.of(dir.resolve("Missing_Band.txt").toString(), dir.resolve("Broken_Band.txt").toString()),
+                Set.copyOf(store.getQuarantinedFiles()));
+    }
+
+    @Test
+    public void testSearchIndexesBypassTheCache() throws IOException {
+        MusicStore store = loadStore();
+        Album album = store.getAlbumByTitle("21");
+        store.prepareSearch();
+
+        assertEquals(1, store.getAlbumCacheMisses());
+        assertEquals(0, store.getAlbumCacheHits());
+        assertSame(album, store.getAlbumByTitle("21"));
+        assertEquals(List.of(new Song("Lovesong", "Adele", "21")),
+                store.searchSongs("lovesong", 10).stream().filter(s -> s.getArtist().equals("Adele")).toList());
+    }
+
+    @Test
+    public void testCannotHotReload() throws IOException {
+        assertThrows(IllegalStateException.class, () -> loadStore().startHotReload());
+    }
+}
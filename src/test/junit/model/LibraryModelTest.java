@@ -3,11 +3,16 @@ package model;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 
 /**
@@ -77,6 +82,18 @@ class LibraryModelTest {
         assertEquals(0, library.getSongsByArtist("Nonexisting Artist").size());
     }
 
+    @Test
+    void testSearchText() {
+        library.addSong(song3);
+        assertEquals(List.of(song2, song3), library.searchText("adele"));
+        assertEquals(List.of(song3), library.searchText("POP take"));
+        assertEquals(List.of(song1, song3), library.searchText("norah OR 21"));
+        library.removeSong(song2);
+        assertEquals(List.of(song3), library.searchText("adele"));
+        library.removeAlbum(store.getAlbumByTitle("21"));
+        assertTrue(library.searchText("adele").isEmpty());
+    }
+
     @Test
     void testGetAlbumByTitle() {
         assertEquals(album, library.getAlbumsByTitle("test album").get(0));
@@ -310,4 +327,197 @@ class LibraryModelTest {
         assertNotNull(genreAuto);
         assertEquals(11, genreAuto.getSongs().size());
     }
+    
+    @Test
+    void testIndexesIgnoreCase() {
+        library.addSong(song3);
+        assertEquals(song3, library.getSongsByTitle("take it all").get(0));
+        assertEquals(2, library.getSongsByArtist("ADELE").size());
+        assertEquals(album, library.getAlbumsByTitle("TEST ALBUM").get(0));
+        assertEquals(1, library.getAlbumsByArtist("adele").size());
+        assertEquals(2, library.getSongsByGenre("Test Genre").size());
+    }
+    
+    @Test
+    void testIndexesFollowRemovals() {
+        library.addSong(song3);
+        library.removeSong(song2);
+        assertTrue(library.getSongsByTitle("Daydreamer").isEmpty());
+        assertEquals(1, library.getSongsByArtist("Adele").size());
+        assertTrue(library.getArtists().contains("Adele"));
+
+        library.removeSong(song3);
+        assertTrue(library.getSongsByArtist("Adele").isEmpty());
+        assertFalse(library.getArtists().contains("Adele"));
+
+        library.removeAlbum(album);
+        assertTrue(library.getAlbumsByTitle("test album").isEmpty());
+        assertTrue(library.getSongsByGenre("test genre").isEmpty());
+    }
+    
+    @Test
+    void testAddSongToExistingAlbumUpdatesIndexes() {
+        Song extra = new Song("Extra", "test artist", "Test Album");
+        library.addSong(extra);
+
+        assertEquals(1, library.getAlbums().size());
+        List<Album> byTitle = library.getAlbumsByTitle("test album");
+        assertEquals(1, byTitle.size());
+        assertEquals(3, byTitle.get(0).getSongs().size());
+        assertTrue(library.isAlbumInLibrary("TEST ALBUM", "Test Artist"));
+        assertEquals(3, library.getSongsByGenre("test genre").size());
+    }
+    
+    @Test
+    void testAddSongUsesStoreInstance() {
+        library.addSong(new Song("take it all", "adele", "21"));
+        Song stored = store.getSongsByTitle("Take It All").get(0);
+        assertSame(stored, library.getSongsByTitle("Take It All").get(0));
+        assertTrue(library.getSongs().contains(song3));
+        assertTrue(library.rateSong(song3, 4));
+    }
+    
+    @Test
+    void testAutoPlaylistsFollowChanges() {
+        library.rateSong(song1, 5);
+        assertEquals(1, library.getFavoritesAutoPlaylist().getSongs().size());
+        assertEquals(1, library.getTopRatedAutoPlaylist().getSongs().size());
+
+        library.rateSong(song1, 3);
+        assertTrue(library.getFavoritesAutoPlaylist().getSongs().isEmpty());
+        assertTrue(library.getTopRatedAutoPlaylist().getSongs().isEmpty());
+
+        library.rateSong(song2, 4);
+        library.removeSong(song2);
+        assertTrue(library.getTopRatedAutoPlaylist().getSongs().isEmpty());
+    }
+    
+    @Test
+    void testGenreAutoPlaylistThreshold() {
+        for (int i = 0; i < 7; i++) {
+            library.addSong(new Song("test song " + i, "test artist", "test album"));
+        }
+        assertNull(library.getGenreAutoPlaylist("test genre"));
+
+        library.addSong(new Song("test song 7", "test artist", "test album"));
+        PlayList genreAuto = library.getGenreAutoPlaylist("TEST GENRE");
+        assertNotNull(genreAuto);
+        assertEquals(10, genreAuto.getSongs().size());
+        assertEquals(1, library.getGenreAutoPlaylists().size());
+
+        library.addSong(new Song("test song 8", "test artist", "test album"));
+        assertEquals(11, library.getGenreAutoPlaylist("test genre").getSongs().size());
+
+        library.removeAlbum(library.getAlbumsByTitle("test album").get(0));
+        assertNull(library.getGenreAutoPlaylist("test genre"));
+        assertTrue(library.getGenreAutoPlaylists().isEmpty());
+    }
+
+    @Test
+    void testConcurrentReadsDuringChanges() throws InterruptedException {
+        AtomicBoolean done = new AtomicBoolean();
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            Thread reader = new Thread(() -> {
+                try {
+                    while (!done.get()) {
+                        for (Song s : library.getSongs()) {
+                            assertNotNull(s);
+                        }
+                        library.getSongsByArtist("load artist");
+                        library.getAlbums();
+                        library.searchText("load");
+                        library.getRecentlyPlayedSongs();
+                        library.getFrequentlyPlayedSongs();
+                        library.getGenreAutoPlaylists();
+                    }
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+            });
+            readers.add(reader);
+            reader.start();
+        }
+
+        for (int i = 0; i < 2000; i++) {
+            Song s = new Song("load song " + i, "load artist", "load album " + (i % 50));
+            library.addSong(s);
+            library.playSong(s.getTitle(), s.getArtist());
+            if (i % 2 == 0) {
+                library.removeSong(s);
+            }
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertTrue(failures.isEmpty(), () -> failures.peek().toString());
+        assertEquals(2 + 1000, library.getSongs().size());
+        assertEquals(1000, library.getSongsByArtist("load artist").size());
+        assertEquals(1000, library.searchText("load").size());
+        assertEquals(50, library.getAlbumsByArtist("load artist").size());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void testPlayCountsArePerLibrary() {
+        Song storeSong = store.getAlbumByTitle("21").getSongs().get(0);
+        LibraryModel other = new LibraryModel();
+        other.setMusicStore(store);
+        library.addSong(storeSong);
+        other.addSong(storeSong);
+
+        library.playSong(storeSong.getTitle(), storeSong.getArtist());
+        library.playSong(storeSong.getTitle(), storeSong.getArtist());
+        other.playSong(storeSong.getTitle(), storeSong.getArtist());
+
+        assertEquals(2, library.getPlayCount(storeSong));
+        assertEquals(1, other.getPlayCount(storeSong));
+        assertEquals(0, storeSong.getPlayCount());
+
+        library.removeSong(storeSong);
+        assertEquals(0, library.getPlayCount(storeSong));
+    }
+
+    @Test
+    void testConcurrentPlaysAreCounted() throws InterruptedException {
+        List<Thread> players = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread player = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    library.playSong(i % 2 == 0 ? "Uh Oh" : "Daydreamer", i % 2 == 0 ? "Norah Jones" : "Adele");
+                }
+            });
+            players.add(player);
+            player.start();
+        }
+        for (Thread player : players) {
+            player.join();
+        }
+        assertEquals(2000, library.getPlayCount(song1));
+        assertEquals(2000, library.getPlayCount(song2));
+    }
+
+    @Test
+    void testSameAlbumTitleByOtherArtists(@TempDir Path dir) throws IOException {
+        Files.writeString(dir.resolve("albums.txt"), "21,Adele\n21,Tribute Band\n");
+        Files.createDirectories(dir.resolve("albums"));
+        Files.writeString(dir.resolve("albums/21_Adele.txt"), "21,Adele,Pop,2011\nRolling in the Deep\n");
+        Files.writeString(dir.resolve("albums/21_Tribute Band.txt"), "21,Tribute Band,Covers,2015\nSomeone Like You\n");
+        LibraryModel other = new LibraryModel();
+        // the tribute band's "21" is the one getAlbumByTitle finds
+        other.setMusicStore(new MusicStore(dir.resolve("albums.txt").toString(), dir.resolve("albums").toString()));
+
+        other.addSong(new Song("Rolling in the Deep", "Adele", "21"));
+        Album added = other.getAlbumsByArtist("Adele").get(0);
+        assertEquals("Pop", added.getGenre());
+        assertEquals(2011, added.getYear());
+
+        Album info = other.getAlbumInfoForSong("rolling in the deep", "adele");
+        assertEquals("Adele", info.getArtist());
+        assertEquals(2011, info.getYear());
+        assertNull(other.getAlbumInfoForSong("Rolling in the Deep", "Tribute Band"));
+    }
 }
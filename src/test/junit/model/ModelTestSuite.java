@@ -8,7 +8,10 @@ import org.junit.platform.suite.api.Suite;
  */
 @Suite
 @SelectClasses({ AlbumTest.class, MusicStoreTest.class, PlayListTest.class, SongTest.class, LibraryModelTest.class, UserTest.class, 
-	UserManagerTest.class })
+	UserManagerTest.class, CatalogSnapshotTest.class,
+	TopKTrackerTest.class, SearchIndexTest.class, FullTextIndexTest.class,
+	ColumnarCatalogTest.class, OffHeapMusicStoreTest.class, OrderedSetTest.class, AlbumFileTest.class, HotReloadMusicStoreTest.class,
+	BackgroundLoadMusicStoreTest.class, AlbumCacheTest.class, LazyMusicStoreTest.class })
 public class ModelTestSuite {
 
 }
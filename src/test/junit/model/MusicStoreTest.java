@@ -13,8 +13,8 @@ import static org.junit.jupiter.api.Assertions.*;
  */
 public class MusicStoreTest {
 
-    private static final String ALBUMS_TXT_PATH = "src/main/resources/albums.txt";
-    private static final String ALBUMS_DIR_PATH = "src/main/resources/albums";
+    static final String ALBUMS_TXT_PATH = "src/main/resources/albums.txt";
+    static final String ALBUMS_DIR_PATH = "src/main/resources/albums";
 
     private MusicStore store;
 
@@ -24,12 +24,20 @@ public class MusicStoreTest {
     @BeforeEach
     public void setUp() {
         try {
-            store = new MusicStore(ALBUMS_TXT_PATH, ALBUMS_DIR_PATH);
+            store = loadStore();
         } catch (IOException e) {
             fail("Failed to load data from files: " + e.getMessage());
         }
     }
 
+    /**
+     * Loads the store every test runs against; overridden to run the same
+     * tests against another catalog backend
+     */
+    MusicStore loadStore() throws IOException {
+        return new MusicStore(ALBUMS_TXT_PATH, ALBUMS_DIR_PATH);
+    }
+
     // Album-Related Tests
 
     @Test
@@ -40,6 +48,24 @@ public class MusicStoreTest {
         assertEquals("Adele", album.getArtist());
     }
     
+    @Test
+    public void testFindAlbumAndSong() {
+        Album album = store.findAlbum("21", "ADELE");
+        assertEquals(store.getAlbumByTitle("21"), album);
+        assertNull(store.findAlbum("21", "Coldplay"));
+        assertNull(store.findAlbum("Purple Rain", "Adele"));
+        assertEquals(List.of(album), store.getAlbumsByTitle("21"));
+        assertTrue(store.getAlbumsByTitle("Purple Rain").isEmpty());
+
+        Song song = store.findSong("rolling in the deep", "Adele", "21");
+        assertEquals(new Song("Rolling in the Deep", "Adele", "21"), song);
+        assertSame(song, store.internSong("Rolling In The Deep", "adele", "21"));
+        assertNull(store.findSong("Rolling in the Deep", "Adele", "19"));
+        assertNull(store.findSong("Rolling in the Deep", "Coldplay", "21"));
+        assertSame(song, store.findSong("ROLLING IN THE DEEP", "adele"));
+        assertNull(store.findSong("Rolling in the Deep", "Coldplay"));
+    }
+
     @Test
     void testGetAlbumByTitle_NonExistent() {
         Album album = store.getAlbumByTitle("Purple Rain");
@@ -117,4 +143,123 @@ public class MusicStoreTest {
         assertNotNull(songs3);
         assertTrue(songs3.isEmpty());
     }
-}
\ No newline at end of file
+
+    // Parallel Loading Tests
+
+    @Test
+    public void testParallelLoadMatchesSequential() throws IOException {
+        MusicStore parallel = new MusicStore(ALBUMS_TXT_PATH, ALBUMS_DIR_PATH, 4);
+
+        Album album = parallel.getAlbumByTitle("21");
+        assertNotNull(album);
+        assertEquals("Adele", album.getArtist());
+        assertEquals(store.getAlbumByTitle("21").getSongs().size(), album.getSongs().size());
+
+        List<Song> expected = store.getSongsByArtist("Adele");
+        List<Song> actual = parallel.getSongsByArtist("Adele");
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getTitle(), actual.get(i).getTitle());
+            assertEquals(expected.get(i).getAlbumTitle(), actual.get(i).getAlbumTitle());
+        }
+        assertEquals(store.getSongsByTitle("Lullaby").size(), parallel.getSongsByTitle("Lullaby").size());
+    }
+
+    @Test
+    public void testLoadReport() throws IOException {
+        MusicStore parallel = new MusicStore(ALBUMS_TXT_PATH, ALBUMS_DIR_PATH, 2);
+        String report = parallel.getLoadReport();
+        assertTrue(report.contains("15 albums"));
+        assertTrue(report.contains("2 loader thread"));
+        assertTrue(parallel.getLoadTimeMillis() >= 0);
+    }
+
+    // Interning Tests
+
+    @Test
+    public void testInternSongReturnsStoreInstance() {
+        Song stored = store.getSongsByTitle("Rolling in the Deep").get(0);
+        assertSame(stored, store.internSong("rolling in the deep", "adele", "21"));
+        assertSame(stored, store.internSong(new Song("Rolling in the Deep", "Adele", "21")));
+    }
+
+    @Test
+    public void testInternSongPoolsUnknownSongs() {
+        Song first = store.internSong("Purple Rain", "Prince", "Purple Rain");
+        Song second = store.internSong("purple rain", "PRINCE", "purple rain");
+        assertSame(first, second);
+        assertTrue(store.getSongsByTitle("Purple Rain").isEmpty());
+    }
+
+    @Test
+    public void testInternAlbumReturnsStoreInstance() {
+        Album stored = store.getAlbumByTitle("21");
+        Album copy = new Album("21", "ADELE", "Pop", 2011, List.of());
+        assertSame(stored, store.internAlbum(copy));
+
+        Album unknown = new Album("Purple Rain", "Prince", "Rock", 1984, List.of());
+        assertSame(unknown, store.internAlbum(unknown));
+        assertSame(unknown, store.internAlbum(new Album("purple rain", "prince", "Rock", 1984, List.of())));
+    }
+
+    @Test
+    public void testSearchSongsExactAndPrefix() {
+        List<Song> exact = store.searchSongs("lullaby", 10);
+        assertFalse(exact.isEmpty());
+        assertEquals("Lullaby", exact.get(0).getTitle());
+
+        List<Song> prefix = store.searchSongs("Rolling", 10);
+        assertFalse(prefix.isEmpty());
+        assertEquals("Rolling in the Deep", prefix.get(0).getTitle());
+    }
+
+    @Test
+    public void testSearchSongsToleratesTypos() {
+        List<Song> results = store.searchSongs("daydremer", 5);
+        assertFalse(results.isEmpty());
+        assertEquals("Daydreamer", results.get(0).getTitle());
+
+        results = store.searchSongs("roling in the deep", 5);
+        assertFalse(results.isEmpty());
+        assertEquals("Rolling in the Deep", results.get(0).getTitle());
+    }
+
+    @Test
+    public void testSearchAlbumsAndArtists() {
+        assertEquals("Tapestry", store.searchAlbums("tapestri", 5).get(0).getTitle());
+        assertEquals("Mumford & Sons", store.searchArtists("mumford", 5).get(0));
+        assertEquals("Adele", store.searchArtists("adel", 5).get(0));
+        assertTrue(store.searchSongs("zzzzqqqq", 5).isEmpty());
+        assertTrue(store.searchSongs("", 5).isEmpty());
+    }
+
+    @Test
+    public void testSearchRespectsLimit() {
+        assertEquals(3, store.searchSongs("a", 3).size());
+        assertTrue(store.searchSongs("lullaby", 0).isEmpty());
+    }
+
+    @Test
+    public void testAutocomplete() {
+        List<String> names = store.autocomplete("so", 10);
+        assertTrue(names.contains("Sons"));
+        for (String name : names) {
+            assertTrue(name.toLowerCase().startsWith("so"), name);
+        }
+        assertEquals(List.of("Adele"), store.autocomplete("ADE", 10));
+    }
+
+    @Test
+    public void testSearchText() {
+        List<Song> results = store.searchText("adele deep", 10);
+        assertEquals(1, results.size());
+        assertEquals("Rolling in the Deep", results.get(0).getTitle());
+        // genre and album title words, and OR between alternatives
+        for (Song s : store.searchText("latin OR tapestry", 100)) {
+            assertTrue(s.getArtist().equals("Mana") || s.getAlbumTitle().equals("Tapestry"), s.getTitle());
+        }
+        assertFalse(store.searchText("dont mess", 100).isEmpty());
+        assertEquals(2, store.searchText("pop", 2).size());
+        assertTrue(store.searchText("adele latin", 10).isEmpty());
+    }
+}
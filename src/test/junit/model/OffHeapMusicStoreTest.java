@@ -0,0 +1,25 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+/**
+ * Runs every MusicStoreTest against a store whose catalog is kept off-heap
+ */
+public class OffHeapMusicStoreTest extends MusicStoreTest {
+
+    @Override
+    MusicStore loadStore() throws IOException {
+        return MusicStore.offHeap(ALBUMS_TXT_PATH, ALBUMS_DIR_PATH, 2);
+    }
+
+    @Test
+    public void testOffHeapLoadReport() throws IOException {
+        String report = loadStore().getLoadReport();
+        assertTrue(report.contains("15 albums"));
+        assertTrue(report.contains("off-heap"));
+    }
+}
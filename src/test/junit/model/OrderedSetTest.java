@@ -0,0 +1,79 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for OrderedSet class
+ */
+class OrderedSetTest {
+
+    @Test
+    void testInsertionOrder() {
+        OrderedSet<String> set = new OrderedSet<>();
+        assertTrue(set.add("b"));
+        assertTrue(set.add("a"));
+        assertFalse(set.add("b"));
+        assertTrue(set.add("c"));
+        assertEquals(List.of("b", "a", "c"), new ArrayList<>(set));
+        assertEquals(3, set.size());
+        assertTrue(set.contains("a"));
+    }
+
+    @Test
+    void testRemoveAndReadd() {
+        OrderedSet<String> set = new OrderedSet<>();
+        set.add("a");
+        set.add("b");
+        set.add("c");
+        assertTrue(set.remove("a"));
+        assertFalse(set.remove("a"));
+        assertFalse(set.contains("a"));
+        set.add("a");
+        assertEquals(List.of("b", "c", "a"), new ArrayList<>(set));
+    }
+
+    @Test
+    void testCompaction() {
+        OrderedSet<Integer> set = new OrderedSet<>();
+        for (int i = 0; i < 1000; i++) {
+            set.add(i);
+        }
+        for (int i = 0; i < 1000; i++) {
+            if (i % 10 != 0) {
+                set.remove(i);
+            }
+        }
+        for (int i = 1000; i < 1010; i++) {
+            set.add(i);
+        }
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i += 10) {
+            expected.add(i);
+        }
+        for (int i = 1000; i < 1010; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, new ArrayList<>(set));
+        assertEquals(110, set.size());
+        assertTrue(set.remove(500));
+        assertFalse(set.contains(500));
+    }
+
+    @Test
+    void testIteratorIgnoresLaterAdds() {
+        OrderedSet<String> set = new OrderedSet<>();
+        set.add("a");
+        set.add("b");
+        Iterator<String> it = set.iterator();
+        set.add("c");
+        set.remove("b");
+        assertEquals("a", it.next());
+        assertFalse(it.hasNext());
+    }
+}
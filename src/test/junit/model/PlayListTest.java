@@ -82,6 +82,7 @@ class PlayListTest {
     }
     
     @Test
+    @SuppressWarnings("deprecation")
     void testAddSongFrequent() {
         song1.setPlayCount(5);
         song2.setPlayCount(10);
@@ -112,4 +113,79 @@ class PlayListTest {
         assertTrue(shuffled.contains(song1));
         assertTrue(shuffled.contains(song2));
     }
-}
\ No newline at end of file
+    
+    @Test
+    void testReplayMovesSongToFront() {
+        playlist.addSongRecent(song1);
+        playlist.addSongRecent(song2);
+        playlist.addSongRecent(song1);
+
+        List<Song> recents = playlist.getRecentlyPlayedSongs();
+        assertEquals(2, recents.size());
+        assertEquals(song1, recents.get(0));
+        assertEquals(song2, recents.get(1));
+    }
+
+    @Test
+    void testRecentCapacity() {
+        PlayList small = new PlayList("Small", 3);
+        for (int i = 1; i <= 5; i++) {
+            small.addSongRecent(new Song("Title" + i, "Artist", "Album"));
+        }
+        List<Song> recents = small.getRecentlyPlayedSongs();
+        assertEquals(3, recents.size());
+        assertEquals("Title5", recents.get(0).getTitle());
+        assertEquals("Title3", recents.get(2).getTitle());
+
+        small.removeSong(new Song("Title4", "Artist", "Album"));
+        assertEquals(2, small.getRecentlyPlayedSongs().size());
+    }
+
+    @Test
+    void testRecentlyPlayedView() {
+        Iterable<Song> view = playlist.recentlyPlayed();
+        assertFalse(view.iterator().hasNext());
+
+        playlist.addSongRecent(song1);
+        playlist.addSongRecent(song2);
+        var it = view.iterator();
+        assertEquals(song2, it.next());
+        assertEquals(song1, it.next());
+        assertFalse(it.hasNext());
+    }
+    
+    @Test
+    @SuppressWarnings("deprecation")
+    void testFrequentCapacity() {
+        PlayList small = new PlayList("Small", 2);
+        song1.setPlayCount(3);
+        song2.setPlayCount(1);
+        Song song3 = new Song("Title3", "Artist3", "Album3");
+        song3.setPlayCount(2);
+
+        small.addSongFrequent(song1);
+        small.addSongFrequent(song2);
+        small.addSongFrequent(song3);
+
+        List<Song> freq = small.getFrequentlyPlayedSongs();
+        assertEquals(2, freq.size());
+        assertEquals(song1, freq.get(0));
+        assertEquals(song3, freq.get(1));
+        assertEquals(2, small.getFrequentPlayCount(song3));
+        assertEquals(0, small.getFrequentPlayCount(song2));
+    }
+
+    @Test
+    void testApproximateFrequent() {
+        PlayList approx = new PlayList("Approx", 2, true);
+        approx.addSongFrequent(song1);
+        approx.addSongFrequent(song1);
+        approx.addSongFrequent(song2);
+
+        assertEquals(2, approx.getFrequentPlayCount(song1));
+        assertEquals(song1, approx.getFrequentlyPlayedSongs().get(0));
+
+        approx.removeSong(song1);
+        assertEquals(1, approx.getFrequentlyPlayedSongs().size());
+    }
+}
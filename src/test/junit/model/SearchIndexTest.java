@@ -0,0 +1,98 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JUnit tests for SearchIndex class
+ */
+class SearchIndexTest {
+
+    private final SearchIndex<String> index = new SearchIndex<>(List.of(
+            "Hello", "Hello Again", "Yellow", "Help!", "Say Hello", "hello", "Golden River", "River of Gold"), s -> s);
+
+    @Test
+    void testExactThenPrefixThenWords() {
+        List<String> results = index.search("hello", 10);
+        assertEquals(List.of("Hello", "hello", "Hello Again", "Say Hello"), results);
+    }
+
+    @Test
+    void testTypoMatchesWords() {
+        // "goldn" is one edit from both "golden" and "gold"; the closer length ranks first
+        assertEquals(List.of("Golden River", "River of Gold"), index.search("goldn rivr", 10));
+        assertEquals("Yellow", index.search("yelow", 10).get(0));
+    }
+
+    @Test
+    void testLastWordIsPrefix() {
+        assertEquals(List.of("Golden River", "River of Gold"), index.search("river gol", 10));
+        assertTrue(index.search("river go", 10).contains("River of Gold"));
+    }
+
+    @Test
+    void testConcurrentTypoSearches() throws InterruptedException {
+        // more threads than the index keeps scratch arrays for, all in the word tier at once
+        AtomicInteger wrong = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 64; t++) {
+            threads.add(Thread.ofVirtual().start(() -> {
+                for (int i = 0; i < 200; i++) {
+                    if (!index.search("goldn rivr", 10).equals(List.of("Golden River", "River of Gold"))) {
+                        wrong.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, wrong.get());
+    }
+
+    @Test
+    void testLimitAndNoMatch() {
+        assertEquals(2, index.search("hello", 2).size());
+        assertTrue(index.search("xyz", 10).isEmpty());
+        assertTrue(index.search("   ", 10).isEmpty());
+    }
+
+    @Test
+    void testComplete() {
+        assertEquals(List.of("Hello", "Hello Again", "Help!"), index.complete("hel", s -> s, 10));
+        assertEquals(List.of("Hello"), index.complete("HEL", s -> s, 1));
+    }
+
+    @Test
+    void testDistance() {
+        assertEquals(0, SearchIndex.distance("river", "river", 2));
+        assertEquals(1, SearchIndex.distance("rivr", "river", 2));
+        assertEquals(1, SearchIndex.distance("teh", "the", 2));
+        assertEquals(3, SearchIndex.distance("abc", "xyz", 2));
+    }
+
+    @Test
+    void testTypoSearchOverCommonWords() {
+        // both words have more postings than the word tier walks, so only the first keys are tried
+        List<String> titles = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            titles.add((i % 2 == 0 ? "Golden River " : "Golden Sky ") + i);
+        }
+        SearchIndex<String> big = new SearchIndex<>(titles, s -> s);
+        List<String> results = big.search("goldn rivr", 10);
+        assertEquals(10, results.size());
+        for (String title : results) {
+            assertTrue(title.startsWith("Golden River "), title);
+        }
+    }
+
+    @Test
+    void testNormalize() {
+        assertEquals("rolling in the deep", SearchIndex.normalize("  Rolling   in\tthe Deep "));
+    }
+}
@@ -40,6 +40,7 @@ class SongTest {
     }
     
     @Test
+    @SuppressWarnings("deprecation")
     void testPlayCountAndPlayMethod() {
         assertEquals(0, song.getPlayCount());
         song.play();
@@ -50,6 +51,7 @@ class SongTest {
     }
 
     @Test
+    @SuppressWarnings("deprecation")
     void testSetPlayCount() {
         song.setPlayCount(5);
         assertEquals(5, song.getPlayCount());
@@ -60,4 +62,22 @@ class SongTest {
         song.setPlayCount(0);
         assertEquals(0, song.getPlayCount());
     }
+    
+    @Test
+    void testEqualsIgnoresCase() {
+        Song same = new Song("hold on", "ALABAMA SHAKES", "Boys & Girls");
+        assertEquals(song, same);
+        assertEquals(song.hashCode(), same.hashCode());
+        assertNotEquals(song, song2);
+        assertNotEquals(song, new Song("Hold On", "Alabama Shakes", "Sound & Color"));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void testEqualsIgnoresPlayCount() {
+        Song same = new Song("Hold On", "Alabama Shakes", "Boys & Girls");
+        song.play();
+        assertEquals(song, same);
+        assertEquals(song.hashCode(), same.hashCode());
+    }
 }
@@ -0,0 +1,152 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * JUnit tests for TopKTracker class
+ */
+class TopKTrackerTest {
+    private TopKTracker tracker;
+    private Song[] songs;
+
+    /**
+     * Constructs a tracker of size 3 and a pool of songs before each test
+     */
+    @BeforeEach
+    void setUp() {
+        tracker = new TopKTracker(3);
+        songs = new Song[6];
+        for (int i = 0; i < songs.length; i++) {
+            songs[i] = new Song("Title" + i, "Artist", "Album");
+        }
+    }
+
+    @Test
+    void testOfferKeepsMostPlayed() {
+        for (int i = 0; i < songs.length; i++) {
+            tracker.offer(songs[i], i + 1);
+        }
+        List<Song> top = tracker.sorted();
+        assertEquals(3, top.size());
+        assertEquals(songs[5], top.get(0));
+        assertEquals(songs[4], top.get(1));
+        assertEquals(songs[3], top.get(2));
+    }
+
+    @Test
+    void testOfferUpdatesExistingSong() {
+        tracker.offer(songs[0], 1);
+        tracker.offer(songs[1], 2);
+        tracker.offer(songs[2], 3);
+        tracker.offer(songs[0], 10);
+        assertEquals(songs[0], tracker.sorted().get(0));
+
+        // songs[1] is now the least played and is the one evicted
+        tracker.offer(songs[3], 2);
+        assertEquals(0, tracker.count(songs[1]));
+        assertEquals(2, tracker.count(songs[3]));
+    }
+
+    @Test
+    void testLowerCountIsNotAdmitted() {
+        tracker.offer(songs[0], 5);
+        tracker.offer(songs[1], 5);
+        tracker.offer(songs[2], 5);
+        tracker.offer(songs[3], 4);
+        assertEquals(0, tracker.count(songs[3]));
+        assertEquals(3, tracker.size());
+    }
+
+    @Test
+    void testTiesListEarlierSongFirst() {
+        tracker.offer(songs[0], 2);
+        tracker.offer(songs[1], 2);
+        tracker.offer(songs[2], 3);
+        List<Song> top = tracker.sorted();
+        assertEquals(songs[2], top.get(0));
+        assertEquals(songs[0], top.get(1));
+        assertEquals(songs[1], top.get(2));
+    }
+
+    @Test
+    void testRemove() {
+        tracker.offer(songs[0], 1);
+        tracker.offer(songs[1], 2);
+        tracker.offer(songs[2], 3);
+        tracker.remove(songs[0]);
+        tracker.remove(songs[4]);
+        assertEquals(2, tracker.size());
+        assertEquals(0, tracker.count(songs[0]));
+
+        tracker.offer(songs[3], 1);
+        assertEquals(3, tracker.size());
+        assertEquals(songs[3], tracker.sorted().get(2));
+    }
+
+    @Test
+    void testHeapMatchesFullSort() {
+        TopKTracker big = new TopKTracker(10);
+        int[] counts = new int[200];
+        Song[] pool = new Song[200];
+        Random random = new Random(7);
+        for (int i = 0; i < pool.length; i++) {
+            pool[i] = new Song("Song" + i, "Artist", "Album");
+        }
+        for (int play = 0; play < 5000; play++) {
+            int i = random.nextInt(pool.length);
+            counts[i]++;
+            big.offer(pool[i], counts[i]);
+        }
+        int lowestTracked = Integer.MAX_VALUE;
+        for (Song s : big.sorted()) {
+            lowestTracked = Math.min(lowestTracked, big.count(s));
+        }
+        int better = 0;
+        for (int c : counts) {
+            if (c > lowestTracked) better++;
+        }
+        assertTrue(better < 10);
+    }
+
+    @Test
+    void testIncrementSpaceSaving() {
+        for (int i = 0; i < 5; i++) tracker.increment(songs[0]);
+        for (int i = 0; i < 3; i++) tracker.increment(songs[1]);
+        tracker.increment(songs[2]);
+        tracker.increment(songs[3]);	// replaces songs[2] and inherits its count
+
+        assertEquals(0, tracker.count(songs[2]));
+        assertEquals(2, tracker.count(songs[3]));
+        List<Song> top = tracker.sorted();
+        assertEquals(songs[0], top.get(0));
+        assertEquals(songs[1], top.get(1));
+        assertEquals(songs[3], top.get(2));
+    }
+
+    @Test
+    void testSortedIsKeptUntilTheHeapChanges() {
+        for (int i = 0; i < 3; i++) {
+            tracker.offer(songs[i], i + 1);
+        }
+        List<Song> top = tracker.sorted();
+        assertSame(top, tracker.sorted());
+        assertSame(top, tracker.sortedIfCurrent());
+        assertThrows(UnsupportedOperationException.class, () -> top.remove(0));
+
+        // a count below the least played is not admitted, so nothing changes
+        tracker.offer(songs[3], 0);
+        assertSame(top, tracker.sorted());
+
+        tracker.increment(songs[0]);
+        assertNull(tracker.sortedIfCurrent());
+        assertEquals(List.of(songs[2], songs[0], songs[1]), tracker.sorted());
+        tracker.remove(songs[2]);
+        assertEquals(List.of(songs[0], songs[1]), tracker.sorted());
+    }
+}
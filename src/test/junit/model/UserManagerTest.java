@@ -50,7 +50,7 @@ class UserManagerTest {
         }
 
         File cwd = new File(".");
-        File[] libraryFiles = cwd.listFiles((dir, name) -> name.startsWith("library_") && name.endsWith(".json"));
+        File[] libraryFiles = cwd.listFiles((dir, name) -> name.startsWith("library_"));
         if (libraryFiles != null) {
             for (File lf : libraryFiles) {
                 lf.delete();
@@ -293,4 +293,190 @@ class UserManagerTest {
 
         assertFalse(loaded.getSongs().isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testLoadUserLibrary_SectionsInAnyOrder() throws IOException {
+        userManager.createUser("legacy", "pass123");
+        assertTrue(userManager.authenticate("legacy", "pass123"));
+
+        // files written by JSONObject list their sections in hash order
+        String json = "{\"playlists\": [{\"songs\": [{\"artist\": \"Adele\", \"title\": \"Daydreamer\"}],"
+                + " \"name\": \"Mine\"}],"
+                + " \"ratedSongs\": [{\"rating\": 5, \"title\": \"Daydreamer\", \"artist\": \"Adele\"}],"
+                + " \"extra\": {\"ignored\": [1, 2, {}]},"
+                + " \"albums\": [],"
+                + " \"songs\": [{\"title\": \"Daydreamer\", \"artist\": \"Adele\", \"albumTitle\": \"19\"}]}";
+        java.nio.file.Files.write(new File("library_legacy.json").toPath(),
+                json.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+
+        userManager.loadUserLibrary(library);
+
+        assertEquals(1, library.getSongs().size());
+        Song daydreamer = library.getSongs().get(0);
+        assertEquals(5, library.getAllRatedSongs().get(daydreamer).intValue());
+        assertEquals(List.of(daydreamer), library.getPlayList("Mine").getSongs());
+    }
+
+    @Test
+    void testLoadAndSaveUserLibrary_RecentOrderIsKept() throws IOException {
+        userManager.createUser("listener", "pass123");
+        assertTrue(userManager.authenticate("listener", "pass123"));
+
+        Album storeAlbum = musicStore.getAlbumByTitle("21");
+        library.addAlbum(storeAlbum);
+        List<Song> songs = storeAlbum.getSongs();
+        library.playSong(songs.get(0).getTitle(), songs.get(0).getArtist());
+        library.playSong(songs.get(1).getTitle(), songs.get(1).getArtist());
+        library.playSong(songs.get(2).getTitle(), songs.get(2).getArtist());
+
+        userManager.saveUserLibrary(library);
+        LibraryModel loaded = new LibraryModel();
+        userManager.loadUserLibrary(loaded);
+
+        assertEquals(library.getRecentlyPlayedSongs(), loaded.getRecentlyPlayedSongs());
+        assertEquals(storeAlbum.getSongs().size(), loaded.getSongs().size());
+        assertFalse(new File("library_listener.json.tmp").exists());
+    }
+
+    @Test
+    void testJournal_ChangesSurviveWithoutSave() throws IOException {
+        userManager.createUser("crashy", "pass123");
+        assertTrue(userManager.authenticate("crashy", "pass123"));
+        library.setMusicStore(musicStore);
+        userManager.loadUserLibrary(library);
+        userManager.openJournal(library);
+
+        Album storeAlbum = musicStore.getAlbumByTitle("21");
+        library.addAlbum(storeAlbum);
+        Song first = storeAlbum.getSongs().get(0);
+        Song second = storeAlbum.getSongs().get(1);
+        library.rateSong(first, 5);
+        library.createPlayList("Mix");
+        library.getPlayList("Mix").addSong(first);
+        library.getPlayList("Mix").addSong(second);
+        library.getPlayList("Mix").removeSong(first);
+        library.playSong(second.getTitle(), second.getArtist());
+        library.removeSong(storeAlbum.getSongs().get(2));
+
+        // no saveUserLibrary: the session ends as if the program crashed
+        UserManager restarted = new UserManager(userJsonFile.getAbsolutePath(), musicStore);
+        assertTrue(restarted.authenticate("crashy", "pass123"));
+        LibraryModel loaded = new LibraryModel();
+        restarted.loadUserLibrary(loaded);
+
+        assertEquals(library.getSongs(), loaded.getSongs());
+        assertEquals(5, loaded.getAllRatedSongs().get(first).intValue());
+        assertEquals(List.of(first), loaded.getFavoriteSongs());
+        assertEquals(List.of(second), loaded.getPlayList("Mix").getSongs());
+        assertEquals(List.of(second), loaded.getRecentlyPlayedSongs());
+        userManager.logout();
+    }
+
+    @Test
+    void testJournal_SaveFoldsJournalIntoLibraryFile() throws IOException {
+        userManager.createUser("saver", "pass123");
+        assertTrue(userManager.authenticate("saver", "pass123"));
+        userManager.loadUserLibrary(library);
+        userManager.openJournal(library);
+
+        Album storeAlbum = musicStore.getAlbumByTitle("19");
+        library.addAlbum(storeAlbum);
+        assertTrue(new File("library_saver.journal").exists());
+
+        userManager.saveUserLibrary(library);
+        assertFalse(new File("library_saver.journal").exists());
+
+        // changes after the save are journaled again and replayed on top of the file
+        userManager.openJournal(library);
+        library.rateSong(storeAlbum.getSongs().get(0), 3);
+        userManager.logout();
+
+        assertTrue(userManager.authenticate("saver", "pass123"));
+        LibraryModel loaded = new LibraryModel();
+        userManager.loadUserLibrary(loaded);
+        assertEquals(library.getSongs(), loaded.getSongs());
+        assertEquals(library.getAllRatedSongs(), loaded.getAllRatedSongs());
+    }
+
+    @Test
+    void testJournal_BackgroundCompaction() throws IOException {
+        userManager.createUser("busy", "pass123");
+        assertTrue(userManager.authenticate("busy", "pass123"));
+        userManager.loadUserLibrary(library);
+        userManager.openJournal(library);
+
+        Album storeAlbum = musicStore.getAlbumByTitle("21");
+        library.addAlbum(storeAlbum);
+        List<Song> tracks = storeAlbum.getSongs();
+        for (int i = 0; i < UserManager.COMPACT_EVERY; i++) {
+            Song s = tracks.get(i % tracks.size());
+            library.playSong(s.getTitle(), s.getArtist());
+        }
+        userManager.logout();	// waits for the compaction
+
+        assertTrue(new File("library_busy.json").exists());
+        assertFalse(new File("library_busy.journal.compacting").exists());
+
+        assertTrue(userManager.authenticate("busy", "pass123"));
+        LibraryModel loaded = new LibraryModel();
+        userManager.loadUserLibrary(loaded);
+        assertEquals(library.getSongs(), loaded.getSongs());
+        assertEquals(library.getRecentlyPlayedSongs(), loaded.getRecentlyPlayedSongs());
+    }
+
+    @Test
+    void testJournal_TornLastLineIsIgnored() throws IOException {
+        userManager.createUser("torn", "pass123");
+        assertTrue(userManager.authenticate("torn", "pass123"));
+        String journal = "[1,\"addSong\",\"Daydreamer\",\"Adele\",\"19\"]\n"
+                + "[2,\"rate\",\"Daydreamer\",\"Ade";
+        java.nio.file.Files.write(new File("library_torn.journal").toPath(),
+                journal.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+
+        userManager.loadUserLibrary(library);
+
+        assertEquals(1, library.getSongs().size());
+        assertTrue(library.getAllRatedSongs().isEmpty());
+    }
+
+    @Test
+    void testLibraryLoadReport() throws IOException {
+        assertNull(userManager.getLibraryLoadReport());
+        userManager.createUser("timed", "pass123");
+        assertTrue(userManager.authenticate("timed", "pass123"));
+        library.addAlbum(musicStore.getAlbumByTitle("21"));
+        library.createPlayList("Mine");
+        userManager.saveUserLibrary(library);
+
+        LibraryModel loaded = new LibraryModel();
+        userManager.loadUserLibrary(loaded);
+
+        String report = userManager.getLibraryLoadReport();
+        assertTrue(report.startsWith("Loaded library for timed in "));
+        for (String section : new String[] { "parsing", "songs", "albums", "ratings", "playlists", "journal" }) {
+            assertTrue(report.contains(section + " "), report);
+        }
+    }
+
+    @Test
+    void testSessionsShareUsers() throws IOException {
+        UserManager other = userManager.newSession();
+        assertTrue(other.createUser("frank", "pw"));
+        assertFalse(userManager.createUser("frank", "other"));
+        assertTrue(userManager.authenticate("frank", "pw"));
+        assertNull(other.getCurrentUser());
+    }
+
+    @Test
+    void testUserLogsInOnOneSessionAtATime() throws IOException {
+        userManager.createUser("grace", "pw");
+        UserManager other = userManager.newSession();
+        assertTrue(userManager.authenticate("grace", "pw"));
+        assertFalse(other.authenticate("Grace", "pw"));
+        assertNull(other.getCurrentUser());
+
+        userManager.logout();
+        assertTrue(other.authenticate("grace", "pw"));
+        assertFalse(userManager.authenticate("grace", "pw"));
+    }
+}